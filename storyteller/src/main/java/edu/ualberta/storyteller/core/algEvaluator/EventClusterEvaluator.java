@@ -112,7 +112,7 @@ public class EventClusterEvaluator {
                 }
 
                 // add new document to docs
-                corpus.docs.put(id, d);
+                corpus.addDocument(d);
 
                 if (++i % 10000 == 0) {
                     System.out.println(i + " documents are loaded.");
@@ -128,9 +128,6 @@ public class EventClusterEvaluator {
         // filter documents with not enough keywords
         corpus.filterDocsByNumKeywords(parameters.minDocKeywordSize);
 
-        // count each keyword' df and save into the hash map DF
-        corpus.updateDF();
-
         // print load information
         System.out.println(corpus.docs.size()
                 + " documents remained after filtering small documents (Documents that have less than "
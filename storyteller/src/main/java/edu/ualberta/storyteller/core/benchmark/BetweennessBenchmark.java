@@ -0,0 +1,115 @@
+package edu.ualberta.storyteller.core.benchmark;
+
+import edu.ualberta.storyteller.core.dataloader.Keyword;
+import edu.ualberta.storyteller.core.keywordorganizer.BrandesBetweenness;
+import edu.ualberta.storyteller.core.keywordorganizer.CommunityDetectorBetweenness;
+import edu.ualberta.storyteller.core.keywordorganizer.KeywordEdge;
+import edu.ualberta.storyteller.core.keywordorganizer.KeywordNode;
+import java.util.HashMap;
+import java.util.Random;
+
+/**
+ * Compare the time of finding the maximum betweenness edge of a keyword graph component
+ * by the single path search, by the Brandes algorithm on the CSR snapshot and on adjacency bit matrices,
+ * and by Brandes dependencies of sampled pivots.
+ * <p>
+ * Usage: BetweennessBenchmark [numNodes] [averageDegree] [numThreads] [sampleError]
+ * <p>
+ * @author Bang Liu <bang3@ualberta.ca>
+ * @version 2017.1219
+ */
+public class BetweennessBenchmark {
+
+    /**
+     * Run the benchmark.
+     * @param args Program arguments.
+     * @throws Exception
+     */
+    public static void main(String args[]) throws Exception {
+        int numNodes = args.length > 0 ? Integer.parseInt(args[0]) : 800;
+        int averageDegree = args.length > 1 ? Integer.parseInt(args[1]) : 8;
+        int numThreads = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+        double sampleError = args.length > 3 ? Double.parseDouble(args[3]) : 0.1;
+
+        HashMap<String, KeywordNode> graph = generateGraph(numNodes, averageDegree, 1);
+        int numEdges = 0;
+        for (KeywordNode n : graph.values()) {
+            numEdges += n.edges.size();
+        }
+        int numPivots = BrandesBetweenness.sampleSize(numEdges / 2, sampleError);
+        System.out.println(graph.size() + " nodes, " + numEdges / 2 + " edges, " + numPivots + " pivots.");
+
+        for (int round = 0; round < 5; ++round) {
+            long t0 = System.nanoTime();
+            KeywordEdge e1 = CommunityDetectorBetweenness.findMaxEdge(graph);
+            long t1 = System.nanoTime();
+            KeywordEdge e2 = CommunityDetectorBetweenness.findMaxEdgeBrandes(graph, 1);
+            long t2 = System.nanoTime();
+            KeywordEdge e3 = CommunityDetectorBetweenness.findMaxEdgeBrandes(graph, numThreads);
+            long t3 = System.nanoTime();
+            double exactScore = e3.betweennessScore;
+            KeywordEdge e5 = CommunityDetectorBetweenness.findMaxEdgeBrandes(graph, 1, numNodes);
+            long t5 = System.nanoTime();
+            BrandesBetweenness sampled = new BrandesBetweenness(graph, numThreads, false, numPivots);
+            KeywordEdge e4 = sampled.getMaxEdge();
+            long t4 = System.nanoTime();
+            System.out.println("Round " + round
+                    + ": single path " + (t1 - t0) / 1000000 + " ms (" + e1.id + ")"
+                    + ", Brandes " + (t2 - t1) / 1000000 + " ms (" + e2.id + ")"
+                    + ", Brandes with " + numThreads + " threads " + (t3 - t2) / 1000000 + " ms (" + e3.id + ")"
+                    + ", bit matrix Brandes " + (t5 - t3) / 1000000 + " ms (" + e5.id + ")"
+                    + ", sampled " + (t4 - t5) / 1000000 + " ms (" + e4.id + ", exact score " + exactScore
+                    + ", estimate " + e4.betweennessScore + ", error bound " + sampled.getErrorBound() + ")");
+        }
+    }
+
+    /**
+     * Generate a connected keyword graph of dense groups with sparse links between them.
+     * <p>
+     * @param numNodes Number of nodes.
+     * @param averageDegree Average number of neighbors of a node.
+     * @param seed Random seed.
+     * @return The map of (keyword base form, keyword node).
+     */
+    public static HashMap<String, KeywordNode> generateGraph(int numNodes, int averageDegree, long seed) {
+        Random random = new Random(seed);
+        int groupSize = Math.max(2, averageDegree * 2);
+        KeywordNode[] nodes = new KeywordNode[numNodes];
+        HashMap<String, KeywordNode> graph = new HashMap<>();
+        for (int i = 0; i < numNodes; ++i) {
+            String word = "k" + i;
+            nodes[i] = new KeywordNode(new Keyword(word, word, 1 + random.nextInt(50), 1 + random.nextInt(50)));
+            graph.put(word, nodes[i]);
+        }
+        for (int i = 1; i < numNodes; ++i) {
+            // link each node to an earlier node, mostly of its own group
+            int group = i / groupSize * groupSize;
+            int j = random.nextInt(10) == 0 || group == i ? random.nextInt(i) : group + random.nextInt(i - group);
+            connect(nodes[i], nodes[j], random);
+            for (int d = 2; d < averageDegree; d += 2) {
+                if (group < i) {
+                    connect(nodes[i], nodes[group + random.nextInt(i - group)], random);
+                }
+            }
+        }
+        return graph;
+    }
+
+    /**
+     * Connect two nodes with an edge of random document frequency, unless they are already connected.
+     * <p>
+     * @param n1 First node.
+     * @param n2 Second node.
+     * @param random Random generator.
+     */
+    private static void connect(KeywordNode n1, KeywordNode n2, Random random) {
+        String id = KeywordEdge.getId(n1, n2);
+        if (!n1.edges.containsKey(id)) {
+            KeywordEdge e = new KeywordEdge(n1, n2, id);
+            e.df = 1 + random.nextInt(20);
+            n1.edges.put(id, e);
+            n2.edges.put(id, e);
+        }
+    }
+
+}
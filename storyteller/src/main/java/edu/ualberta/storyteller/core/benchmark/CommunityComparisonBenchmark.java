@@ -0,0 +1,141 @@
+package edu.ualberta.storyteller.core.benchmark;
+
+import edu.ualberta.storyteller.core.dataloader.*;
+import edu.ualberta.storyteller.core.keywordorganizer.CommunityDetector;
+import edu.ualberta.storyteller.core.keywordorganizer.KeywordGraph;
+import edu.ualberta.storyteller.core.keywordorganizer.KeywordNode;
+import edu.ualberta.storyteller.core.parameter.Parameters;
+import java.io.PrintStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.TreeSet;
+
+/**
+ * Compare the keyword communities of community detection configurations on a recorded news file.
+ * <p>
+ * The keyword graph of the news file is built once per configuration, and its communities are compared
+ * with the communities of the first configuration by normalized mutual information (NMI) of keyword
+ * labels. A keyword is labeled with the first community that contains it, or with no community.
+ * <p>
+ * Usage: CommunityComparisonBenchmark newsFile baselineParametersFile parametersFile...
+ * <p>
+ * @author Bang Liu <bang3@ualberta.ca>
+ * @version 2017.1219
+ */
+public class CommunityComparisonBenchmark {
+
+    /**
+     * Run the benchmark.
+     * @param args Program arguments.
+     * @throws Exception
+     */
+    public static void main(String args[]) throws Exception {
+        Corpus corpus = new DataLoader(new Parameters(args[1])).loadCorpus(args[0]);
+        System.out.println(corpus.docs.size() + " documents, " + corpus.DF.size() + " distinct keywords.");
+
+        HashMap<String, Integer> baseline = null;
+        TreeSet<String> baselineCommunities = null;
+        for (int i = 1; i < args.length; ++i) {
+            Parameters parameters = new Parameters(args[i]);
+            KeywordGraph g = new KeywordGraph(parameters);
+            g.buildGraph(corpus);
+            HashSet<String> keywords = new HashSet<>(g.graphNodes.keySet());
+
+            CommunityDetector cd = new CommunityDetector(parameters);
+            cd.logger = new PrintStream(new OutputStream() {
+                public void write(int b) {
+                }
+            });
+            long t = System.nanoTime();
+            ArrayList<HashMap<String, KeywordNode>> communities = cd.detectCommunities(g.graphNodes);
+            long ms = (System.nanoTime() - t) / 1000000;
+
+            HashMap<String, Integer> labels = label(communities, keywords);
+            TreeSet<String> sorted = new TreeSet<>();
+            for (HashMap<String, KeywordNode> c : communities) {
+                sorted.add(new TreeSet<>(c.keySet()).toString());
+            }
+            if (baseline == null) {
+                baseline = labels;
+                baselineCommunities = sorted;
+            }
+            System.out.println(args[i] + ": " + parameters.communityDetectAlg + ", " + communities.size()
+                    + " communities in " + ms + " ms, NMI " + nmi(baseline, labels)
+                    + (sorted.equals(baselineCommunities) ? ", identical" : ""));
+        }
+    }
+
+    /**
+     * Label keywords with the index of the first community that contains them.
+     * <p>
+     * @param communities Keyword communities.
+     * @param keywords All keywords of the graph.
+     * @return The map of (keyword base form, community index), where -1 stands for no community.
+     */
+    private static HashMap<String, Integer> label(ArrayList<HashMap<String, KeywordNode>> communities,
+                                                  HashSet<String> keywords) {
+        HashMap<String, Integer> labels = new HashMap<>();
+        for (String k : keywords) {
+            labels.put(k, -1);
+        }
+        for (int i = communities.size() - 1; i >= 0; --i) {
+            for (String k : communities.get(i).keySet()) {
+                labels.put(k, i);
+            }
+        }
+        return labels;
+    }
+
+    /**
+     * Compute the normalized mutual information of two labelings of the keywords of the first one.
+     * Keywords missing from the second labeling have no community.
+     * <p>
+     * @param a First labeling.
+     * @param b Second labeling.
+     * @return NMI in [0, 1], where 1 means the same partition.
+     */
+    private static double nmi(HashMap<String, Integer> a, HashMap<String, Integer> b) {
+        HashMap<Integer, Integer> countA = new HashMap<>();
+        HashMap<Integer, Integer> countB = new HashMap<>();
+        HashMap<Long, Integer> countAB = new HashMap<>();
+        for (String k : a.keySet()) {
+            int la = a.get(k);
+            int lb = b.getOrDefault(k, -1);
+            countA.merge(la, 1, Integer::sum);
+            countB.merge(lb, 1, Integer::sum);
+            countAB.merge(((long) la << 32) | (lb & 0xffffffffL), 1, Integer::sum);
+        }
+        double n = a.size();
+        double mi = 0;
+        for (HashMap.Entry<Long, Integer> e : countAB.entrySet()) {
+            int la = (int) (e.getKey() >> 32);
+            int lb = (int) (long) e.getKey();
+            double pab = e.getValue() / n;
+            mi += pab * Math.log(pab / (countA.get(la) / n) / (countB.get(lb) / n));
+        }
+        double ha = entropy(countA, n);
+        double hb = entropy(countB, n);
+        if (ha == 0 && hb == 0) {
+            return 1;
+        }
+        return 2 * mi / (ha + hb);
+    }
+
+    /**
+     * Compute the entropy of a labeling.
+     * <p>
+     * @param counts Number of keywords of each label.
+     * @param n Number of keywords.
+     * @return Entropy.
+     */
+    private static double entropy(HashMap<Integer, Integer> counts, double n) {
+        double h = 0;
+        for (int c : counts.values()) {
+            h -= c / n * Math.log(c / n);
+        }
+        return h;
+    }
+
+}
@@ -0,0 +1,93 @@
+package edu.ualberta.storyteller.core.benchmark;
+
+import edu.ualberta.storyteller.core.dataloader.*;
+import edu.ualberta.storyteller.core.parameter.Parameters;
+import org.apache.commons.lang3.SerializationUtils;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+
+/**
+ * Compare the binary corpus snapshot round trip against Java serialization of the corpus.
+ * <p>
+ * Usage: CorpusSnapshotBenchmark [numDocs] or CorpusSnapshotBenchmark newsFile parametersFile
+ * <p>
+ * @author Bang Liu <bang3@ualberta.ca>
+ * @version 2017.1219
+ */
+public class CorpusSnapshotBenchmark {
+
+    /**
+     * Run the benchmark.
+     * @param args Program arguments.
+     * @throws Exception
+     */
+    public static void main(String args[]) throws Exception {
+        Corpus corpus;
+        if (args.length >= 2) {
+            corpus = new DataLoader(new Parameters(args[1])).loadCorpus(args[0]);
+        } else {
+            int numDocs = args.length > 0 ? Integer.parseInt(args[0]) : 100000;
+            corpus = new WindowedCorpus(SyntheticCorpus.generate(numDocs, 100, 50000, 1), 24);
+        }
+        System.out.println(corpus.docs.size() + " documents, " + corpus.DF.size() + " distinct keywords.");
+
+        File ser = File.createTempFile("corpus", ".ser");
+        File bin = File.createTempFile("corpus", ".bin");
+        ser.deleteOnExit();
+        bin.deleteOnExit();
+
+        for (int round = 0; round < 3; ++round) {
+            long t0 = System.nanoTime();
+            try (FileOutputStream out = new FileOutputStream(ser)) {
+                SerializationUtils.serialize(corpus, out);
+            }
+            long t1 = System.nanoTime();
+            Corpus serCorpus;
+            try (FileInputStream in = new FileInputStream(ser)) {
+                serCorpus = SerializationUtils.deserialize(in);
+            }
+            long t2 = System.nanoTime();
+            CorpusWriter.write(corpus, bin);
+            long t3 = System.nanoTime();
+            Corpus binCorpus = CorpusReader.read(bin);
+            long t4 = System.nanoTime();
+
+            System.out.println("Round " + round
+                    + ": .ser " + ser.length() / 1024 + " KB, write " + (t1 - t0) / 1000000 + " ms, read "
+                    + (t2 - t1) / 1000000 + " ms; .bin " + bin.length() / 1024 + " KB, write "
+                    + (t3 - t2) / 1000000 + " ms, read " + (t4 - t3) / 1000000 + " ms; equal "
+                    + sameCorpus(corpus, serCorpus) + " " + sameCorpus(corpus, binCorpus));
+        }
+    }
+
+    /**
+     * Check whether two corpora contain the same documents, keywords and DF.
+     * <p>
+     * @param c1 One corpus.
+     * @param c2 Another corpus.
+     * @return True if they are the same.
+     */
+    private static boolean sameCorpus(Corpus c1, Corpus c2) {
+        if (!c1.docs.keySet().equals(c2.docs.keySet()) || !c1.DF.equals(c2.DF)) {
+            return false;
+        }
+        for (Document d1 : c1.docs.values()) {
+            Document d2 = c2.docs.get(d1.id);
+            if (!d1.publishTime.equals(d2.publishTime) || !d1.segContent.equals(d2.segContent)
+                    || !d1.segTitle.equals(d2.segTitle) || !d1.urls.equals(d2.urls)
+                    || !d1.titleKeywords.equals(d2.titleKeywords) || !d1.mainKeywords.equals(d2.mainKeywords)
+                    || d1.keywords.size() != d2.keywords.size()) {
+                return false;
+            }
+            for (Keyword k1 : d1.keywords.values()) {
+                Keyword k2 = d2.keywords.get(k1.baseForm);
+                if (k2 == null || k1.tf != k2.tf || !k1.word.equals(k2.word) || k1.termId != k2.termId) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+}
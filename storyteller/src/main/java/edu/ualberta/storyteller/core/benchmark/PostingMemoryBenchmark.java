@@ -0,0 +1,115 @@
+package edu.ualberta.storyteller.core.benchmark;
+
+import edu.ualberta.storyteller.core.dataloader.*;
+import edu.ualberta.storyteller.core.keywordorganizer.PostingList;
+import edu.ualberta.storyteller.core.keywordorganizer.PostingStore;
+import java.util.ArrayList;
+import java.util.HashMap;
+
+/**
+ * Compare the memory of keyword posting lists against a map of documents per keyword.
+ * <p>
+ * Usage: PostingMemoryBenchmark [numDocs] [keywordsPerDoc] [vocabularySize]
+ * <p>
+ * @author Bang Liu <bang3@ualberta.ca>
+ * @version 2017.1219
+ */
+public class PostingMemoryBenchmark {
+
+    /**
+     * Run the benchmark.
+     * @param args Program arguments.
+     * @throws Exception
+     */
+    public static void main(String args[]) throws Exception {
+        int numDocs = args.length > 0 ? Integer.parseInt(args[0]) : 500000;
+        int keywordsPerDoc = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+        int vocabularySize = args.length > 2 ? Integer.parseInt(args[2]) : 50000;
+
+        Corpus corpus = SyntheticCorpus.generate(numDocs, keywordsPerDoc, vocabularySize, 1);
+        long numKeywords = 0;
+        for (Document d : corpus.docs.values()) {
+            numKeywords += d.keywords.size();
+        }
+        System.out.println(corpus.docs.size() + " documents, " + corpus.DF.size() + " distinct keywords, "
+                + numKeywords + " postings.");
+
+        // map of documents per keyword
+        long before = usedMemory();
+        HashMap<String, HashMap<String, Document>> maps = new HashMap<>();
+        for (Document d : corpus.docs.values()) {
+            for (Keyword k : d.keywords.values()) {
+                maps.computeIfAbsent(k.baseForm, key -> new HashMap<>()).put(d.id, d);
+            }
+        }
+        long mapBytes = usedMemory() - before;
+        long t0 = System.nanoTime();
+        long mapCount = 0;
+        for (HashMap<String, Document> docs : maps.values()) {
+            for (Document d : docs.values()) {
+                mapCount += d.keywords.size();
+            }
+        }
+        long t1 = System.nanoTime();
+        maps = null;
+
+        // posting lists
+        before = usedMemory();
+        PostingStore store = new PostingStore(corpus.docs.size());
+        HashMap<String, PostingList> postings = new HashMap<>();
+        for (Document d : corpus.docs.values()) {
+            int ordinal = store.add(d);
+            for (Keyword k : d.keywords.values()) {
+                postings.computeIfAbsent(k.baseForm, key -> new PostingList(store)).add(ordinal);
+            }
+        }
+        int numBitmaps = 0;
+        for (PostingList p : postings.values()) {
+            p.seal();
+            if (p.isBitmap()) {
+                ++numBitmaps;
+            }
+        }
+        long postingBytes = usedMemory() - before;
+        long[] postingCount = new long[1];
+        long t2 = System.nanoTime();
+        for (PostingList p : postings.values()) {
+            p.forEachDocument(d -> postingCount[0] += d.keywords.size());
+        }
+        long t3 = System.nanoTime();
+
+        // empty document maps that every keyword used to carry
+        ArrayList<HashMap<String, Document>> empty = new ArrayList<>();
+        before = usedMemory();
+        for (long i = 0; i < numKeywords; ++i) {
+            empty.add(new HashMap<>());
+        }
+        long emptyBytes = usedMemory() - before - 4L * numKeywords;
+
+        System.out.println("Map per keyword: " + mapBytes / (1 << 20) + " MB, "
+                + String.format("%.1f", (double) mapBytes / numKeywords) + " bytes per posting, iterate "
+                + (t1 - t0) / 1000000 + " ms.");
+        System.out.println("Posting lists: " + postingBytes / (1 << 20) + " MB, "
+                + String.format("%.1f", (double) postingBytes / numKeywords) + " bytes per posting, iterate "
+                + (t3 - t2) / 1000000 + " ms, " + numBitmaps + " bitmaps.");
+        System.out.println("Empty document maps of " + empty.size() + " corpus keywords: "
+                + emptyBytes / (1 << 20) + " MB.");
+        System.out.println("Same postings: " + (mapCount == postingCount[0]));
+    }
+
+    /**
+     * Get used heap memory after garbage collection.
+     * <p>
+     * @return Used bytes.
+     * @throws InterruptedException
+     */
+    private static long usedMemory() throws InterruptedException {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; ++i) {
+            System.gc();
+            Thread.sleep(100);
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+}
@@ -0,0 +1,132 @@
+package edu.ualberta.storyteller.core.benchmark;
+
+import edu.ualberta.storyteller.core.dataloader.*;
+import edu.ualberta.storyteller.core.eventdetector.FeatureExtractor;
+import edu.ualberta.storyteller.core.util.NlpUtils;
+import java.util.ArrayList;
+import java.util.HashMap;
+
+/**
+ * Compare document similarity kernels on sparse vectors against the HashMap based kernels.
+ * <p>
+ * Usage: SimilarityBenchmark [numDocs] [keywordsPerDoc] [vocabularySize]
+ * <p>
+ * @author Bang Liu <bang3@ualberta.ca>
+ * @version 2017.1219
+ */
+public class SimilarityBenchmark {
+
+    /**
+     * Run the benchmark.
+     * @param args Program arguments.
+     * @throws Exception
+     */
+    public static void main(String args[]) throws Exception {
+        int numDocs = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+        int keywordsPerDoc = args.length > 1 ? Integer.parseInt(args[1]) : 100;
+        int vocabularySize = args.length > 2 ? Integer.parseInt(args[2]) : 20000;
+
+        Corpus corpus = SyntheticCorpus.generate(numDocs, keywordsPerDoc, vocabularySize, 1);
+        ArrayList<Document> docs = new ArrayList<>(corpus.docs.values());
+        System.out.println(docs.size() + " documents, " + corpus.DF.size() + " distinct keywords.");
+
+        // check both kernels agree
+        double maxDiff = 0;
+        for (int i = 0; i + 1 < docs.size(); i += 2) {
+            Document d1 = docs.get(i);
+            Document d2 = docs.get(i + 1);
+            maxDiff = Math.max(maxDiff, Math.abs(FeatureExtractor.cosineSimilarityByTFIDF(d1, d2, corpus.DF, numDocs)
+                    - hashMapCosineSimilarityByTFIDF(d1, d2, corpus.DF, numDocs)));
+        }
+        System.out.println("Maximum difference between kernels: " + maxDiff);
+
+        for (int round = 0; round < 5; ++round) {
+            long t0 = System.nanoTime();
+            double s1 = 0;
+            for (Document d1 : docs) {
+                for (int j = 0; j < 50; ++j) {
+                    s1 += hashMapCosineSimilarityByTF(d1, docs.get(j));
+                }
+            }
+            long t1 = System.nanoTime();
+            double s2 = 0;
+            for (Document d1 : docs) {
+                for (int j = 0; j < 50; ++j) {
+                    s2 += FeatureExtractor.cosineSimilarityByTF(d1, docs.get(j));
+                }
+            }
+            long t2 = System.nanoTime();
+            double s3 = 0;
+            for (Document d1 : docs) {
+                for (int j = 0; j < 50; ++j) {
+                    s3 += hashMapCosineSimilarityByTFIDF(d1, docs.get(j), corpus.DF, numDocs);
+                }
+            }
+            long t3 = System.nanoTime();
+            double s4 = 0;
+            for (Document d1 : docs) {
+                for (int j = 0; j < 50; ++j) {
+                    s4 += FeatureExtractor.cosineSimilarityByTFIDF(d1, docs.get(j), corpus.DF, numDocs);
+                }
+            }
+            long t4 = System.nanoTime();
+
+            int ops = docs.size() * 50;
+            System.out.println("Round " + round
+                    + ": TF HashMap " + (t1 - t0) / ops + " ns/op, TF SparseVector " + (t2 - t1) / ops + " ns/op"
+                    + ", TFIDF HashMap " + (t3 - t2) / ops + " ns/op, TFIDF SparseVector " + (t4 - t3) / ops
+                    + " ns/op (checksum " + (float) (s1 - s2 + s3 - s4) + ")");
+        }
+    }
+
+    /**
+     * TF cosine similarity by probing the other document's keyword map.
+     */
+    private static double hashMapCosineSimilarityByTF(Document d1, Document d2) {
+        double sim = 0;
+        for (Keyword k1 : d1.keywords.values()) {
+            if (d2.keywords.containsKey(k1.baseForm)) {
+                sim += k1.tf * d2.keywords.get(k1.baseForm).tf;
+            }
+        }
+        if (d1.tfVectorSize < 0) {
+            d1.calcTFVectorSize();
+        }
+        if (d2.tfVectorSize < 0) {
+            d2.calcTFVectorSize();
+        }
+        if (d1.tfVectorSize == 0 || d2.tfVectorSize == 0) {
+            return 0;
+        }
+        return sim / d1.tfVectorSize / d2.tfVectorSize;
+    }
+
+    /**
+     * TF-IDF cosine similarity by probing the other document's keyword map.
+     */
+    private static double hashMapCosineSimilarityByTFIDF(Document d1,
+                                                         Document d2,
+                                                         HashMap<String, Double> DF,
+                                                         int docSize) {
+        double sim = 0;
+        for (Keyword k1 : d1.keywords.values()) {
+            if (d2.keywords.containsKey(k1.baseForm)) {
+                Double df = DF.get(k1.baseForm);
+                double tf1 = k1.tf;
+                double tf2 = d2.keywords.get(k1.baseForm).tf;
+                sim += NlpUtils.tfidf(tf1, NlpUtils.idf(df, docSize)) * NlpUtils.tfidf(tf2, NlpUtils.idf(df, docSize));
+            }
+        }
+        if (d1.tfidfVectorSize < 0) {
+            d1.calcTFIDFVectorSize(DF, docSize);
+        }
+        if (d2.tfidfVectorSize < 0) {
+            d2.calcTFIDFVectorSize(DF, docSize);
+        }
+        if (d1.tfidfVectorSize == 0 || d2.tfidfVectorSize == 0) {
+            return 0;
+        }
+        return sim / d1.tfidfVectorSize / d2.tfidfVectorSize;
+    }
+
+}
@@ -0,0 +1,56 @@
+package edu.ualberta.storyteller.core.benchmark;
+
+import edu.ualberta.storyteller.core.dataloader.*;
+import java.sql.Timestamp;
+import java.util.Random;
+
+/**
+ * This class generates random corpora for benchmarks.
+ * <p>
+ * @author Bang Liu <bang3@ualberta.ca>
+ * @version 2017.1219
+ */
+public class SyntheticCorpus {
+
+    /**
+     * Create a corpus of random documents. Keywords follow a Zipf-like distribution.
+     * <p>
+     * @param numDocs Number of documents.
+     * @param keywordsPerDoc Number of keyword tokens per document.
+     * @param vocabularySize Number of distinct keywords.
+     * @param seed Random seed.
+     * @return A corpus.
+     */
+    public static Corpus generate(int numDocs, int keywordsPerDoc, int vocabularySize, long seed) {
+        Random random = new Random(seed);
+        Corpus corpus = new Corpus();
+        for (int i = 0; i < numDocs; ++i) {
+            Document d = new Document("doc" + i);
+            d.publishTime = new Timestamp(1500000000000L + random.nextInt(86400) * 1000L);
+            d.urls.add("http://news.example.com/" + i);
+            d.transformedUrls.add("http://news.example.com/" + i);
+            d.topic = String.valueOf(100 + random.nextInt(30));
+            StringBuilder content = new StringBuilder();
+            for (int j = 0; j < keywordsPerDoc; ++j) {
+                String word = "w" + (int) Math.pow(vocabularySize, random.nextDouble());
+                content.append(word).append(' ');
+                if (j < 8) {
+                    d.titleKeywords.add(word);
+                }
+                Keyword k = d.keywords.get(word);
+                if (k == null) {
+                    k = new Keyword(word, word, 1, 1);
+                    d.keywords.put(k.baseForm, k);
+                } else {
+                    k.tf++;
+                }
+            }
+            d.segContent = content.toString();
+            d.segTitle = String.join(" ", d.titleKeywords);
+            d.title = d.segTitle.replaceAll("\\s+", "");
+            corpus.addDocument(d);
+        }
+        return corpus;
+    }
+
+}
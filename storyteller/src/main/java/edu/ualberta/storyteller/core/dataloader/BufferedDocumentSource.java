@@ -0,0 +1,66 @@
+package edu.ualberta.storyteller.core.dataloader;
+
+import java.io.IOException;
+
+/**
+ * A document source that reads another source on a background thread.
+ * <p>
+ * Documents are handed over through a bounded queue, so reading and parsing input overlaps with
+ * whatever the consumer does with the documents, and the reader waits when it gets too far ahead.
+ * <p>
+ * @author Bang Liu <bang3@ualberta.ca>
+ * @version 2017.1219
+ */
+public class BufferedDocumentSource implements DocumentSource {
+
+    /**
+     * Documents read ahead.
+     */
+    private final QueueDocumentSource queue;
+
+    /**
+     * Background thread that reads the underlying source.
+     */
+    private final Thread reader;
+
+    /**
+     * Parametric constructor. Start reading the source.
+     * <p>
+     * @param source The source to read. It is closed when it is exhausted or this source is closed.
+     * @param capacity Maximum number of documents read ahead.
+     */
+    public BufferedDocumentSource(DocumentSource source, int capacity) {
+        queue = new QueueDocumentSource(capacity);
+        reader = new Thread(() -> {
+            try (DocumentSource s = source) {
+                Document d;
+                while ((d = s.next()) != null) {
+                    queue.put(d);
+                }
+                queue.finish();
+            } catch (InterruptedException e) {
+                // closed by the consumer
+            } catch (Throwable e) {
+                try {
+                    queue.fail(e);
+                } catch (InterruptedException ie) {
+                    // closed by the consumer
+                }
+            }
+        }, "document-source-reader");
+        reader.setDaemon(true);
+        reader.start();
+    }
+
+    @Override
+    public Document next() throws IOException {
+        return queue.next();
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.interrupt();
+        queue.close();
+    }
+
+}
@@ -0,0 +1,167 @@
+package edu.ualberta.storyteller.core.dataloader;
+
+import edu.ualberta.storyteller.core.parameter.Parameters;
+import java.sql.Timestamp;
+import java.util.Arrays;
+import java.util.HashSet;
+
+/**
+ * This class parses lines of the pipe-delimited Chinese news data set.
+ * <p>
+ * Documents are identified by their whitespace-stripped title, so copies of the same
+ * news have the same id.
+ * <p>
+ * @author Bang Liu <bang3@ualberta.ca>
+ * @version 2017.1219
+ */
+public class ChineseNewsParser implements DocumentParser {
+
+    /**
+     * Column indices.
+     */
+    private final NewsColumns cols;
+
+    /**
+     * Document language.
+     */
+    private final String language;
+
+    /**
+     * Set of stop words.
+     */
+    private final HashSet<String> stopwords;
+
+    /**
+     * Weight to boost up main keywords. It is usually >= 1.
+     */
+    private final double boostRateMainKeyword;
+
+    /**
+     * Weight to boost normal keywords.
+     */
+    private final double boostRateNormalKeyword;
+
+    /**
+     * Weight to boost normal words.
+     */
+    private final double boostRateNormalWord;
+
+    /**
+     * Parametric constructor.
+     * <p>
+     * @param header Header line of the input file.
+     * @param parameters Configuration.
+     */
+    public ChineseNewsParser(String header, Parameters parameters) {
+        this(header, parameters.language, parameters.stopwords, parameters.boostRateMainKeyword,
+                parameters.boostRateNormalKeyword, parameters.boostRateNormalWord);
+    }
+
+    /**
+     * Parametric constructor.
+     * <p>
+     * @param header Header line of the input file.
+     * @param language Document language.
+     * @param stopwords Set of stop words.
+     * @param boostRateMainKeyword Weight to boost up main keywords. It is usually >= 1.
+     * @param boostRateNormalKeyword Weight to boost normal keywords.
+     * @param boostRateNormalWord Weight to boost normal words.
+     */
+    public ChineseNewsParser(String header,
+                             String language,
+                             HashSet<String> stopwords,
+                             double boostRateMainKeyword,
+                             double boostRateNormalKeyword,
+                             double boostRateNormalWord) {
+        this.cols = new NewsColumns(header);
+        this.language = language;
+        this.stopwords = stopwords;
+        this.boostRateMainKeyword = boostRateMainKeyword;
+        this.boostRateNormalKeyword = boostRateNormalKeyword;
+        this.boostRateNormalWord = boostRateNormalWord;
+    }
+
+    @Override
+    public Document parse(String line) {
+        // get document information from parsed line
+        String[] tokens = line.split("\\|");
+
+        // skip bad rows that contains some empty column value.
+        if (tokens.length != cols.numCols) {
+            return null;
+        }
+
+        // read different parts of a document from a line
+        // NOTICE: We use title as id to filter same documents.
+        String id = tokens[cols.idxOfSegTitle].replaceAll("\\s+","");
+        String segTitle = tokens[cols.idxOfSegTitle];
+        String segContent = tokens[cols.idxOfSegContent];
+        String topic = tokens[cols.idxOfTopic];
+        String timestamp = tokens[cols.idxOfTimestamp];
+        HashSet<String> allKeywords = new HashSet<>(Arrays.asList(tokens[cols.idxOfAllKeywords].split(",")));
+        String[] mainKeywords = tokens[cols.idxOfMainKeywords].split(",");
+
+        String url;
+        String from;
+        if (cols.idxOfUrl != -1) {
+            url = tokens[cols.idxOfUrl];
+        } else {
+            url = "www.fake-url.com";
+        }
+        if (cols.idxOfFrom != -1) {
+            from = tokens[cols.idxOfFrom];
+        } else {
+            from = "fake-from";
+        }
+
+        if (timestamp.equals("time")) {
+            return null;  // TODO: notice, here we are filtering header like lines
+        }
+
+        // create document
+        Document d = new Document(id);
+        d.segTitle = segTitle;
+        d.title = id;
+        d.segContent = segContent;
+        d.topic = topic;
+        d.publishTime = new Timestamp((long) Double.parseDouble(timestamp) * 1000);
+        d.language = language;
+
+        String[] kws = d.segTitle.split("\\s+");
+        d.titleKeywords = new HashSet<>(Arrays.asList(kws));
+        d.titleKeywords.removeAll(stopwords);
+
+        d.mainKeywords = new HashSet<>(Arrays.asList(mainKeywords));
+
+        d.urls.add(url);
+        d.transformedUrls.add(url);
+        d.from = from;
+
+        // create document's keywords
+        String[] words = segContent.split("\\s+");
+        for (int j = 0; j < words.length; ++j) {
+            // handle different words
+            double tf = 0;
+            if (d.mainKeywords.contains(words[j])) {
+                tf = 1 * boostRateMainKeyword;
+            } else if (allKeywords.contains(words[j])) {
+                tf = 1 * boostRateNormalKeyword;
+            } else {
+                tf = 1 * boostRateNormalWord;
+            }
+
+            // add the word token as document's keyword or update existing keyword's tf
+            if (tf > 0 && words[j].length() > 0 && !stopwords.contains(words[j])) {
+                if (!d.keywords.containsKey(words[j])) {
+                    Keyword k = new Keyword(words[j], words[j], tf, 1);
+                    d.keywords.put(k.baseForm, k);
+                } else {
+                    d.keywords.get(words[j]).tf += tf;
+                }
+            }
+        }
+
+        return d;
+    }
+
+}
@@ -1,9 +1,10 @@
 package edu.ualberta.storyteller.core.dataloader;
 
-import com.google.common.collect.Maps;
 import java.io.Serializable;
 import java.sql.Timestamp;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.HashMap;
 
 /**
@@ -14,8 +15,14 @@ import java.util.HashMap;
  */
 public class Corpus implements Serializable {
 
+    /**
+     * Serialization version, fixed so that history corpora saved by earlier runs still load.
+     */
+    private static final long serialVersionUID = 3558524859163989208L;
+
     /**
      * Documents contained in this corpus.
+     * Add or remove documents by addDocument() and removeDocument() so that DF stays up to date.
      */
     public HashMap<String, Document> docs = new HashMap<>();
 
@@ -25,20 +32,158 @@ public class Corpus implements Serializable {
     public HashMap<String, Double> DF = new HashMap<>();
 
     /**
-     * Recalculate DF of this corpus.
+     * Words' DF indexed by term id. It mirrors DF and is rebuilt on demand after deserialization.
+     */
+    private transient double[] termDF;
+
+    /**
+     * Recalculate DF of this corpus from scratch.
+     * It is only needed after docs has been changed directly instead of by addDocument() or removeDocument().
      */
     public void updateDF() {
-        DF.clear();
+        DF = computeDF();
+        termDF = null;
+    }
+
+    /**
+     * Count DF over all documents in this corpus.
+     * <p>
+     * @return The map of (word, DF).
+     */
+    private HashMap<String, Double> computeDF() {
+        HashMap<String, Double> df = new HashMap<>();
         for (Document d : docs.values()) {
             for (Keyword k : d.keywords.values()) {
-                if (DF.containsKey(k.baseForm)) {
-                    DF.put(k.baseForm, DF.get(k.baseForm) + 1);
-                }
-                else {
-                    DF.put(k.baseForm, 1.0);
+                df.merge(k.baseForm, 1.0, Double::sum);
+            }
+        }
+        return df;
+    }
+
+    /**
+     * Check whether the incrementally maintained DF equals a full recalculation.
+     * <p>
+     * @return True if DF and the DF indexed by term id are both consistent with docs.
+     */
+    public boolean verifyDF() {
+        HashMap<String, Double> df = computeDF();
+        if (!df.equals(DF)) {
+            return false;
+        }
+        TermDictionary dictionary = TermDictionary.getInstance();
+        for (int id = 0; id < dictionary.size(); ++id) {
+            Double v = df.get(dictionary.getTerm(id));
+            if (getDF(id) != (v == null ? 0 : v)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Add a document into this corpus and update DF.
+     * A document with the same id is replaced.
+     * <p>
+     * @param d The document. Its keywords should not change while it is in this corpus.
+     */
+    public void addDocument(Document d) {
+        Document old = docs.put(d.id, d);
+        if (old != null) {
+            subtractDF(old);
+        }
+        double[] df = getTermDF();
+        for (Keyword k : d.keywords.values()) {
+            DF.merge(k.baseForm, 1.0, Double::sum);
+            if (k.termId >= df.length) {
+                df = Arrays.copyOf(df, Math.max(k.termId + 1, TermDictionary.getInstance().size()));
+                termDF = df;
+            }
+            df[k.termId]++;
+        }
+    }
+
+    /**
+     * Remove a document from this corpus and update DF.
+     * <p>
+     * @param id Document id.
+     * @return The removed document, or null if this corpus does not contain it.
+     */
+    public Document removeDocument(String id) {
+        Document d = docs.remove(id);
+        if (d != null) {
+            subtractDF(d);
+        }
+        return d;
+    }
+
+    /**
+     * Remove a batch of documents whose DF has already been summed up, e.g., an expired time bucket.
+     * DF is updated once per distinct word instead of once per document keyword.
+     * <p>
+     * @param ids Ids of the removed documents.
+     * @param removedDF The DF of the removed documents.
+     */
+    protected void removeDocuments(Collection<String> ids, HashMap<String, Double> removedDF) {
+        for (String id : ids) {
+            docs.remove(id);
+        }
+        double[] df = getTermDF();
+        TermDictionary dictionary = TermDictionary.getInstance();
+        for (HashMap.Entry<String, Double> entry : removedDF.entrySet()) {
+            double v = entry.getValue();
+            DF.computeIfPresent(entry.getKey(), (word, old) -> old > v ? old - v : null);
+            int termId = dictionary.indexOf(entry.getKey());
+            if (termId >= 0 && termId < df.length) {
+                df[termId] = Math.max(0, df[termId] - v);
+            }
+        }
+    }
+
+    /**
+     * Subtract a removed document's keywords from DF. Words whose DF reaches zero are dropped.
+     * <p>
+     * @param d The removed document.
+     */
+    private void subtractDF(Document d) {
+        double[] df = getTermDF();
+        for (Keyword k : d.keywords.values()) {
+            DF.computeIfPresent(k.baseForm, (word, v) -> v > 1 ? v - 1 : null);
+            if (k.termId < df.length && df[k.termId] > 0) {
+                df[k.termId]--;
+            }
+        }
+    }
+
+    /**
+     * Get a word's DF by its term id.
+     * <p>
+     * @param termId Term id in the shared term dictionary.
+     * @return The word's DF. 0 if no document in this corpus contains it.
+     */
+    public double getDF(int termId) {
+        double[] df = getTermDF();
+        return termId < df.length ? df[termId] : 0;
+    }
+
+    /**
+     * Get DF indexed by term id. It is rebuilt from DF if needed, e.g., after deserialization.
+     * <p>
+     * @return DF array. Term ids beyond its length have DF 0.
+     */
+    private double[] getTermDF() {
+        if (termDF == null) {
+            TermDictionary dictionary = TermDictionary.getInstance();
+            double[] df = new double[dictionary.size()];
+            for (HashMap.Entry<String, Double> entry : DF.entrySet()) {
+                int id = dictionary.getId(entry.getKey());
+                if (id >= df.length) {
+                    df = Arrays.copyOf(df, dictionary.size());
                 }
+                df[id] = entry.getValue();
             }
+            termDF = df;
         }
+        return termDF;
     }
 
     /**
@@ -47,8 +192,11 @@ public class Corpus implements Serializable {
      * @param corpus Merged corpus.
      */
     public void merge(Corpus corpus) {
-        docs.putAll(Maps.difference(corpus.docs, docs).entriesOnlyOnLeft());
-        updateDF();
+        for (Document d : corpus.docs.values()) {
+            if (!docs.containsKey(d.id)) {
+                addDocument(d);
+            }
+        }
     }
 
     /**
@@ -113,9 +261,8 @@ public class Corpus implements Serializable {
             }
         }
         for (String id : toRemove) {
-            docs.remove(id);
+            removeDocument(id);
         }
-        updateDF();
     }
 
     /**
@@ -132,9 +279,8 @@ public class Corpus implements Serializable {
             }
         }
         for (String id : toRemove) {
-            docs.remove(id);
+            removeDocument(id);
         }
-        updateDF();
     }
 
 }
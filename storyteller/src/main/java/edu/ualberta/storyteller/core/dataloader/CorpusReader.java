@@ -0,0 +1,320 @@
+package edu.ualberta.storyteller.core.dataloader;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.sql.Timestamp;
+import java.util.Collection;
+import java.util.HashSet;
+
+/**
+ * This class reads a corpus from a binary corpus snapshot written by CorpusWriter.
+ * <p>
+ * The file is read through positional channel reads into three buffers: one for the sections read in
+ * order, one for the string offsets and one for the string heap, so the buffers rarely need refilling,
+ * snapshots bigger than 2GB can be read as well, and the file can be rewritten as soon as it has been
+ * read. Each distinct string is decoded once and shared by all documents that refer to it.
+ * <p>
+ * @author Bang Liu <bang3@ualberta.ca>
+ * @version 2017.1219
+ */
+public class CorpusReader {
+
+    /**
+     * Size of a read buffer.
+     */
+    private static final int BUFFER_BYTES = 1 << 16;
+
+    /**
+     * The snapshot file.
+     */
+    private final FileChannel channel;
+
+    /**
+     * Buffer of the sections read in order.
+     */
+    private final Window sequential = new Window();
+
+    /**
+     * Buffer of the string offsets.
+     */
+    private final Window offsets = new Window();
+
+    /**
+     * Buffer of the string heap.
+     */
+    private final Window heap = new Window();
+
+    /**
+     * Current read position in the file.
+     */
+    private long position;
+
+    /**
+     * Position of the string heap.
+     */
+    private long stringHeapOffset;
+
+    /**
+     * Position of the string offsets.
+     */
+    private long stringOffsetsOffset;
+
+    /**
+     * Decoded strings indexed by string index.
+     */
+    private String[] strings;
+
+    /**
+     * Canonical strings of terms indexed by term index.
+     */
+    private String[] terms;
+
+    /**
+     * Parametric constructor.
+     * <p>
+     * @param channel The open snapshot file.
+     */
+    private CorpusReader(FileChannel channel) {
+        this.channel = channel;
+    }
+
+    /**
+     * Read a corpus from a snapshot file. The file is closed before returning.
+     * <p>
+     * @param file Snapshot file.
+     * @return The corpus. It is a WindowedCorpus with the bucket span of the file if a WindowedCorpus was written.
+     * @throws IOException If the file is not a snapshot or its version is not supported.
+     */
+    public static Corpus read(File file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            return new CorpusReader(channel).readCorpus(file);
+        }
+    }
+
+    /**
+     * A buffered range of the file.
+     */
+    private class Window {
+
+        /**
+         * Bytes of the range. It is empty until it is first filled.
+         */
+        private ByteBuffer buffer = (ByteBuffer) ByteBuffer.allocate(BUFFER_BYTES).limit(0);
+
+        /**
+         * File position of the first byte of the range.
+         */
+        private long start = 0;
+
+        /**
+         * Make sure the range covers some bytes, refilling it from their first byte if it does not.
+         * <p>
+         * @param pos File position of the bytes.
+         * @param size Number of bytes.
+         * @return Index of the bytes in the buffer.
+         * @throws IOException If the file ends before the bytes.
+         */
+        int at(long pos, int size) throws IOException {
+            if (pos < start || pos + size > start + buffer.limit()) {
+                if (size > buffer.capacity()) {
+                    buffer = ByteBuffer.allocate(size);
+                }
+                buffer.clear();
+                while (buffer.hasRemaining()) {
+                    if (channel.read(buffer, pos + buffer.position()) < 0) {
+                        break;
+                    }
+                }
+                buffer.flip();
+                start = pos;
+                if (buffer.limit() < size) {
+                    throw new EOFException();
+                }
+            }
+            return (int) (pos - start);
+        }
+
+    }
+
+    /**
+     * Read the whole corpus.
+     * <p>
+     * @param file Snapshot file, only used in error messages.
+     * @return The corpus.
+     * @throws IOException
+     */
+    private Corpus readCorpus(File file) throws IOException {
+        if (channel.size() < CorpusWriter.HEADER_SIZE || readInt() != CorpusWriter.MAGIC) {
+            throw new IOException(file + " is not a corpus snapshot.");
+        }
+        int version = readInt();
+        if (version != CorpusWriter.VERSION) {
+            throw new IOException(file + " has unsupported corpus snapshot version " + version + ".");
+        }
+        int bucketHours = readInt();
+        int numDocs = readInt();
+        int numTerms = readInt();
+        int numStrings = readInt();
+        long docsOffset = readLong();
+        long termsOffset = readLong();
+        stringHeapOffset = readLong();
+        stringOffsetsOffset = readLong();
+        strings = new String[numStrings];
+
+        // term table
+        TermDictionary dictionary = TermDictionary.getInstance();
+        terms = new String[numTerms];
+        position = termsOffset;
+        int[] termStrings = new int[numTerms];
+        for (int i = 0; i < numTerms; ++i) {
+            termStrings[i] = readInt();
+        }
+        for (int i = 0; i < numTerms; ++i) {
+            terms[i] = dictionary.canonical(string(termStrings[i]));
+        }
+
+        // documents
+        Corpus corpus = bucketHours > 0 ? new WindowedCorpus(bucketHours) : new Corpus();
+        position = docsOffset;
+        for (int i = 0; i < numDocs; ++i) {
+            corpus.addDocument(readDocument());
+        }
+        return corpus;
+    }
+
+    /**
+     * Decode a document record at the current position.
+     * <p>
+     * @return The document.
+     * @throws IOException
+     */
+    private Document readDocument() throws IOException {
+        Document d = new Document(string(readInt()));
+        d.from = string(readInt());
+        d.title = string(readInt());
+        d.segTitle = string(readInt());
+        d.segContent = string(readInt());
+        d.topic = string(readInt());
+        d.language = string(readInt());
+        d.lda = string(readInt());
+        d.publishTime = new Timestamp(readLong());
+        d.processed = readByte() != 0;
+        d.tfidfVectorSizeWithKeygraph = readDouble();
+        d.tfidfVectorSize = readDouble();
+        d.tfVectorSize = readDouble();
+        readStrings(d.urls);
+        readStrings(d.transformedUrls);
+        readStrings(d.mainKeywords);
+        readStrings(d.titleKeywords);
+        int numNer = readInt();
+        for (int i = 0; i < numNer; ++i) {
+            String type = string(readInt());
+            HashSet<String> values = new HashSet<>();
+            readStrings(values);
+            d.titleNer.put(type, values);
+        }
+
+        int numKeywords = readInt();
+        int[] termIndexes = new int[numKeywords];
+        for (int i = 0; i < numKeywords; ++i) {
+            termIndexes[i] = readInt();
+        }
+        for (int i = 0; i < numKeywords; ++i) {
+            String baseForm = terms[termIndexes[i]];
+            int wordIndex = readInt();
+            String word = wordIndex == CorpusWriter.NULL ? baseForm : string(wordIndex);
+            double tf = readDouble();
+            double df = readDouble();
+            d.keywords.put(baseForm, new Keyword(baseForm, word, tf, df));
+        }
+        return d;
+    }
+
+    /**
+     * Decode a collection of strings at the current position.
+     * <p>
+     * @param values The collection to fill.
+     * @throws IOException
+     */
+    private void readStrings(Collection<String> values) throws IOException {
+        int n = readInt();
+        for (int i = 0; i < n; ++i) {
+            values.add(string(readInt()));
+        }
+    }
+
+    /**
+     * Get a string from the string heap. The current position is not changed.
+     * <p>
+     * @param index String index.
+     * @return The string, or null for CorpusWriter.NULL.
+     * @throws IOException
+     */
+    private String string(int index) throws IOException {
+        if (index == CorpusWriter.NULL) {
+            return null;
+        }
+        String s = strings[index];
+        if (s == null) {
+            int i = offsets.at(stringOffsetsOffset + 8L * index, 16);
+            long start = offsets.buffer.getLong(i);
+            int length = (int) (offsets.buffer.getLong(i + 8) - start);
+            int j = heap.at(stringHeapOffset + start, length);
+            s = new String(heap.buffer.array(), j, length, StandardCharsets.UTF_8);
+            strings[index] = s;
+        }
+        return s;
+    }
+
+    /**
+     * Read a byte at the current position.
+     * <p>
+     * @return The byte.
+     * @throws IOException
+     */
+    private byte readByte() throws IOException {
+        byte v = sequential.buffer.get(sequential.at(position, 1));
+        position += 1;
+        return v;
+    }
+
+    /**
+     * Read an int at the current position.
+     * <p>
+     * @return The int.
+     * @throws IOException
+     */
+    private int readInt() throws IOException {
+        int v = sequential.buffer.getInt(sequential.at(position, 4));
+        position += 4;
+        return v;
+    }
+
+    /**
+     * Read a long at the current position.
+     * <p>
+     * @return The long.
+     * @throws IOException
+     */
+    private long readLong() throws IOException {
+        long v = sequential.buffer.getLong(sequential.at(position, 8));
+        position += 8;
+        return v;
+    }
+
+    /**
+     * Read a double at the current position.
+     * <p>
+     * @return The double.
+     * @throws IOException
+     */
+    private double readDouble() throws IOException {
+        return Double.longBitsToDouble(readLong());
+    }
+
+}
@@ -0,0 +1,264 @@
+package edu.ualberta.storyteller.core.dataloader;
+
+import com.google.common.io.CountingOutputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+
+/**
+ * This class writes a corpus into the binary corpus snapshot format.
+ * <p>
+ * A snapshot file consists of the following sections. All numbers are big-endian.
+ * <ul>
+ * <li>Header: magic, version, bucket hours (0 for a plain corpus), number of documents, terms
+ * and strings, followed by the offsets of the sections below.</li>
+ * <li>Documents: one record per document. Timestamps are stored as longs, so every document needs a
+ * publish time, text fields as string
+ * indexes, and keywords as a sparse vector of term indexes in ascending order with their tf and df.</li>
+ * <li>Term table: for each term, the index of its string in the string heap. Documents refer to
+ * terms by their index in this table.</li>
+ * <li>String heap: UTF-8 bytes of all distinct strings.</li>
+ * <li>String offsets: offset of each string in the string heap, plus the end offset of the heap.</li>
+ * </ul>
+ * Snapshots are read back by CorpusReader. A snapshot is written next to its file and then renamed
+ * over it, so the file is never left half written.
+ * <p>
+ * @author Bang Liu <bang3@ualberta.ca>
+ * @version 2017.1219
+ */
+public class CorpusWriter {
+
+    /**
+     * Magic number at the beginning of a snapshot file.
+     */
+    public static final int MAGIC = 0x53544350;
+
+    /**
+     * Current format version.
+     */
+    public static final int VERSION = 1;
+
+    /**
+     * Size of the header in bytes.
+     */
+    static final int HEADER_SIZE = 6 * 4 + 4 * 8;
+
+    /**
+     * String index of null strings.
+     */
+    static final int NULL = -1;
+
+    /**
+     * The map of (string, string index).
+     */
+    private final HashMap<String, Integer> stringIds = new HashMap<>();
+
+    /**
+     * Distinct strings indexed by string index.
+     */
+    private final ArrayList<String> strings = new ArrayList<>();
+
+    /**
+     * The map of (term, term index).
+     */
+    private final HashMap<String, Integer> termIds = new HashMap<>();
+
+    /**
+     * String indexes of terms indexed by term index.
+     */
+    private int[] termStrings = new int[1024];
+
+    /**
+     * Write a corpus into a snapshot file.
+     * <p>
+     * @param corpus The corpus to write.
+     * @param file Output file.
+     * @throws IOException If a document has no publish time, or writing fails.
+     */
+    public static void write(Corpus corpus, File file) throws IOException {
+        File tmp = new File(file.getPath() + ".tmp");
+        try {
+            new CorpusWriter().writeCorpus(corpus, tmp);
+            Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tmp.toPath());
+        }
+    }
+
+    /**
+     * Write a corpus into a snapshot file.
+     * <p>
+     * @param corpus The corpus to write.
+     * @param file Output file.
+     * @throws IOException
+     */
+    private void writeCorpus(Corpus corpus, File file) throws IOException {
+        int bucketHours = corpus instanceof WindowedCorpus ? ((WindowedCorpus) corpus).getBucketHours() : 0;
+        long docsOffset;
+        long termsOffset;
+        long stringHeapOffset;
+        long stringOffsetsOffset;
+        CountingOutputStream counter = new CountingOutputStream(new BufferedOutputStream(new FileOutputStream(file), 1 << 16));
+        try (DataOutputStream out = new DataOutputStream(counter)) {
+            // header placeholder
+            out.write(new byte[HEADER_SIZE]);
+
+            // documents
+            docsOffset = counter.getCount();
+            for (Document d : corpus.docs.values()) {
+                writeDocument(d, out);
+            }
+
+            // term table, which is complete once all documents are written
+            termsOffset = counter.getCount();
+            for (int i = 0; i < termIds.size(); ++i) {
+                out.writeInt(termStrings[i]);
+            }
+
+            // string heap followed by string offsets
+            long[] offsets = new long[strings.size() + 1];
+            stringHeapOffset = counter.getCount();
+            for (int i = 0; i < strings.size(); ++i) {
+                byte[] bytes = strings.get(i).getBytes(StandardCharsets.UTF_8);
+                out.write(bytes);
+                offsets[i + 1] = offsets[i] + bytes.length;
+            }
+            stringOffsetsOffset = counter.getCount();
+            for (long offset : offsets) {
+                out.writeLong(offset);
+            }
+        }
+
+        // fill in header
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.writeInt(MAGIC);
+            raf.writeInt(VERSION);
+            raf.writeInt(bucketHours);
+            raf.writeInt(corpus.docs.size());
+            raf.writeInt(termIds.size());
+            raf.writeInt(strings.size());
+            raf.writeLong(docsOffset);
+            raf.writeLong(termsOffset);
+            raf.writeLong(stringHeapOffset);
+            raf.writeLong(stringOffsetsOffset);
+        }
+    }
+
+    /**
+     * Encode a document record.
+     * <p>
+     * @param d The document.
+     * @param out Output stream.
+     * @throws IOException
+     */
+    private void writeDocument(Document d, DataOutputStream out) throws IOException {
+        if (d.publishTime == null) {
+            throw new IOException("Document " + d.id + " has no publish time.");
+        }
+        out.writeInt(stringId(d.id));
+        out.writeInt(stringId(d.from));
+        out.writeInt(stringId(d.title));
+        out.writeInt(stringId(d.segTitle));
+        out.writeInt(stringId(d.segContent));
+        out.writeInt(stringId(d.topic));
+        out.writeInt(stringId(d.language));
+        out.writeInt(stringId(d.lda));
+        out.writeLong(d.publishTime.getTime());
+        out.writeBoolean(d.processed);
+        out.writeDouble(d.tfidfVectorSizeWithKeygraph);
+        out.writeDouble(d.tfidfVectorSize);
+        out.writeDouble(d.tfVectorSize);
+        writeStrings(d.urls, out);
+        writeStrings(d.transformedUrls, out);
+        writeStrings(d.mainKeywords, out);
+        writeStrings(d.titleKeywords, out);
+        out.writeInt(d.titleNer.size());
+        for (HashMap.Entry<String, HashSet<String>> entry : d.titleNer.entrySet()) {
+            out.writeInt(stringId(entry.getKey()));
+            writeStrings(entry.getValue(), out);
+        }
+
+        // keywords as a sparse vector sorted by term index
+        Keyword[] keywords = d.keywords.values().toArray(new Keyword[0]);
+        long[] packed = new long[keywords.length];
+        for (int i = 0; i < keywords.length; ++i) {
+            packed[i] = ((long) termId(keywords[i].baseForm) << 32) | i;
+        }
+        Arrays.sort(packed);
+        out.writeInt(keywords.length);
+        for (long p : packed) {
+            out.writeInt((int) (p >>> 32));
+        }
+        for (long p : packed) {
+            Keyword k = keywords[(int) p];
+            out.writeInt(k.word.equals(k.baseForm) ? NULL : stringId(k.word));
+            out.writeDouble(k.tf);
+            out.writeDouble(k.df);
+        }
+    }
+
+    /**
+     * Encode a collection of strings as its size followed by string indexes.
+     * <p>
+     * @param values Strings.
+     * @param out Output stream.
+     * @throws IOException
+     */
+    private void writeStrings(Collection<String> values, DataOutputStream out) throws IOException {
+        out.writeInt(values.size());
+        for (String s : values) {
+            out.writeInt(stringId(s));
+        }
+    }
+
+    /**
+     * Get the index of a string in the string heap, adding it if needed.
+     * <p>
+     * @param s The string.
+     * @return String index, or NULL if s is null.
+     */
+    private int stringId(String s) {
+        if (s == null) {
+            return NULL;
+        }
+        Integer id = stringIds.get(s);
+        if (id == null) {
+            id = strings.size();
+            strings.add(s);
+            stringIds.put(s, id);
+        }
+        return id;
+    }
+
+    /**
+     * Get the index of a term in the term table, adding it if needed.
+     * <p>
+     * @param term The term.
+     * @return Term index.
+     */
+    private int termId(String term) {
+        Integer id = termIds.get(term);
+        if (id == null) {
+            id = termIds.size();
+            if (id == termStrings.length) {
+                termStrings = Arrays.copyOf(termStrings, id * 2);
+            }
+            termStrings[id] = stringId(term);
+            termIds.put(term, id);
+        }
+        return id;
+    }
+
+}
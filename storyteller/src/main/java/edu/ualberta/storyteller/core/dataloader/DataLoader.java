@@ -1,363 +1,421 @@
-package edu.ualberta.storyteller.core.dataloader;
-
-import edu.ualberta.storyteller.core.parameter.Parameters;
-import java.io.File;
-import java.io.BufferedReader;
-import java.io.FileReader;
-import java.util.Arrays;
-import java.util.HashSet;
-import java.util.StringTokenizer;
-import java.sql.Timestamp;
-
-/**
- * This class contains the data loader method
- * for different kinds of files.
- * <p>
- * @author Bang Liu <bang3@ualberta.ca>
- * @version 2017.1219
- */
-public class DataLoader {
-
-    /**
-     * Configuration.
-     */
-	protected Parameters parameters;
-
-    /**
-     * Parametric constructor.
-     * <p>
-     * @param parameters Configuration.
-     */
-	public DataLoader(Parameters parameters) {
-		this.parameters = parameters;
-	}
-
-    /**
-     * Transform input file into corpus.
-     * <p>
-     * @param inputFileName Input file name.
-     * @return A corpus.
-     */
-    public Corpus loadCorpus(String inputFileName) throws Exception  {
-        Corpus corpus = new Corpus();
-        switch (parameters.dataType) {
-            case "ChineseNews":
-                corpus = loadChineseNews(inputFileName,
-                        parameters.stopwords,
-                        parameters.boostRateMainKeyword,
-                        parameters.boostRateNormalKeyword,
-                        parameters.boostRateNormalWord);
-                break;
-            case "EnglishNews":
-                corpus = loadEnglishNews(inputFileName,
-                        parameters.stopwords,
-                        parameters.boostRateMainKeyword,
-                        parameters.boostRateNormalKeyword,
-                        parameters.boostRateNormalWord);
-                break;
-            default:
-                System.out.println("Unsupported input data type!");
-                System.exit(1);
-        }
-        return corpus;
-    }
-
-
-    /**
-     * Load Chinese news data set.
-     * <p>
-     * @param inputFileName File name.
-     * @param stopwords Set of stop words.
-     * @param boostRateMainKeyword Weight to boost up main keywords. It is usually >= 1.
-     * @param boostRateNormalKeyword Weight to boost normal keywords.
-     * @param boostRateNormalWord Weight to boost normal words.
-     */
-    public Corpus loadChineseNews(String inputFileName,
-                                  HashSet<String> stopwords,
-                                  double boostRateMainKeyword,
-                                  double boostRateNormalKeyword,
-                                  double boostRateNormalWord) throws Exception {  // TODO: delete parameters
-        // open input file, each line is a Chinese news document
-        File inputFile = new File(inputFileName);
-        BufferedReader in = new BufferedReader(new FileReader(inputFile));
-        Corpus corpus = new Corpus();
-        HashSet<String> corpusDocTitles = new HashSet<>();
-
-        // read header line and get index of different columns
-        System.out.println("Start loading: " + inputFileName);
-        String header = in.readLine();
-        String[] cols = header.split("\\|");
-        int numCols = cols.length;
-        int idxOfId = Arrays.asList(cols).indexOf("id");
-        int idxOfSegTitle = Arrays.asList(cols).indexOf("segment_title");
-        int idxOfSegContent = Arrays.asList(cols).indexOf("segment_content");
-        int idxOfTopic = Arrays.asList(cols).indexOf("1st_topic");
-        int idxOfTimestamp = Arrays.asList(cols).indexOf("time");
-        int idxOfAllKeywords = Arrays.asList(cols).indexOf("all_keywords");
-        int idxOfMainKeywords = Arrays.asList(cols).indexOf("main_keywords");
-        int idxOfUrl = Arrays.asList(cols).indexOf("url");
-        int idxOfFrom = Arrays.asList(cols).indexOf("from");
-        int idxOfDocId = Arrays.asList(cols).indexOf("id");  // TODO: I forgot why need this
-
-        // read each line to create documents
-        String line;
-        int i = 0;
-        while ((line = in.readLine()) != null) {
-            try {
-                // get document information from parsed line
-                String[] tokens = line.split("\\|");
-
-                // skip bad rows that contains some empty column value.
-                if (tokens.length != numCols) {
-                    continue;
-                }
-
-                // read different parts of a document from a line
-                // NOTICE: We use title as id to filter same documents.
-                String id = tokens[idxOfSegTitle].replaceAll("\\s+","");
-                // String id = tokens[idxOfId];
-                String docId = tokens[idxOfDocId];
-                String segTitle = tokens[idxOfSegTitle];
-                String segContent = tokens[idxOfSegContent];
-                String topic = tokens[idxOfTopic];
-                String timestamp = tokens[idxOfTimestamp];
-                String[] allKeywords = tokens[idxOfAllKeywords].split(",");
-                String[] mainKeywords = tokens[idxOfMainKeywords].split(",");
-
-                String url;
-                String from;
-                if (idxOfUrl != -1) {
-                    url = tokens[idxOfUrl];
-                } else {
-                    url = "www.fake-url.com";
-                }
-                if (idxOfFrom != -1) {
-                    from = tokens[idxOfFrom];
-                } else {
-                    from = "fake-from";
-                }
-
-                if (timestamp.equals("time")) {
-                    continue;  // TODO: notice, here we are filtering header like lines
-                }
-
-                // check whether already exist
-                if (corpus.docs.containsKey(id)) {
-                    corpus.docs.get(id).urls.add(url);
-                    corpus.docs.get(id).transformedUrls.add(url);
-                    continue;
-                }
-
-                // create document
-                Document d = new Document(id);
-                d.segTitle = segTitle;
-                d.title = segTitle.replaceAll("\\s+","");
-                if (corpusDocTitles.contains(d.title)) {
-                    corpus.docs.get(id).urls.add(url);
-                    corpus.docs.get(id).transformedUrls.add(url);
-                    continue;
-                }
-                else {
-                    corpusDocTitles.add(d.title);
-                }
-                d.segContent = segContent;
-                d.topic = topic;
-                d.publishTime = new Timestamp((long) Double.parseDouble(timestamp) * 1000);
-                d.language = parameters.language;
-
-                String[] kws = d.segTitle.split("\\s+");
-                d.titleKeywords = new HashSet<>(Arrays.asList(kws));
-                d.titleKeywords.removeAll(parameters.stopwords);
-
-                d.mainKeywords = new HashSet<>(Arrays.asList(mainKeywords));
-
-                d.urls.add(url);
-                d.transformedUrls.add(url);
-                d.from = from;
-                // TODO: is this ok?
-                d.id = d.title;
-
-                // create document's keywords
-                String[] words = segContent.split("\\s+");
-                for (int j = 0; j < words.length; ++j) {
-                    // handle different words
-                    double tf = 0;
-                    if (Arrays.asList(mainKeywords).contains(words[j])) {
-                        tf = 1 * boostRateMainKeyword;
-                    } else if (Arrays.asList(allKeywords).contains(words[j])) {
-                        tf = 1 * boostRateNormalKeyword;
-                    } else {
-                        tf = 1 * boostRateNormalWord;
-                    }
-
-                    // add the word token as document's keyword or update existing keyword's tf
-                    if (tf > 0 && words[j].length() > 0 && !stopwords.contains(words[j])) {
-                        if (!d.keywords.containsKey(words[j])) {
-                            d.keywords.put(words[j], new Keyword(words[j], words[j], tf, 1));
-                        } else {
-                            d.keywords.get(words[j]).tf += tf;
-                        }
-                    }
-                }
-
-                // add new document to docs
-                corpus.docs.put(id, d);
-
-                if (++i % 10000 == 0) {
-                    System.out.println(i + " documents are loaded.");
-                }
-
-            } catch (Exception e) {
-                e.printStackTrace();
-            }
-        }
-        in.close();
-        System.out.println(corpus.docs.size() + " documents are loaded.");
-
-        // filter documents with not enough keywords
-        corpus.filterDocsByNumKeywords(parameters.minDocKeywordSize);
-
-        // count each keyword' df and save into the hash map DF
-        corpus.updateDF();
-
-        // print load information
-        System.out.println(corpus.docs.size()
-                + " documents remained after filtering small documents (Documents that have less than "
-                + parameters.minDocKeywordSize
-                + " keywords).");
-
-        return corpus;
-    }
-
-    /**
-     * Load English news data set.
-     * <p>
-     * @param inputFileName File name.
-     * @param stopwords Set of stop words.
-     * @param boostRateMainKeyword Weight to boost up main keywords. It is usually >= 1.
-     * @param boostRateNormalKeyword Weight to boost normal keywords.
-     * @param boostRateNormalWord Weight to boost normal words.
-     * @throws Exception
-     */
-    public Corpus loadEnglishNews(String inputFileName,
-                                  HashSet<String> stopwords,
-                                  double boostRateMainKeyword,
-                                  double boostRateNormalKeyword,
-                                  double boostRateNormalWord) throws Exception {  // TODO: delete parameters
-        // open input file, each line is a news document
-        File inputFile = new File(inputFileName);
-        BufferedReader in = new BufferedReader(new FileReader(inputFile));
-        Corpus corpus = new Corpus();
-
-        // read header line and get index of different columns
-        System.out.println("Start loading: " + inputFileName);
-        String header = in.readLine();
-        String[] cols = header.split("\\|");
-        int numCols = cols.length;
-        int idxOfId = Arrays.asList(cols).indexOf("id");
-        int idxOfContent = Arrays.asList(cols).indexOf("original");
-        int idxOfKeywords = Arrays.asList(cols).indexOf("keywords");
-        int idxOfLda = Arrays.asList(cols).indexOf("LDA");
-
-        // read each line to create documents
-        String line;
-        int i = 0;
-        while ((line = in.readLine()) != null) {
-            try {
-                // get document information from parsed line
-                String[] tokens = line.split("\\|");
-
-                // skip bad rows that contains some empty column value.
-                if (tokens.length != numCols) {
-                    continue;
-                }
-
-                // read different parts of a document from a line
-                String id = tokens[idxOfId];
-                String content = tokens[idxOfContent];
-                String[] keywords = tokens[idxOfKeywords].split(",");
-                String lda = tokens[idxOfLda];
-
-                // check whether already exist
-                if (corpus.docs.containsKey(id)) {
-                    continue;
-                }
-
-                // create document
-                Document d = new Document(id);
-                d.segTitle = "";
-                d.title = "";
-                d.segContent = content;
-                d.lda = lda;
-                d.language = "English";
-
-                // create document's keywords
-                String[] words = content.split("\\s+");
-                for (int j = 0; j < words.length; ++j) {
-                    // handle different words
-                    double tf = 0;
-                    if (Arrays.asList(keywords).contains(words[j])) {
-                        tf = 1 * boostRateNormalKeyword;
-                    } else {
-                        tf = 1 * boostRateNormalWord;
-                    }
-
-                    // add the word token as document's keyword or update existing keyword's tf
-                    if (tf > 0 && words[j].length() > 0 && !stopwords.contains(words[j])) {
-                        if (!d.keywords.containsKey(words[j])) {
-                            d.keywords.put(words[j], new Keyword(words[j], words[j], tf, 1));
-                        } else {
-                            d.keywords.get(words[j]).tf += tf;
-                        }
-                    }
-                }
-
-                // add new document to docs
-                corpus.docs.put(id, d);
-
-                if (++i % 10000 == 0) {
-                    System.out.println(i + " documents are loaded.");
-                }
-
-            } catch (Exception e) {
-                e.printStackTrace();
-            }
-        }
-        in.close();
-        System.out.println(corpus.docs.size() + " documents are loaded.");
-
-        // filter documents with not enough keywords
-        corpus.filterDocsByNumKeywords(parameters.minDocKeywordSize);
-
-        // count each keyword' df and save into the hash map DF
-        corpus.updateDF();
-
-        // print load information
-        System.out.println(corpus.docs.size()
-                + " documents remained after filtering small documents (Documents that have less than "
-                + parameters.minDocKeywordSize
-                + " keywords).");
-
-        return corpus;
-    }
-
-    /**
-     * Get base form of an English word.
-     * <p>
-     * @param stopwords The set of stop words.
-     * @param porter Used to get base form of English word.
-     * @param word The word we are processing.
-     * @return The base form of word.
-     */
-	public static String getBaseForm(HashSet<String> stopwords, Porter porter, String word) {
-		String base = "";
-		StringTokenizer stt = new StringTokenizer(word, "!' -_@0123456789.");
-		while (stt.hasMoreTokens()) {
-			String token = stt.nextToken().toLowerCase();
-			if ((token.indexOf("?") == -1 && token.length() > 2 && !stopwords.contains(token)))
-				base += porter.stripAffixes(token) + " ";
-		}
-		return base.trim();
-	}
-
-}
+package edu.ualberta.storyteller.core.dataloader;
+
+import edu.ualberta.storyteller.core.parameter.Parameters;
+import edu.ualberta.storyteller.core.util.ConcurrencyUtils;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.StringTokenizer;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+
+/**
+ * This class contains the data loader method
+ * for different kinds of files.
+ * <p>
+ * @author Bang Liu <bang3@ualberta.ca>
+ * @version 2017.1219
+ */
+public class DataLoader {
+
+    /**
+     * Maximum size of a chunk parsed by one worker in parallel loading.
+     */
+    private static final long MAX_CHUNK_BYTES = 64L << 20;
+
+    /**
+     * Maximum number of documents read ahead by a background reader.
+     */
+    private static final int SOURCE_BUFFER_SIZE = 4096;
+
+    /**
+     * Configuration.
+     */
+	protected Parameters parameters;
+
+    /**
+     * Parametric constructor.
+     * <p>
+     * @param parameters Configuration.
+     */
+	public DataLoader(Parameters parameters) {
+		this.parameters = parameters;
+	}
+
+    /**
+     * Transform input file into corpus.
+     * <p>
+     * @param inputFileName Input file name. It can also be a gzip file or a directory of files.
+     * @return A corpus.
+     */
+    public Corpus loadCorpus(String inputFileName) throws Exception  {
+        return load(inputFileName, this::createParser);
+    }
+
+    /**
+     * Read all documents of a source into a corpus.
+     * <p>
+     * @param source Document source. It is closed after reading.
+     * @return A corpus.
+     * @throws Exception
+     */
+    public Corpus loadCorpus(DocumentSource source) throws Exception {
+        long startTime = System.currentTimeMillis();
+        return finishLoading(read(source), startTime);
+    }
+
+    /**
+     * Open a document source for an input file or directory.
+     * <p>
+     * If parameters.numThreads is bigger than 1, input is read and parsed on a background thread.
+     * <p>
+     * @param inputFileName Input file name. It can also be a gzip file or a directory of files.
+     * @return A document source.
+     * @throws IOException
+     */
+    public DocumentSource openSource(String inputFileName) throws IOException {
+        return openSource(inputFileName, this::createParser);
+    }
+
+    /**
+     * Create a line parser for parameters.dataType.
+     * <p>
+     * @param header Header line of the input file.
+     * @return A line parser.
+     * @throws IllegalArgumentException If the data type is not supported.
+     */
+    public DocumentParser createParser(String header) {
+        switch (parameters.dataType) {
+            case "ChineseNews":
+                return new ChineseNewsParser(header, parameters);
+            case "EnglishNews":
+                return new EnglishNewsParser(header, parameters);
+            default:
+                throw new IllegalArgumentException("Unsupported input data type: " + parameters.dataType);
+        }
+    }
+
+    /**
+     * Load Chinese news data set.
+     * <p>
+     * @param inputFileName File name.
+     * @param stopwords Set of stop words.
+     * @param boostRateMainKeyword Weight to boost up main keywords. It is usually >= 1.
+     * @param boostRateNormalKeyword Weight to boost normal keywords.
+     * @param boostRateNormalWord Weight to boost normal words.
+     */
+    public Corpus loadChineseNews(String inputFileName,
+                                  HashSet<String> stopwords,
+                                  double boostRateMainKeyword,
+                                  double boostRateNormalKeyword,
+                                  double boostRateNormalWord) throws Exception {  // TODO: delete parameters
+        return load(inputFileName, header -> new ChineseNewsParser(header, parameters.language, stopwords,
+                boostRateMainKeyword, boostRateNormalKeyword, boostRateNormalWord));
+    }
+
+    /**
+     * Load English news data set.
+     * <p>
+     * @param inputFileName File name.
+     * @param stopwords Set of stop words.
+     * @param boostRateMainKeyword Weight to boost up main keywords. It is usually >= 1.
+     * @param boostRateNormalKeyword Weight to boost normal keywords.
+     * @param boostRateNormalWord Weight to boost normal words.
+     * @throws Exception
+     */
+    public Corpus loadEnglishNews(String inputFileName,
+                                  HashSet<String> stopwords,
+                                  double boostRateMainKeyword,
+                                  double boostRateNormalKeyword,
+                                  double boostRateNormalWord) throws Exception {  // TODO: delete parameters
+        return load(inputFileName, header -> new EnglishNewsParser(header, stopwords,
+                boostRateNormalKeyword, boostRateNormalWord));
+    }
+
+    /**
+     * Load a pipe-delimited file whose first line is a header, or a directory of such files.
+     * <p>
+     * If parameters.numThreads is bigger than 1, an uncompressed file is parsed in parallel chunks,
+     * and other input is parsed on a background thread. Otherwise input is read line by line.
+     * <p>
+     * @param inputFileName File or directory name.
+     * @param parserFactory Create a line parser given the header line.
+     * @return A corpus.
+     * @throws Exception
+     */
+    private Corpus load(String inputFileName, Function<String, DocumentParser> parserFactory) throws Exception {
+        System.out.println("Start loading: " + inputFileName);
+        long startTime = System.currentTimeMillis();
+
+        File inputFile = new File(inputFileName);
+        Corpus corpus;
+        if (parameters.numThreads > 1 && inputFile.isFile() && !inputFileName.endsWith(".gz")) {
+            corpus = loadInParallel(inputFileName, parserFactory);
+        } else {
+            corpus = read(openSource(inputFileName, parserFactory));
+        }
+        return finishLoading(corpus, startTime);
+    }
+
+    /**
+     * Filter a loaded corpus and print load information.
+     * <p>
+     * @param corpus The loaded corpus.
+     * @param startTime Time when loading started, in milliseconds.
+     * @return The corpus.
+     */
+    private Corpus finishLoading(Corpus corpus, long startTime) {
+        double seconds = Math.max(1, System.currentTimeMillis() - startTime) / 1000.0;
+        System.out.println(corpus.docs.size() + " documents are loaded in " + seconds + " seconds ("
+                + (int) (corpus.docs.size() / seconds) + " documents/sec).");
+
+        // filter documents with not enough keywords
+        corpus.filterDocsByNumKeywords(parameters.minDocKeywordSize);
+
+        // merge near-duplicate documents
+        if (parameters.useNearDuplicateFilter) {
+            int n = new NearDuplicateDetector(parameters.maxSimHashDistance).collapse(corpus);
+            System.out.println(n + " near-duplicate documents are merged into their canonical documents.");
+        }
+
+        // print load information
+        System.out.println(corpus.docs.size()
+                + " documents remained after filtering small documents (Documents that have less than "
+                + parameters.minDocKeywordSize
+                + " keywords).");
+
+        return corpus;
+    }
+
+    /**
+     * Open a document source for an input file or directory.
+     * <p>
+     * @param inputFileName Input file name. It can also be a gzip file or a directory of files.
+     * @param parserFactory Create a line parser given the header line.
+     * @return A document source.
+     * @throws IOException
+     */
+    private DocumentSource openSource(String inputFileName, Function<String, DocumentParser> parserFactory)
+            throws IOException {
+        File inputFile = new File(inputFileName);
+        DocumentSource source;
+        if (inputFile.isDirectory()) {
+            source = new DirectoryDocumentSource(inputFile, parserFactory);
+        } else {
+            source = new LineDocumentSource(inputFile, parserFactory);
+        }
+        if (parameters.numThreads > 1) {
+            source = new BufferedDocumentSource(source, SOURCE_BUFFER_SIZE);
+        }
+        return source;
+    }
+
+    /**
+     * Read all documents of a source on the current thread.
+     * Documents keep the order of their first occurrence.
+     * <p>
+     * @param source Document source. It is closed after reading.
+     * @return A corpus.
+     * @throws IOException
+     */
+    private static Corpus read(DocumentSource source) throws IOException {
+        Corpus corpus = new Corpus();
+        corpus.docs = new LinkedHashMap<>();  // keep input order for near-duplicate merging
+        try (DocumentSource s = source) {
+            Document d;
+            int i = 0;
+            while ((d = s.next()) != null) {
+                if (addOrMerge(corpus, d) && ++i % 10000 == 0) {
+                    System.out.println(i + " documents are loaded.");
+                }
+            }
+        }
+        return corpus;
+    }
+
+    /**
+     * Add a parsed document into a corpus. If the corpus already contains a document with the
+     * same id, the new document's urls are added to the existing one instead.
+     * <p>
+     * @param corpus The corpus.
+     * @param d The parsed document.
+     * @return Whether a new document is added into corpus.
+     */
+    private static boolean addOrMerge(Corpus corpus, Document d) {
+        Document existing = corpus.docs.get(d.id);
+        if (existing != null) {
+            existing.urls.addAll(d.urls);
+            existing.transformedUrls.addAll(d.transformedUrls);
+            return false;
+        }
+        corpus.addDocument(d);
+        return true;
+    }
+
+    /**
+     * Parse a file with parameters.numThreads workers.
+     * <p>
+     * The file is memory-mapped and split into newline-aligned byte ranges. Each range is parsed
+     * into a corpus fragment on its own worker, and fragments are merged in file order, so
+     * documents are deduplicated exactly as if the file was read line by line.
+     * <p>
+     * @param inputFileName File name.
+     * @param parserFactory Create a line parser given the header line.
+     * @return A corpus.
+     * @throws Exception
+     */
+    private Corpus loadInParallel(String inputFileName, Function<String, DocumentParser> parserFactory)
+            throws Exception {
+        ArrayList<MappedByteBuffer> chunks = new ArrayList<>();
+        String header;
+        try (FileChannel channel = FileChannel.open(Paths.get(inputFileName), StandardOpenOption.READ)) {
+            long size = channel.size();
+            long headerEnd = lineStartAtOrAfter(channel, 1);
+            header = readString(channel, 0, headerEnd);
+
+            // split the rest of the file into newline-aligned chunks
+            long chunkSize = Math.min(MAX_CHUNK_BYTES, (size - headerEnd) / (parameters.numThreads * 4L) + 1);
+            long start = headerEnd;
+            while (start < size) {
+                long end = lineStartAtOrAfter(channel, start + chunkSize);
+                chunks.add(channel.map(FileChannel.MapMode.READ_ONLY, start, end - start));
+                start = end;
+            }
+        }
+        DocumentParser parser = parserFactory.apply(header);
+
+        // parse chunks on worker threads
+        ForkJoinPool pool = ConcurrencyUtils.getPool(parameters.numThreads);
+        ArrayList<Future<Corpus>> fragments = new ArrayList<>();
+        for (MappedByteBuffer chunk : chunks) {
+            fragments.add(pool.submit(() -> parseChunk(chunk, parser)));
+        }
+
+        // merge fragments in file order
+        Corpus corpus = new Corpus();
+        corpus.docs = new LinkedHashMap<>();
+        for (Future<Corpus> fragment : fragments) {
+            for (Document d : fragment.get().docs.values()) {
+                addOrMerge(corpus, d);
+            }
+        }
+
+        return corpus;
+    }
+
+    /**
+     * Parse a chunk of complete lines into a corpus fragment.
+     * Documents in the fragment keep the order of their first occurrence.
+     * <p>
+     * @param chunk Chunk bytes. It starts at a line start and ends after a line end or at the end of file.
+     * @param parser Line parser.
+     * @return A corpus fragment.
+     */
+    private static Corpus parseChunk(ByteBuffer chunk, DocumentParser parser) {
+        Corpus fragment = new Corpus();
+        fragment.docs = new LinkedHashMap<>();
+
+        CharBuffer chars = StandardCharsets.UTF_8.decode(chunk);
+        int length = chars.length();
+        int lineStart = 0;
+        for (int j = 0; j < length; ++j) {
+            if (chars.get(j) == '\n' || j == length - 1) {
+                int lineEnd = chars.get(j) == '\n' ? j : j + 1;
+                if (lineEnd > lineStart && chars.get(lineEnd - 1) == '\r') {
+                    lineEnd--;
+                }
+                String line = chars.subSequence(lineStart, lineEnd).toString();
+                lineStart = j + 1;
+                try {
+                    Document d = parser.parse(line);
+                    if (d != null) {
+                        addOrMerge(fragment, d);
+                    }
+                } catch (Exception e) {
+                    e.printStackTrace();
+                }
+            }
+        }
+
+        return fragment;
+    }
+
+    /**
+     * Find the first line start at or after a position.
+     * <p>
+     * @param channel File channel.
+     * @param position Byte position.
+     * @return Position of the first line start at or after position, or the file size if there is none.
+     * @throws IOException
+     */
+    private static long lineStartAtOrAfter(FileChannel channel, long position) throws IOException {
+        long size = channel.size();
+        if (position <= 0) {
+            return 0;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(8192);
+        long pos = position - 1;
+        while (pos < size) {
+            buffer.clear();
+            int n = channel.read(buffer, pos);
+            if (n <= 0) {
+                break;
+            }
+            for (int j = 0; j < n; ++j) {
+                if (buffer.get(j) == '\n') {
+                    return pos + j + 1;
+                }
+            }
+            pos += n;
+        }
+        return size;
+    }
+
+    /**
+     * Read a line of UTF-8 text from a file channel without its line terminator.
+     * <p>
+     * @param channel File channel.
+     * @param start Start position.
+     * @param end End position.
+     * @return The decoded string.
+     * @throws IOException
+     */
+    private static String readString(FileChannel channel, long start, long end) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate((int) (end - start));
+        while (buffer.hasRemaining() && channel.read(buffer, start + buffer.position()) > 0) {
+            // keep reading until the buffer is full
+        }
+        buffer.flip();
+        return StandardCharsets.UTF_8.decode(buffer).toString().replaceAll("[\r\n]+$", "");
+    }
+
+    /**
+     * Get base form of an English word.
+     * <p>
+     * @param stopwords The set of stop words.
+     * @param porter Used to get base form of English word.
+     * @param word The word we are processing.
+     * @return The base form of word.
+     */
+	public static String getBaseForm(HashSet<String> stopwords, Porter porter, String word) {
+		String base = "";
+		StringTokenizer stt = new StringTokenizer(word, "!' -_@0123456789.");
+		while (stt.hasMoreTokens()) {
+			String token = stt.nextToken().toLowerCase();
+			if ((token.indexOf("?") == -1 && token.length() > 2 && !stopwords.contains(token)))
+				base += porter.stripAffixes(token) + " ";
+		}
+		return base.trim();
+	}
+
+}
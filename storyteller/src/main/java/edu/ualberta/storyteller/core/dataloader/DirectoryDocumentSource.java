@@ -0,0 +1,88 @@
+package edu.ualberta.storyteller.core.dataloader;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.function.Function;
+
+/**
+ * A document source that reads all files of a directory, such as one file per day,
+ * in the order of their names. Each file has its own header line.
+ * <p>
+ * @author Bang Liu <bang3@ualberta.ca>
+ * @version 2017.1219
+ */
+public class DirectoryDocumentSource implements DocumentSource {
+
+    /**
+     * Files to read, sorted by name.
+     */
+    private final ArrayList<File> files = new ArrayList<>();
+
+    /**
+     * Create a line parser given the header line of a file.
+     */
+    private final Function<String, DocumentParser> parserFactory;
+
+    /**
+     * Index of the next file to open.
+     */
+    private int nextFile = 0;
+
+    /**
+     * Source of the file being read. Null if no file is open.
+     */
+    private LineDocumentSource current;
+
+    /**
+     * Parametric constructor.
+     * <p>
+     * @param directory Input directory. Hidden files and sub-directories are skipped.
+     * @param parserFactory Create a line parser given the header line of a file.
+     * @throws IOException
+     */
+    public DirectoryDocumentSource(File directory, Function<String, DocumentParser> parserFactory)
+            throws IOException {
+        File[] children = directory.listFiles();
+        if (children == null) {
+            throw new FileNotFoundException(directory + " is not a directory.");
+        }
+        Arrays.sort(children);
+        for (File f : children) {
+            if (f.isFile() && !f.isHidden()) {
+                files.add(f);
+            }
+        }
+        this.parserFactory = parserFactory;
+    }
+
+    @Override
+    public Document next() throws IOException {
+        while (true) {
+            if (current == null) {
+                if (nextFile == files.size()) {
+                    return null;
+                }
+                current = new LineDocumentSource(files.get(nextFile++), parserFactory);
+            }
+            Document d = current.next();
+            if (d != null) {
+                return d;
+            }
+            current.close();
+            current = null;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (current != null) {
+            current.close();
+            current = null;
+        }
+        nextFile = files.size();
+    }
+
+}
@@ -14,6 +14,12 @@ import java.util.HashSet;
  * @version 2017.1219
  */
 public class Document implements Serializable {
+
+    /**
+     * Serialization version, fixed so that saved corpora still load.
+     */
+    private static final long serialVersionUID = 4833167369003889062L;
+
     /**
      * Document id.
      */
@@ -103,6 +109,11 @@ public class Document implements Serializable {
      */
     public double tfVectorSize = -1;
 
+    /**
+     * Document TF vector sorted by term id. It is built on first use and not serialized.
+     */
+    private transient SparseVector tfVector;
+
     /**
      * Whether this document has been processed.
      */
@@ -163,6 +174,20 @@ public class Document implements Serializable {
         return tfVectorSize;
     }
 
+    /**
+     * Get document's TF vector.
+     * <p>
+     * The vector is built from keywords on first use, so keywords' tf should not change afterwards.
+     * <p>
+     * @return The sparse TF vector.
+     */
+    public SparseVector getTFVector() {
+        if (tfVector == null) {
+            tfVector = SparseVector.fromKeywords(keywords);
+        }
+        return tfVector;
+    }
+
     /**
      * Compute document's vector size.
      * <p>
@@ -0,0 +1,22 @@
+package edu.ualberta.storyteller.core.dataloader;
+
+/**
+ * Parse one line of an input file into a document.
+ * <p>
+ * A parser is created from the header line of a file. It keeps no state between lines,
+ * so one parser can be used by several threads at the same time.
+ * <p>
+ * @author Bang Liu <bang3@ualberta.ca>
+ * @version 2017.1219
+ */
+public interface DocumentParser {
+
+    /**
+     * Parse a line.
+     * <p>
+     * @param line Input line without line terminator.
+     * @return A new document, or null if the line is not a valid document.
+     */
+    Document parse(String line);
+
+}
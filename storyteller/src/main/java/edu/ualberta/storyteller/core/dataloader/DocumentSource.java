@@ -0,0 +1,22 @@
+package edu.ualberta.storyteller.core.dataloader;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * A stream of documents, such as a news file, a directory of daily files or an in-memory queue.
+ * <p>
+ * @author Bang Liu <bang3@ualberta.ca>
+ * @version 2017.1219
+ */
+public interface DocumentSource extends Closeable {
+
+    /**
+     * Get the next document. It may block until a document is available.
+     * <p>
+     * @return The next document, or null if the source is exhausted.
+     * @throws IOException
+     */
+    Document next() throws IOException;
+
+}
@@ -0,0 +1,112 @@
+package edu.ualberta.storyteller.core.dataloader;
+
+import edu.ualberta.storyteller.core.parameter.Parameters;
+import java.util.Arrays;
+import java.util.HashSet;
+
+/**
+ * This class parses lines of the pipe-delimited English news data set.
+ * <p>
+ * @author Bang Liu <bang3@ualberta.ca>
+ * @version 2017.1219
+ */
+public class EnglishNewsParser implements DocumentParser {
+
+    /**
+     * Column indices.
+     */
+    private final NewsColumns cols;
+
+    /**
+     * Set of stop words.
+     */
+    private final HashSet<String> stopwords;
+
+    /**
+     * Weight to boost normal keywords.
+     */
+    private final double boostRateNormalKeyword;
+
+    /**
+     * Weight to boost normal words.
+     */
+    private final double boostRateNormalWord;
+
+    /**
+     * Parametric constructor.
+     * <p>
+     * @param header Header line of the input file.
+     * @param parameters Configuration.
+     */
+    public EnglishNewsParser(String header, Parameters parameters) {
+        this(header, parameters.stopwords, parameters.boostRateNormalKeyword, parameters.boostRateNormalWord);
+    }
+
+    /**
+     * Parametric constructor.
+     * <p>
+     * @param header Header line of the input file.
+     * @param stopwords Set of stop words.
+     * @param boostRateNormalKeyword Weight to boost normal keywords.
+     * @param boostRateNormalWord Weight to boost normal words.
+     */
+    public EnglishNewsParser(String header,
+                             HashSet<String> stopwords,
+                             double boostRateNormalKeyword,
+                             double boostRateNormalWord) {
+        this.cols = new NewsColumns(header);
+        this.stopwords = stopwords;
+        this.boostRateNormalKeyword = boostRateNormalKeyword;
+        this.boostRateNormalWord = boostRateNormalWord;
+    }
+
+    @Override
+    public Document parse(String line) {
+        // get document information from parsed line
+        String[] tokens = line.split("\\|");
+
+        // skip bad rows that contains some empty column value.
+        if (tokens.length != cols.numCols) {
+            return null;
+        }
+
+        // read different parts of a document from a line
+        String id = tokens[cols.idxOfId];
+        String content = tokens[cols.idxOfContent];
+        HashSet<String> keywords = new HashSet<>(Arrays.asList(tokens[cols.idxOfKeywords].split(",")));
+        String lda = tokens[cols.idxOfLda];
+
+        // create document
+        Document d = new Document(id);
+        d.segTitle = "";
+        d.title = "";
+        d.segContent = content;
+        d.lda = lda;
+        d.language = "English";
+
+        // create document's keywords
+        String[] words = content.split("\\s+");
+        for (int j = 0; j < words.length; ++j) {
+            // handle different words
+            double tf = 0;
+            if (keywords.contains(words[j])) {
+                tf = 1 * boostRateNormalKeyword;
+            } else {
+                tf = 1 * boostRateNormalWord;
+            }
+
+            // add the word token as document's keyword or update existing keyword's tf
+            if (tf > 0 && words[j].length() > 0 && !stopwords.contains(words[j])) {
+                if (!d.keywords.containsKey(words[j])) {
+                    Keyword k = new Keyword(words[j], words[j], tf, 1);
+                    d.keywords.put(k.baseForm, k);
+                } else {
+                    d.keywords.get(words[j]).tf += tf;
+                }
+            }
+        }
+
+        return d;
+    }
+
+}
@@ -1,7 +1,8 @@
 package edu.ualberta.storyteller.core.dataloader;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
 import java.io.Serializable;
-import java.util.HashMap;
 
 /**
  * Define the keyword data type.
@@ -11,11 +12,22 @@ import java.util.HashMap;
  */
 public class Keyword implements Serializable {
 
+    /**
+     * Serialization version, fixed to its value before termId was added, so saved corpora still load.
+     */
+    private static final long serialVersionUID = 1682088149058388138L;
+
     /**
      * Base form of the word.
      */
     public String baseForm;
 
+    /**
+     * Id of the base form in the shared term dictionary.
+     * It is not serialized, but looked up again when a keyword is deserialized.
+     */
+    public transient int termId;
+
     /**
      * The word itself.
      */
@@ -31,11 +43,6 @@ public class Keyword implements Serializable {
      */
     public double df;
 
-    /**
-     * The list of documents that contains this word.
-     */
-    public HashMap<String, Document> documents = new HashMap<>();
-
     /**
      * Parametric constructor.
      * <p>
@@ -49,6 +56,32 @@ public class Keyword implements Serializable {
         this.word = word;
         this.tf = tf;
         this.df = df;
+        intern();
+    }
+
+    /**
+     * Look up term id and replace base form and word with the dictionary's canonical strings.
+     */
+    private void intern() {
+        TermDictionary dictionary = TermDictionary.getInstance();
+        termId = dictionary.getId(baseForm);
+        String canonical = dictionary.getTerm(termId);
+        if (canonical.equals(word)) {
+            word = canonical;
+        }
+        baseForm = canonical;
+    }
+
+    /**
+     * Restore term id after deserialization.
+     * <p>
+     * @param in Object input stream.
+     * @throws IOException
+     * @throws ClassNotFoundException
+     */
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        intern();
     }
 
 }
@@ -0,0 +1,73 @@
+package edu.ualberta.storyteller.core.dataloader;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.function.Function;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * A document source that reads a UTF-8 text file line by line. The first line is the header.
+ * Files whose names end with ".gz" are decompressed while reading.
+ * <p>
+ * @author Bang Liu <bang3@ualberta.ca>
+ * @version 2017.1219
+ */
+public class LineDocumentSource implements DocumentSource {
+
+    /**
+     * Input reader.
+     */
+    private final BufferedReader in;
+
+    /**
+     * Line parser. Null if the file is empty.
+     */
+    private final DocumentParser parser;
+
+    /**
+     * Parametric constructor. Open a file and read its header line.
+     * <p>
+     * @param file Input file.
+     * @param parserFactory Create a line parser given the header line.
+     * @throws IOException
+     */
+    public LineDocumentSource(File file, Function<String, DocumentParser> parserFactory) throws IOException {
+        InputStream stream = new FileInputStream(file);
+        if (file.getName().endsWith(".gz")) {
+            stream = new GZIPInputStream(stream, 1 << 16);
+        }
+        in = new BufferedReader(new InputStreamReader(stream, StandardCharsets.UTF_8), 1 << 16);
+        String header = in.readLine();
+        parser = header == null ? null : parserFactory.apply(header);
+    }
+
+    @Override
+    public Document next() throws IOException {
+        if (parser == null) {
+            return null;
+        }
+        String line;
+        while ((line = in.readLine()) != null) {
+            try {
+                Document d = parser.parse(line);
+                if (d != null) {
+                    return d;
+                }
+            } catch (Exception e) {
+                e.printStackTrace();
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+}
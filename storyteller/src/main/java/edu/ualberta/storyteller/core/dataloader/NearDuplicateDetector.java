@@ -0,0 +1,194 @@
+package edu.ualberta.storyteller.core.dataloader;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * This class finds near-duplicate documents by SimHash signatures.
+ * <p>
+ * A document's signature is the 64 bit SimHash of its content keywords weighted by tf.
+ * Two documents are near-duplicates if their signatures differ in at most maxDistance bits.
+ * Signatures are split into maxDistance + 1 bands and indexed by band value, so any two
+ * near-duplicates share at least one band and only documents sharing a band are compared.
+ * <p>
+ * @author Bang Liu <bang3@ualberta.ca>
+ * @version 2017.1219
+ */
+public class NearDuplicateDetector {
+
+    /**
+     * Maximum Hamming distance between signatures of near-duplicates.
+     */
+    private final int maxDistance;
+
+    /**
+     * First bit of each band. The last element is 64.
+     */
+    private final int[] bandStarts;
+
+    /**
+     * For each band, the map of (band value, indexes of canonical documents).
+     */
+    private final ArrayList<HashMap<Long, ArrayList<Integer>>> bands = new ArrayList<>();
+
+    /**
+     * Canonical documents seen so far.
+     */
+    private final ArrayList<Document> canonicals = new ArrayList<>();
+
+    /**
+     * Signatures of canonical documents.
+     */
+    private long[] signatures = new long[1024];
+
+    /**
+     * Parametric constructor.
+     * <p>
+     * @param maxDistance Maximum Hamming distance between signatures of near-duplicates. From 0 to 63.
+     */
+    public NearDuplicateDetector(int maxDistance) {
+        this.maxDistance = Math.max(0, Math.min(63, maxDistance));
+        int numBands = this.maxDistance + 1;
+        bandStarts = new int[numBands + 1];
+        for (int b = 0; b <= numBands; ++b) {
+            bandStarts[b] = b * 64 / numBands;
+            if (b < numBands) {
+                bands.add(new HashMap<>());
+            }
+        }
+    }
+
+    /**
+     * Merge near-duplicate documents of a corpus into their canonical documents.
+     * <p>
+     * Documents are visited in the iteration order of corpus.docs, and the first document of
+     * a group of near-duplicates is kept as the canonical one. The urls of the others are added
+     * to it, and they are removed from the corpus. Documents without keywords are kept.
+     * <p>
+     * @param corpus The corpus.
+     * @return Number of removed documents.
+     */
+    public int collapse(Corpus corpus) {
+        ArrayList<String> toRemove = new ArrayList<>();
+        for (Document d : corpus.docs.values()) {
+            if (d.keywords.isEmpty()) {
+                continue;
+            }
+            long signature = signature(d);
+            Document canonical = findDuplicate(signature);
+            if (canonical != null) {
+                canonical.urls.addAll(d.urls);
+                canonical.transformedUrls.addAll(d.transformedUrls);
+                toRemove.add(d.id);
+            } else {
+                add(signature, d);
+            }
+        }
+        for (String id : toRemove) {
+            corpus.removeDocument(id);
+        }
+        return toRemove.size();
+    }
+
+    /**
+     * Find a near-duplicate of a signature among canonical documents.
+     * <p>
+     * @param signature Document signature.
+     * @return The earliest added near-duplicate, or null if there is none.
+     */
+    public Document findDuplicate(long signature) {
+        int best = -1;
+        for (int b = 0; b < bands.size(); ++b) {
+            ArrayList<Integer> candidates = bands.get(b).get(band(signature, b));
+            if (candidates == null) {
+                continue;
+            }
+            for (int i : candidates) {
+                if (best >= 0 && i >= best) {
+                    break;
+                }
+                if (Long.bitCount(signature ^ signatures[i]) <= maxDistance) {
+                    best = i;
+                    break;
+                }
+            }
+        }
+        return best < 0 ? null : canonicals.get(best);
+    }
+
+    /**
+     * Add a canonical document.
+     * <p>
+     * @param signature Document signature.
+     * @param d The document.
+     */
+    public void add(long signature, Document d) {
+        int i = canonicals.size();
+        canonicals.add(d);
+        if (i == signatures.length) {
+            signatures = Arrays.copyOf(signatures, i * 2);
+        }
+        signatures[i] = signature;
+        for (int b = 0; b < bands.size(); ++b) {
+            bands.get(b).computeIfAbsent(band(signature, b), key -> new ArrayList<>(1)).add(i);
+        }
+    }
+
+    /**
+     * Calculate the SimHash signature of a document from its keywords.
+     * <p>
+     * @param d The document.
+     * @return 64 bit signature.
+     */
+    public static long signature(Document d) {
+        double[] weights = new double[64];
+        for (Keyword k : d.keywords.values()) {
+            long h = hash(k.baseForm);
+            for (int bit = 0; bit < 64; ++bit) {
+                weights[bit] += ((h >>> bit) & 1) != 0 ? k.tf : -k.tf;
+            }
+        }
+        long signature = 0;
+        for (int bit = 0; bit < 64; ++bit) {
+            if (weights[bit] > 0) {
+                signature |= 1L << bit;
+            }
+        }
+        return signature;
+    }
+
+    /**
+     * Get the value of a band of a signature.
+     * <p>
+     * @param signature Signature.
+     * @param b Band index.
+     * @return Band bits.
+     */
+    private long band(long signature, int b) {
+        int width = bandStarts[b + 1] - bandStarts[b];
+        long mask = width == 64 ? -1L : (1L << width) - 1;
+        return (signature >>> bandStarts[b]) & mask;
+    }
+
+    /**
+     * Calculate a 64 bit hash of a word: FNV-1a followed by a MurmurHash3 finalizer.
+     * <p>
+     * @param word The word.
+     * @return Hash value.
+     */
+    private static long hash(String word) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < word.length(); ++i) {
+            h ^= word.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+}
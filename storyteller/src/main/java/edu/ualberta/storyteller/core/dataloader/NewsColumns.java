@@ -0,0 +1,45 @@
+package edu.ualberta.storyteller.core.dataloader;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Index of different columns in a news file, read from its header line.
+ * <p>
+ * @author Bang Liu <bang3@ualberta.ca>
+ * @version 2017.1219
+ */
+class NewsColumns {
+    int numCols;
+    int idxOfId;
+    int idxOfDocId;
+    int idxOfSegTitle;
+    int idxOfSegContent;
+    int idxOfTopic;
+    int idxOfTimestamp;
+    int idxOfAllKeywords;
+    int idxOfMainKeywords;
+    int idxOfUrl;
+    int idxOfFrom;
+    int idxOfContent;
+    int idxOfKeywords;
+    int idxOfLda;
+
+    NewsColumns(String header) {
+        List<String> cols = Arrays.asList(header.split("\\|"));
+        numCols = cols.size();
+        idxOfId = cols.indexOf("id");
+        idxOfDocId = cols.indexOf("id");  // TODO: I forgot why need this
+        idxOfSegTitle = cols.indexOf("segment_title");
+        idxOfSegContent = cols.indexOf("segment_content");
+        idxOfTopic = cols.indexOf("1st_topic");
+        idxOfTimestamp = cols.indexOf("time");
+        idxOfAllKeywords = cols.indexOf("all_keywords");
+        idxOfMainKeywords = cols.indexOf("main_keywords");
+        idxOfUrl = cols.indexOf("url");
+        idxOfFrom = cols.indexOf("from");
+        idxOfContent = cols.indexOf("original");
+        idxOfKeywords = cols.indexOf("keywords");
+        idxOfLda = cols.indexOf("LDA");
+    }
+}
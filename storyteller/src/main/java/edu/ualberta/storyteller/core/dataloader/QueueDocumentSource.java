@@ -0,0 +1,106 @@
+package edu.ualberta.storyteller.core.dataloader;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.ArrayBlockingQueue;
+
+/**
+ * A document source backed by a bounded in-memory queue.
+ * <p>
+ * Producers put documents and call finish() when they are done. put() blocks while the
+ * queue is full, so a producer can never run more than the queue capacity ahead of the consumer.
+ * <p>
+ * @author Bang Liu <bang3@ualberta.ca>
+ * @version 2017.1219
+ */
+public class QueueDocumentSource implements DocumentSource {
+
+    /**
+     * Marker put into the queue after the last document.
+     */
+    private static final Document END = new Document(null);
+
+    /**
+     * Queued documents.
+     */
+    private final ArrayBlockingQueue<Document> queue;
+
+    /**
+     * Error reported by the producer.
+     */
+    private volatile Throwable failure;
+
+    /**
+     * Whether the end marker has been taken.
+     */
+    private boolean finished = false;
+
+    /**
+     * Parametric constructor.
+     * <p>
+     * @param capacity Maximum number of queued documents.
+     */
+    public QueueDocumentSource(int capacity) {
+        queue = new ArrayBlockingQueue<>(Math.max(1, capacity));
+    }
+
+    /**
+     * Add a document, waiting while the queue is full.
+     * <p>
+     * @param d The document.
+     * @throws InterruptedException
+     */
+    public void put(Document d) throws InterruptedException {
+        queue.put(d);
+    }
+
+    /**
+     * Mark the end of the stream. Documents already queued can still be read.
+     * <p>
+     * @throws InterruptedException
+     */
+    public void finish() throws InterruptedException {
+        queue.put(END);
+    }
+
+    /**
+     * Mark the end of the stream because of an error. The consumer gets the error
+     * once it has read the documents already queued.
+     * <p>
+     * @param e The error.
+     * @throws InterruptedException
+     */
+    public void fail(Throwable e) throws InterruptedException {
+        failure = e;
+        finish();
+    }
+
+    @Override
+    public Document next() throws IOException {
+        if (finished) {
+            return null;
+        }
+        Document d;
+        try {
+            d = queue.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException();
+        }
+        if (d == END) {
+            finished = true;
+            if (failure != null) {
+                throw new IOException("Document producer failed.", failure);
+            }
+            return null;
+        }
+        return d;
+    }
+
+    @Override
+    public void close() {
+        finished = true;
+        queue.clear();
+    }
+
+}
@@ -0,0 +1,175 @@
+package edu.ualberta.storyteller.core.dataloader;
+
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * Define the immutable sparse vector data type.
+ * <p>
+ * Elements are sorted by term id, so the dot product of two vectors is a linear merge-join
+ * of their id arrays without any hashing or allocation.
+ * <p>
+ * Weights are stored as floats and products are summed in double. Integer tf values are exact, but
+ * fractional ones, such as the averaged tf of a centroid or tf scaled by a fractional boost rate, are
+ * rounded to about 7 significant digits, so similarities may differ from double weights by about 1e-7.
+ * <p>
+ * @author Bang Liu <bang3@ualberta.ca>
+ * @version 2017.1219
+ */
+public final class SparseVector {
+
+    /**
+     * Empty vector.
+     */
+    public static final SparseVector EMPTY = new SparseVector(new int[0], new float[0], 0);
+
+    /**
+     * Term ids in ascending order.
+     */
+    private final int[] ids;
+
+    /**
+     * Weights of the terms, parallel to ids. Rounded to float.
+     */
+    private final float[] weights;
+
+    /**
+     * Cached two order norm of the vector.
+     */
+    private final double norm;
+
+    /**
+     * Parametric constructor.
+     * <p>
+     * @param ids Sorted term ids.
+     * @param weights Term weights.
+     * @param norm Vector norm.
+     */
+    private SparseVector(int[] ids, float[] weights, double norm) {
+        this.ids = ids;
+        this.weights = weights;
+        this.norm = norm;
+    }
+
+    /**
+     * Create the tf vector of a keyword map.
+     * <p>
+     * @param keywords The map of (keyword id, keyword).
+     * @return A vector whose weights are keywords' tf.
+     */
+    public static SparseVector fromKeywords(Map<String, Keyword> keywords) {
+        if (keywords.isEmpty()) {
+            return EMPTY;
+        }
+        long[] packed = new long[keywords.size()];
+        float[] tfs = new float[keywords.size()];
+        int n = 0;
+        for (Keyword k : keywords.values()) {
+            tfs[n] = (float) k.tf;
+            packed[n] = ((long) k.termId << 32) | n;
+            n++;
+        }
+        // sort by term id and carry the original position in the low bits
+        Arrays.sort(packed);
+        int[] ids = new int[n];
+        float[] weights = new float[n];
+        double norm = 0;
+        for (int i = 0; i < n; ++i) {
+            ids[i] = (int) (packed[i] >>> 32);
+            weights[i] = tfs[(int) packed[i]];
+            norm += (double) weights[i] * weights[i];
+        }
+        return new SparseVector(ids, weights, Math.sqrt(norm));
+    }
+
+    /**
+     * Get number of non-zero elements.
+     * <p>
+     * @return Vector size.
+     */
+    public int size() {
+        return ids.length;
+    }
+
+    /**
+     * Get the term id of the i-th element.
+     * <p>
+     * @param i Element index.
+     * @return Term id.
+     */
+    public int id(int i) {
+        return ids[i];
+    }
+
+    /**
+     * Get the weight of the i-th element.
+     * <p>
+     * @param i Element index.
+     * @return Weight.
+     */
+    public float weight(int i) {
+        return weights[i];
+    }
+
+    /**
+     * Get the weight of a term.
+     * <p>
+     * @param termId Term id.
+     * @return The term's weight, or 0 if the vector does not contain it.
+     */
+    public double get(int termId) {
+        int i = Arrays.binarySearch(ids, termId);
+        return i >= 0 ? weights[i] : 0;
+    }
+
+    /**
+     * Get the two order norm of this vector.
+     * <p>
+     * @return Vector norm.
+     */
+    public double norm() {
+        return norm;
+    }
+
+    /**
+     * Calculate the dot product of two vectors.
+     * <p>
+     * @param v1 One vector.
+     * @param v2 Another vector.
+     * @return Dot product.
+     */
+    public static double dot(SparseVector v1, SparseVector v2) {
+        int[] ids1 = v1.ids;
+        int[] ids2 = v2.ids;
+        int i = 0;
+        int j = 0;
+        double sum = 0;
+        while (i < ids1.length && j < ids2.length) {
+            int a = ids1[i];
+            int b = ids2[j];
+            if (a == b) {
+                sum += (double) v1.weights[i++] * v2.weights[j++];
+            } else if (a < b) {
+                i++;
+            } else {
+                j++;
+            }
+        }
+        return sum;
+    }
+
+    /**
+     * Calculate the cosine similarity of two vectors.
+     * <p>
+     * @param v1 One vector.
+     * @param v2 Another vector.
+     * @return Cosine similarity. 0 if either vector is empty.
+     */
+    public static double cosine(SparseVector v1, SparseVector v2) {
+        if (v1.norm == 0 || v2.norm == 0) {
+            return 0;
+        }
+        return dot(v1, v2) / v1.norm / v2.norm;
+    }
+
+}
@@ -0,0 +1,116 @@
+package edu.ualberta.storyteller.core.dataloader;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Define the term dictionary: a thread-safe map between keyword strings and dense int ids.
+ * <p>
+ * Ids start from 0 and are assigned in the order terms are first seen. They are only valid inside
+ * the running process, so anything persisted keeps the term strings and looks the ids up again
+ * when it is read back. The dictionary also keeps one canonical String instance for each term,
+ * so documents that contain the same keyword share a single string.
+ * <p>
+ * @author Bang Liu <bang3@ualberta.ca>
+ * @version 2017.1219
+ */
+public class TermDictionary {
+
+    /**
+     * The dictionary shared by the whole pipeline.
+     */
+    private static final TermDictionary INSTANCE = new TermDictionary();
+
+    /**
+     * The map of (term, term id).
+     */
+    private final ConcurrentHashMap<String, Integer> ids = new ConcurrentHashMap<>();
+
+    /**
+     * Terms indexed by term id.
+     */
+    private volatile String[] terms = new String[1024];
+
+    /**
+     * Number of terms in this dictionary.
+     */
+    private volatile int size = 0;
+
+    /**
+     * Get the dictionary shared by the whole pipeline.
+     * <p>
+     * @return The shared dictionary.
+     */
+    public static TermDictionary getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Get the id of a term. A new id is assigned if the term is not in the dictionary yet.
+     * <p>
+     * @param term The term.
+     * @return Term id.
+     */
+    public int getId(String term) {
+        Integer id = ids.get(term);
+        if (id != null) {
+            return id;
+        }
+        synchronized (this) {
+            id = ids.get(term);
+            if (id == null) {
+                id = size;
+                String[] t = terms;
+                if (id == t.length) {
+                    t = Arrays.copyOf(t, t.length * 2);
+                }
+                t[id] = term;
+                terms = t;
+                size = id + 1;
+                ids.put(term, id);
+            }
+            return id;
+        }
+    }
+
+    /**
+     * Get the id of a term without adding it.
+     * <p>
+     * @param term The term.
+     * @return Term id, or -1 if the term is not in the dictionary.
+     */
+    public int indexOf(String term) {
+        Integer id = ids.get(term);
+        return id == null ? -1 : id;
+    }
+
+    /**
+     * Get the canonical string of a term id.
+     * <p>
+     * @param id Term id.
+     * @return The term.
+     */
+    public String getTerm(int id) {
+        return terms[id];
+    }
+
+    /**
+     * Get the canonical instance of a term, adding it if needed.
+     * <p>
+     * @param term The term.
+     * @return The string instance kept by this dictionary.
+     */
+    public String canonical(String term) {
+        return getTerm(getId(term));
+    }
+
+    /**
+     * Get the number of terms.
+     * <p>
+     * @return Number of terms in this dictionary. All ids are smaller than it.
+     */
+    public int size() {
+        return size;
+    }
+
+}
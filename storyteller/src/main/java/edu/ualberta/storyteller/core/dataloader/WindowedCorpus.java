@@ -0,0 +1,293 @@
+package edu.ualberta.storyteller.core.dataloader;
+
+import java.io.Serializable;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * Define the windowed corpus data type: a corpus whose documents are indexed into time buckets.
+ * <p>
+ * Each bucket covers a fixed time span and keeps its own documents, their DF and their
+ * publish time range. Sliding the window by filterDocsByTime() drops whole expired buckets
+ * together with their DF, and only scans the two buckets that contain the window boundaries.
+ * startTime() and endTime() are read from the first and last buckets.
+ * <p>
+ * @author Bang Liu <bang3@ualberta.ca>
+ * @version 2017.1219
+ */
+public class WindowedCorpus extends Corpus {
+
+    /**
+     * Serialization version.
+     */
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Time span of a bucket in milliseconds.
+     */
+    private final long bucketMillis;
+
+    /**
+     * The map of (bucket index, bucket). Bucket index is publish time divided by bucket span.
+     */
+    private TreeMap<Long, Bucket> buckets = new TreeMap<>();
+
+    /**
+     * Default constructor. Each bucket covers one day.
+     */
+    public WindowedCorpus() {
+        this(24);
+    }
+
+    /**
+     * Parametric constructor.
+     * <p>
+     * @param bucketHours Time span of a bucket in hours.
+     */
+    public WindowedCorpus(int bucketHours) {
+        bucketMillis = Math.max(1, bucketHours) * 3600L * 1000L;
+    }
+
+    /**
+     * Parametric constructor. Create a windowed corpus that contains all documents of a corpus.
+     * <p>
+     * @param corpus The corpus to copy.
+     * @param bucketHours Time span of a bucket in hours.
+     */
+    public WindowedCorpus(Corpus corpus, int bucketHours) {
+        this(bucketHours);
+        for (Document d : corpus.docs.values()) {
+            addDocument(d);
+        }
+    }
+
+    /**
+     * Get the time span of a bucket.
+     * <p>
+     * @return Bucket span in hours.
+     */
+    public int getBucketHours() {
+        return (int) (bucketMillis / 3600L / 1000L);
+    }
+
+    /**
+     * Get the documents of each bucket.
+     * <p>
+     * @return The map of (bucket index, documents of the bucket) in time order. Documents are
+     *         unmodifiable views that follow later changes of the buckets.
+     */
+    public SortedMap<Long, Map<String, Document>> getBucketDocs() {
+        TreeMap<Long, Map<String, Document>> bucketDocs = new TreeMap<>();
+        for (Map.Entry<Long, Bucket> entry : buckets.entrySet()) {
+            bucketDocs.put(entry.getKey(), Collections.unmodifiableMap(entry.getValue().docs));
+        }
+        return bucketDocs;
+    }
+
+    @Override
+    public void addDocument(Document d) {
+        if (docs.containsKey(d.id)) {
+            removeDocument(d.id);
+        }
+        super.addDocument(d);
+        buckets.computeIfAbsent(bucketOf(d.publishTime), key -> new Bucket()).add(d);
+    }
+
+    @Override
+    public Document removeDocument(String id) {
+        Document d = super.removeDocument(id);
+        if (d != null) {
+            long key = bucketOf(d.publishTime);
+            Bucket bucket = buckets.get(key);
+            bucket.remove(d);
+            if (bucket.docs.isEmpty()) {
+                buckets.remove(key);
+            }
+        }
+        return d;
+    }
+
+    @Override
+    public Timestamp startTime() {
+        if (buckets.isEmpty()) {
+            throw new NoSuchElementException();
+        }
+        return buckets.firstEntry().getValue().startTime();
+    }
+
+    @Override
+    public Timestamp endTime() {
+        if (buckets.isEmpty()) {
+            throw new NoSuchElementException();
+        }
+        return buckets.lastEntry().getValue().endTime();
+    }
+
+    /**
+     * Filter docs outside the time section.
+     * Buckets entirely outside the section are dropped at once.
+     * <p>
+     * @param start Start time.
+     * @param end End time.
+     */
+    @Override
+    public void filterDocsByTime(Timestamp start, Timestamp end) {
+        long startKey = bucketOf(start);
+        long endKey = bucketOf(end);
+        evict(buckets.headMap(startKey, false));
+        evict(buckets.tailMap(endKey, false));
+
+        // scan boundary buckets
+        ArrayList<String> toRemove = new ArrayList<>();
+        for (long key : new long[]{startKey, endKey}) {
+            Bucket bucket = buckets.get(key);
+            if (bucket == null) {
+                continue;
+            }
+            for (Document d : bucket.docs.values()) {
+                if (d.publishTime.before(start) || d.publishTime.after(end)) {
+                    toRemove.add(d.id);
+                }
+            }
+        }
+        for (String id : toRemove) {
+            removeDocument(id);
+        }
+    }
+
+    /**
+     * Remove whole buckets from this corpus.
+     * <p>
+     * @param expired A view of the buckets to remove.
+     */
+    private void evict(Map<Long, Bucket> expired) {
+        for (Iterator<Bucket> it = expired.values().iterator(); it.hasNext(); ) {
+            Bucket bucket = it.next();
+            removeDocuments(bucket.docs.keySet(), bucket.DF);
+            it.remove();
+        }
+    }
+
+    /**
+     * Get the bucket index of a time.
+     * <p>
+     * @param t Time.
+     * @return Bucket index.
+     */
+    private long bucketOf(Timestamp t) {
+        return Math.floorDiv(t.getTime(), bucketMillis);
+    }
+
+    /**
+     * Define the bucket data type: documents published in the same time span.
+     */
+    private static class Bucket implements Serializable {
+
+        /**
+         * Serialization version.
+         */
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * Documents in this bucket.
+         */
+        LinkedHashMap<String, Document> docs = new LinkedHashMap<>();
+
+        /**
+         * Words' DF in this bucket.
+         */
+        HashMap<String, Double> DF = new HashMap<>();
+
+        /**
+         * Earliest publish time in this bucket. Null if it needs to be recalculated.
+         */
+        Timestamp start;
+
+        /**
+         * Latest publish time in this bucket. Null if it needs to be recalculated.
+         */
+        Timestamp end;
+
+        /**
+         * Add a document into this bucket.
+         * <p>
+         * @param d The document.
+         */
+        void add(Document d) {
+            docs.put(d.id, d);
+            for (Keyword k : d.keywords.values()) {
+                DF.merge(k.baseForm, 1.0, Double::sum);
+            }
+            if (start != null && d.publishTime.before(start)) {
+                start = d.publishTime;
+            }
+            if (end != null && d.publishTime.after(end)) {
+                end = d.publishTime;
+            }
+            if (docs.size() == 1) {
+                start = d.publishTime;
+                end = d.publishTime;
+            }
+        }
+
+        /**
+         * Remove a document from this bucket.
+         * <p>
+         * @param d The document.
+         */
+        void remove(Document d) {
+            docs.remove(d.id);
+            for (Keyword k : d.keywords.values()) {
+                DF.computeIfPresent(k.baseForm, (word, v) -> v > 1 ? v - 1 : null);
+            }
+            if (d.publishTime.equals(start)) {
+                start = null;
+            }
+            if (d.publishTime.equals(end)) {
+                end = null;
+            }
+        }
+
+        /**
+         * Get the earliest publish time in this bucket.
+         * <p>
+         * @return Start time.
+         */
+        Timestamp startTime() {
+            if (start == null) {
+                for (Document d : docs.values()) {
+                    if (start == null || d.publishTime.before(start)) {
+                        start = d.publishTime;
+                    }
+                }
+            }
+            return start;
+        }
+
+        /**
+         * Get the latest publish time in this bucket.
+         * <p>
+         * @return End time.
+         */
+        Timestamp endTime() {
+            if (end == null) {
+                for (Document d : docs.values()) {
+                    if (end == null || d.publishTime.after(end)) {
+                        end = d.publishTime;
+                    }
+                }
+            }
+            return end;
+        }
+
+    }
+
+}
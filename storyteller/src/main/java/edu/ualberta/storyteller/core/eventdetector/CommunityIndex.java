@@ -0,0 +1,260 @@
+package edu.ualberta.storyteller.core.eventdetector;
+
+import edu.ualberta.storyteller.core.dataloader.*;
+import edu.ualberta.storyteller.core.keywordorganizer.*;
+import edu.ualberta.storyteller.core.util.*;
+import java.util.*;
+
+/**
+ * This class matches documents to keyword communities by the cosine similarity of
+ * EventDetector.tfidfCosineSimilarityGraph2Doc.
+ * <p>
+ * Each community is compiled once into the tf-idf weights of its keywords and its vector size, and an
+ * inverted index maps each term to the keywords of all communities that contain it. A document is then
+ * scored against all its candidate communities in one pass over its own keywords. The candidates of a
+ * document are the communities with a keyword of the document that is not a duplicated node, which are
+ * the communities whose node postings contain the document.
+ * <p>
+ * Keywords are numbered community by community, in the iteration order of each community, and the
+ * products of a document are summed in that order, so similarities are the same as those computed by
+ * EventDetector.tfidfCosineSimilarityGraph2Doc to the last bit.
+ * <p>
+ * @author Bang Liu <bang3@ualberta.ca>
+ * @version 2017.1219
+ */
+public class CommunityIndex {
+
+    /**
+     * Number of communities.
+     */
+    private final int numCommunities;
+
+    /**
+     * Community of each indexed keyword.
+     */
+    private final int[] keywordCommunity;
+
+    /**
+     * Tf-idf weight of each indexed keyword in its community.
+     */
+    private final double[] keywordWeight;
+
+    /**
+     * Idf of each indexed keyword.
+     */
+    private final double[] keywordIdf;
+
+    /**
+     * Tf-idf vector size of each community.
+     */
+    private final double[] vectorSize;
+
+    /**
+     * Indexed keywords of each term id, in ascending order.
+     */
+    private final HashMap<Integer, int[]> termKeywords = new HashMap<>();
+
+    /**
+     * Candidate communities of each term id, in ascending order.
+     */
+    private final HashMap<Integer, int[]> termCommunities = new HashMap<>();
+
+    /**
+     * Parametric constructor.
+     * <p>
+     * As in EventDetector.tfidfCosineSimilarityGraph2Doc, the tf of each keyword of a community that has
+     * postings is set to the average of the larger conditional probabilities of its edges.
+     * <p>
+     * @param communities Keyword communities.
+     * @param DF The map between keywords and their df.
+     * @param docSize The number of total documents.
+     */
+    public CommunityIndex(ArrayList<HashMap<String, KeywordNode>> communities,
+                          HashMap<String, Double> DF,
+                          int docSize) {
+        numCommunities = communities.size();
+        vectorSize = new double[numCommunities];
+        ArrayList<Integer> community = new ArrayList<>();
+        ArrayList<Double> weight = new ArrayList<>();
+        ArrayList<Double> idf = new ArrayList<>();
+        HashMap<Integer, ArrayList<Integer>> keywordsOfTerm = new HashMap<>();
+        HashMap<Integer, ArrayList<Integer>> communitiesOfTerm = new HashMap<>();
+
+        for (int i = 0; i < numCommunities; ++i) {
+            HashMap<String, KeywordNode> c = communities.get(i);
+
+            // communities without postings are never matched, and their keywords keep their tf
+            boolean hasPostings = false;
+            for (KeywordNode n : c.values()) {
+                if (n.postings != null) {
+                    hasPostings = true;
+                    communitiesOfTerm.computeIfAbsent(n.keyword.termId, key -> new ArrayList<>()).add(i);
+                }
+            }
+            if (!hasPostings) {
+                continue;
+            }
+
+            double size = 0;
+            for (KeywordNode n : c.values()) {
+                // calculate the community keyword's tf
+                double nTF = 0;
+                for (KeywordEdge e : n.edges.values()) {
+                    nTF += Math.max(e.cp1, e.cp2);
+                }
+                n.keyword.tf = nTF / n.edges.size();
+
+                if (DF.containsKey(n.keyword.baseForm)) {
+                    double keywordIdf = NlpUtils.idf(DF.get(n.keyword.baseForm), docSize);
+                    double keywordWeight = NlpUtils.tfidf(n.keyword.tf, keywordIdf);
+                    size += Math.pow(keywordWeight, 2);
+                    keywordsOfTerm.computeIfAbsent(n.keyword.termId, key -> new ArrayList<>()).add(community.size());
+                    community.add(i);
+                    weight.add(keywordWeight);
+                    idf.add(keywordIdf);
+                }
+            }
+            vectorSize[i] = Math.sqrt(size);
+        }
+
+        int numKeywords = community.size();
+        keywordCommunity = new int[numKeywords];
+        keywordWeight = new double[numKeywords];
+        keywordIdf = new double[numKeywords];
+        for (int k = 0; k < numKeywords; ++k) {
+            keywordCommunity[k] = community.get(k);
+            keywordWeight[k] = weight.get(k);
+            keywordIdf[k] = idf.get(k);
+        }
+        for (Map.Entry<Integer, ArrayList<Integer>> entry : keywordsOfTerm.entrySet()) {
+            termKeywords.put(entry.getKey(), toArray(entry.getValue()));
+        }
+        for (Map.Entry<Integer, ArrayList<Integer>> entry : communitiesOfTerm.entrySet()) {
+            termCommunities.put(entry.getKey(), toArray(entry.getValue()));
+        }
+    }
+
+    /**
+     * Copy a list of integers into an array.
+     * <p>
+     * @param list The list.
+     * @return The array.
+     */
+    private static int[] toArray(ArrayList<Integer> list) {
+        int[] array = new int[list.size()];
+        for (int i = 0; i < array.length; ++i) {
+            array[i] = list.get(i);
+        }
+        return array;
+    }
+
+    /**
+     * Buffers for scoring documents one at a time. Each thread needs its own scorer.
+     */
+    public class Scorer {
+
+        /**
+         * Similarity of the last scored document to its community.
+         */
+        public double similarity;
+
+        /**
+         * Dot product of the scored document with each community.
+         */
+        private final double[] dot = new double[numCommunities];
+
+        /**
+         * The last document that made each community a candidate.
+         */
+        private final int[] mark = new int[numCommunities];
+
+        /**
+         * Number of scored documents.
+         */
+        private int numScored = 0;
+
+        /**
+         * Candidate communities of the scored document.
+         */
+        private int[] candidates = new int[16];
+
+        /**
+         * Indexed keywords of the scored document.
+         */
+        private int[] matched = new int[16];
+
+        /**
+         * Product of each indexed keyword with the scored document.
+         */
+        private final double[] product = new double[keywordCommunity.length];
+
+        /**
+         * Find the community most similar to a document. Ties go to the first community.
+         * Its similarity is left in the similarity field.
+         * <p>
+         * @param d The document.
+         * @return The community index, or -1 if the document has no candidate community.
+         */
+        public int bestCommunity(Document d) {
+            int stamp = ++numScored;
+            int numCandidates = 0;
+            int numMatched = 0;
+            SparseVector v = d.getTFVector();
+            for (int i = 0; i < v.size(); ++i) {
+                int termId = v.id(i);
+                int[] communities = termCommunities.get(termId);
+                if (communities != null) {
+                    for (int c : communities) {
+                        if (mark[c] != stamp) {
+                            mark[c] = stamp;
+                            dot[c] = 0;
+                            if (numCandidates == candidates.length) {
+                                candidates = Arrays.copyOf(candidates, 2 * numCandidates);
+                            }
+                            candidates[numCandidates++] = c;
+                        }
+                    }
+                }
+                double tf = v.weight(i);
+                int[] keywords = termKeywords.get(termId);
+                if (keywords != null && tf > 0) {
+                    for (int k : keywords) {
+                        product[k] = keywordWeight[k] * NlpUtils.tfidf(tf, keywordIdf[k]);
+                        if (numMatched == matched.length) {
+                            matched = Arrays.copyOf(matched, 2 * numMatched);
+                        }
+                        matched[numMatched++] = k;
+                    }
+                }
+            }
+
+            // sum products in the order of the keywords of each community
+            Arrays.sort(matched, 0, numMatched);
+            for (int m = 0; m < numMatched; ++m) {
+                int k = matched[m];
+                int c = keywordCommunity[k];
+                if (mark[c] == stamp) {
+                    dot[c] += product[k];
+                }
+            }
+
+            Arrays.sort(candidates, 0, numCandidates);
+            int best = -1;
+            similarity = -1;
+            for (int m = 0; m < numCandidates; ++m) {
+                int c = candidates[m];
+                double sim = 0;
+                if (vectorSize[c] > 0 && d.tfidfVectorSizeWithKeygraph > 0) {
+                    sim = dot[c] / vectorSize[c] / d.tfidfVectorSizeWithKeygraph;
+                }
+                if (sim > similarity) {
+                    best = c;
+                    similarity = sim;
+                }
+            }
+            return best;
+        }
+
+    }
+
+}
@@ -85,9 +85,6 @@ public class EventSplitterDocGraph extends EventSplitterDocRelation {
                 graphNodes.put(k.baseForm, n);
             }
 
-            // record the documents associated with this node
-            n.keyword.documents.put(d.id, d);
-
             // update keyword's tf
             n.keyword.tf++;
         }
@@ -357,14 +357,7 @@ public class FeatureExtractor {
      * @return TF vector cosine similarity of two documents.
      */
     public static double cosineSimilarityByTF(Document d1, Document d2) {
-        double sim = 0;
-        for (Keyword k1 : d1.keywords.values()) {
-            if (d2.keywords.containsKey(k1.baseForm)) {
-                double tf1 = k1.tf;
-                double tf2 = d2.keywords.get(k1.baseForm).tf;
-                sim += tf1 * tf2;
-            }
-        }
+        double sim = SparseVector.dot(d1.getTFVector(), d2.getTFVector());
 
         if (d1.tfVectorSize < 0) {
             d1.calcTFVectorSize();
@@ -392,13 +385,26 @@ public class FeatureExtractor {
                                                  Document d2,
                                                  HashMap<String, Double> DF,
                                                  int docSize) {
+        // merge-join the two tf vectors by term id
+        SparseVector v1 = d1.getTFVector();
+        SparseVector v2 = d2.getTFVector();
+        TermDictionary dictionary = TermDictionary.getInstance();
         double sim = 0;
-        for (Keyword k1 : d1.keywords.values()) {
-            if (d2.keywords.containsKey(k1.baseForm)) {
-                Double df = DF.get(k1.baseForm);
-                double tf1 = k1.tf;
-                double tf2 = d2.keywords.get(k1.baseForm).tf;
-                sim += NlpUtils.tfidf(tf1, NlpUtils.idf(df, docSize)) * NlpUtils.tfidf(tf2, NlpUtils.idf(df, docSize));
+        int i = 0;
+        int j = 0;
+        while (i < v1.size() && j < v2.size()) {
+            int id1 = v1.id(i);
+            int id2 = v2.id(j);
+            if (id1 == id2) {
+                Double df = DF.get(dictionary.getTerm(id1));
+                double idf = NlpUtils.idf(df, docSize);
+                sim += NlpUtils.tfidf(v1.weight(i), idf) * NlpUtils.tfidf(v2.weight(j), idf);
+                i++;
+                j++;
+            } else if (id1 < id2) {
+                i++;
+            } else {
+                j++;
             }
         }
 
@@ -0,0 +1,77 @@
+package edu.ualberta.storyteller.core.keywordorganizer;
+
+/**
+ * This class counts the work done by betweenness community detection.
+ * <p>
+ * Each call of CommunityDetectorBetweenness.detectCommunitiesBetweenness counts its own work and adds it
+ * to the progress object it is given, so one object can collect the work of components detected by
+ * several threads.
+ * <p>
+ * @author Bang Liu <bang3@ualberta.ca>
+ * @version 2017.1219
+ */
+public class BetweennessProgress {
+
+    /**
+     * Number of components given to betweenness community detection.
+     */
+    public long numComponents = 0;
+
+    /**
+     * Number of betweenness score computations, full or incremental.
+     */
+    public long numComputations = 0;
+
+    /**
+     * Number of removed edges with maximum betweenness score.
+     */
+    public long numRemovedEdges = 0;
+
+    /**
+     * Number of subgraphs separated into two by removing an edge.
+     */
+    public long numSplits = 0;
+
+    /**
+     * Number of found communities.
+     */
+    public long numCommunities = 0;
+
+    /**
+     * Number of communities kept as they were because the work budget of their component ran out.
+     */
+    public long numUnfinished = 0;
+
+    /**
+     * Maximum number of subgraphs waiting in the queue of a component.
+     */
+    public long maxQueueSize = 0;
+
+    /**
+     * Add the work counted by another progress object to this one.
+     * <p>
+     * @param other The other progress object.
+     */
+    public synchronized void add(BetweennessProgress other) {
+        numComponents += other.numComponents;
+        numComputations += other.numComputations;
+        numRemovedEdges += other.numRemovedEdges;
+        numSplits += other.numSplits;
+        numCommunities += other.numCommunities;
+        numUnfinished += other.numUnfinished;
+        maxQueueSize = Math.max(maxQueueSize, other.maxQueueSize);
+    }
+
+    /**
+     * Describe the counted work.
+     * <p>
+     * @return A line of counts for logs.
+     */
+    @Override
+    public synchronized String toString() {
+        return numComponents + " components, " + numComputations + " betweenness computations, "
+                + numRemovedEdges + " removed edges, " + numSplits + " splits, " + numCommunities
+                + " communities (" + numUnfinished + " unfinished), max queue size " + maxQueueSize;
+    }
+
+}
@@ -0,0 +1,512 @@
+package edu.ualberta.storyteller.core.keywordorganizer;
+
+import edu.ualberta.storyteller.core.util.ConcurrencyUtils;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * This class keeps the exact edge betweenness scores of a keyword graph component by the Brandes algorithm.
+ * <p>
+ * The score of an edge is the fraction of the shortest paths of each node pair that go through it.
+ * Scores are accumulated from every source node on a CSR snapshot of the component. Sources are
+ * split into fixed ranges that run in parallel, and the partial scores are summed in range order,
+ * so the scores do not depend on the number of threads.
+ * <p>
+ * Edges can be removed afterwards. If distances are kept, removing edges only recomputes the
+ * sources whose shortest path DAG contains a removed edge: their old contributions are subtracted
+ * and their new contributions are added. The distances of all sources take numNodes * numNodes ints.
+ * <p>
+ * For big components, the scores can be estimated from a sample of k pivot sources instead of all of
+ * them, scaled by numNodes / k. By the Hoeffding bound, with probability 1 - SAMPLE_DELTA every
+ * estimated score is within errorBound * numNodes * (numNodes - 1) / 2 of the exact score when
+ * k = ln(2 * numEdges / SAMPLE_DELTA) / (2 * errorBound^2).
+ * <p>
+ * Components with DENSE_MIN_NODES to denseMaxNodes nodes are searched on adjacency bit matrices by
+ * DenseBetweenness instead of the CSR snapshot. Smaller components fit in the cache either way, and
+ * their searches are faster on the CSR snapshot.
+ * <p>
+ * @author Bang Liu <bang3@ualberta.ca>
+ * @version 2017.1219
+ */
+public class BrandesBetweenness {
+
+    /**
+     * Number of source nodes accumulated by one task.
+     */
+    private static final int SOURCES_PER_TASK = 32;
+
+    /**
+     * Minimum number of nodes of a component searched on adjacency bit matrices.
+     */
+    public static final int DENSE_MIN_NODES = 256;
+
+    /**
+     * Relative difference under which two scores are considered equal.
+     * Scores updated incrementally differ from recomputed scores by rounding errors.
+     */
+    private static final double SCORE_EPSILON = 1e-9;
+
+    /**
+     * Probability that a sampled score exceeds its error bound.
+     */
+    public static final double SAMPLE_DELTA = 0.1;
+
+    /**
+     * Seed of pivot sampling, so that the same component gets the same pivots.
+     */
+    private static final long SAMPLE_SEED = 1;
+
+    /**
+     * The CSR snapshot of the component.
+     */
+    private final CsrGraph g;
+
+    /**
+     * Number of worker threads.
+     */
+    private final int numThreads;
+
+    /**
+     * Whether each edge has been removed.
+     */
+    private boolean[] removed;
+
+    /**
+     * Number of remaining edges of each node.
+     */
+    private final int[] degree;
+
+    /**
+     * Betweenness score of each edge. Each shortest path is counted from both of its ends.
+     */
+    private final double[] scores;
+
+    /**
+     * Source nodes whose dependencies are accumulated.
+     */
+    private final int[] pivots;
+
+    /**
+     * Factor from the summed dependencies of the pivots to the scores of all sources.
+     */
+    private final double scale;
+
+    /**
+     * Distance between each pivot and each node, row by pivot, or null if distances are not kept.
+     */
+    private final int[] dist;
+
+    /**
+     * The bit matrix kernel of the component, or null if it is searched on the CSR snapshot.
+     */
+    private final DenseBetweenness dense;
+
+    /**
+     * Edges removed since the last update.
+     */
+    private final ArrayList<Integer> pending = new ArrayList<>();
+
+    /**
+     * Parametric constructor. Computes the exact scores of all edges.
+     * <p>
+     * @param nodes The graph.
+     * @param numThreads Number of worker threads.
+     * @param keepDistances Whether keep the distances of all sources to update scores incrementally.
+     */
+    public BrandesBetweenness(HashMap<String, KeywordNode> nodes, int numThreads, boolean keepDistances) {
+        this(nodes, numThreads, keepDistances, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Parametric constructor. Computes the scores of all edges from a sample of pivot sources.
+     * <p>
+     * @param nodes The graph.
+     * @param numThreads Number of worker threads.
+     * @param keepDistances Whether keep the distances of the pivots to update scores incrementally.
+     * @param numPivots Number of pivots. If it is not smaller than the number of nodes, all nodes are
+     *                  sources and the scores are exact.
+     */
+    public BrandesBetweenness(HashMap<String, KeywordNode> nodes, int numThreads, boolean keepDistances,
+                              int numPivots) {
+        this(nodes, numThreads, keepDistances, numPivots, 0);
+    }
+
+    /**
+     * Parametric constructor. Computes the scores of all edges from a sample of pivot sources.
+     * <p>
+     * @param nodes The graph.
+     * @param numThreads Number of worker threads.
+     * @param keepDistances Whether keep the distances of the pivots to update scores incrementally.
+     * @param numPivots Number of pivots. If it is not smaller than the number of nodes, all nodes are
+     *                  sources and the scores are exact.
+     * @param denseMaxNodes Maximum number of nodes of a component searched on adjacency bit matrices.
+     *                      Components smaller than DENSE_MIN_NODES are never searched on them.
+     */
+    public BrandesBetweenness(HashMap<String, KeywordNode> nodes, int numThreads, boolean keepDistances,
+                              int numPivots, int denseMaxNodes) {
+        g = CsrGraph.of(nodes);
+        dense = g.size() >= DENSE_MIN_NODES && g.size() <= denseMaxNodes ? new DenseBetweenness(g) : null;
+        this.numThreads = numThreads;
+        removed = new boolean[g.numEdges()];
+        degree = new int[g.size()];
+        for (int i = 0; i < g.size(); ++i) {
+            degree[i] = g.degree(i);
+        }
+
+        // choose pivots by a partial shuffle of the nodes
+        int numNodes = g.size();
+        int[] sources = new int[numNodes];
+        for (int i = 0; i < numNodes; ++i) {
+            sources[i] = i;
+        }
+        if (numPivots < numNodes) {
+            Random random = new Random(SAMPLE_SEED);
+            for (int i = 0; i < numPivots; ++i) {
+                int j = i + random.nextInt(numNodes - i);
+                int t = sources[i];
+                sources[i] = sources[j];
+                sources[j] = t;
+            }
+            pivots = Arrays.copyOf(sources, Math.max(1, numPivots));
+        } else {
+            pivots = sources;
+        }
+        scale = numNodes == 0 ? 1 : (double) numNodes / pivots.length;
+        dist = keepDistances ? new int[pivots.length * numNodes] : null;
+
+        scores = accumulate(positions(pivots.length), null, removed);
+    }
+
+    /**
+     * Get the number of pivots needed to estimate all edge scores within an error bound.
+     * <p>
+     * @param numEdges Number of edges.
+     * @param errorBound Maximum error of a score, relative to the number of node pairs.
+     * @return Number of pivots.
+     */
+    public static int sampleSize(int numEdges, double errorBound) {
+        double k = Math.log(2.0 * Math.max(1, numEdges) / SAMPLE_DELTA) / (2 * errorBound * errorBound);
+        return (int) Math.min(Integer.MAX_VALUE, Math.ceil(k));
+    }
+
+    /**
+     * Get the error bound of the scores, which holds with probability 1 - SAMPLE_DELTA.
+     * <p>
+     * @return Maximum error of a score returned by getEdge, or 0 if all nodes are sources.
+     */
+    public double getErrorBound() {
+        int numNodes = g.size();
+        if (pivots.length >= numNodes) {
+            return 0;
+        }
+        double error = Math.sqrt(Math.log(2.0 * Math.max(1, g.numEdges()) / SAMPLE_DELTA) / (2 * pivots.length));
+        return error * numNodes * (numNodes - 1) / 2;
+    }
+
+    /**
+     * Get the positions 0 to n - 1 of the pivots.
+     * <p>
+     * @param n Number of positions.
+     * @return Positions.
+     */
+    private static int[] positions(int n) {
+        int[] positions = new int[n];
+        for (int i = 0; i < n; ++i) {
+            positions[i] = i;
+        }
+        return positions;
+    }
+
+    /**
+     * Get the edges with the highest scores, as KeywordEdge.compareBetweenness orders them.
+     * Edges with an end of degree smaller than 2 are never returned.
+     * <p>
+     * @param k Maximum number of edges.
+     * @return Edge indexes, from the highest score.
+     */
+    public int[] topEdges(int k) {
+        int[] top = new int[k];
+        int size = 0;
+        for (int e = 0; e < scores.length; ++e) {
+            if (removed[e] || compare(e, -1) <= 0) {
+                continue;
+            }
+            if (size == k && (k == 0 || compare(e, top[k - 1]) <= 0)) {
+                continue;
+            }
+            int i = size < k ? size++ : k - 1;
+            while (i > 0 && compare(e, top[i - 1]) > 0) {
+                top[i] = top[i - 1];
+                --i;
+            }
+            top[i] = e;
+        }
+        return Arrays.copyOf(top, size);
+    }
+
+    /**
+     * Get the keyword edge of an edge index, with its betweenness score set.
+     * <p>
+     * @param e Edge index.
+     * @return The keyword edge.
+     */
+    public KeywordEdge getEdge(int e) {
+        g.edges[e].betweennessScore = scores[e] * scale / 2;
+        return g.edges[e];
+    }
+
+    /**
+     * Get the edge with the maximum score.
+     * The betweenness scores of all remaining keyword edges are set.
+     * <p>
+     * @return The keyword edge, or an empty edge with score -1 if no edge can be split.
+     */
+    public KeywordEdge getMaxEdge() {
+        for (int e = 0; e < scores.length; ++e) {
+            if (!removed[e]) {
+                g.edges[e].betweennessScore = scores[e] * scale / 2;
+            }
+        }
+        int[] top = topEdges(1);
+        if (top.length == 0) {
+            KeywordEdge maxKeywordEdge = new KeywordEdge(null, null, null);
+            maxKeywordEdge.betweennessScore = -1;
+            return maxKeywordEdge;
+        }
+        return g.edges[top[0]];
+    }
+
+    /**
+     * Remove an edge. Scores are not changed until update() is called,
+     * but the edge no longer counts in the degrees of its nodes.
+     * <p>
+     * @param e Edge index.
+     */
+    public void remove(int e) {
+        if (!removed[e] && !pending.contains(e)) {
+            pending.add(e);
+            --degree[g.edgeN1[e]];
+            --degree[g.edgeN2[e]];
+        }
+    }
+
+    /**
+     * Check whether an edge can still be removed, which is false if it has been removed or
+     * if one of its nodes has no other edge left.
+     * <p>
+     * @param e Edge index.
+     * @return Whether the edge can be removed.
+     */
+    public boolean canRemove(int e) {
+        return !removed[e] && !pending.contains(e) && degree[g.edgeN1[e]] >= 2 && degree[g.edgeN2[e]] >= 2;
+    }
+
+    /**
+     * Update the scores after removing edges. Only the pivots whose shortest path DAG contains
+     * a removed edge are recomputed, unless they are more than half of the pivots, in which case
+     * all scores are recomputed. The component must still be connected.
+     */
+    public void update() {
+        if (dist == null) {
+            throw new IllegalStateException("Distances are not kept.");
+        }
+        if (pending.isEmpty()) {
+            return;
+        }
+
+        // an edge is in the shortest path DAG of a source if the distances of its ends differ by one
+        int numNodes = g.size();
+        int[] affected = new int[pivots.length];
+        int numAffected = 0;
+        for (int p = 0; p < pivots.length; ++p) {
+            int row = p * numNodes;
+            for (int e : pending) {
+                if (Math.abs(dist[row + g.edgeN1[e]] - dist[row + g.edgeN2[e]]) == 1) {
+                    affected[numAffected++] = p;
+                    break;
+                }
+            }
+        }
+
+        boolean[] newRemoved = removed.clone();
+        for (int e : pending) {
+            newRemoved[e] = true;
+        }
+        if (numAffected * 2 > pivots.length) {
+            // subtracting and adding costs two searches per source, so recompute all pivots instead
+            double[] recomputed = accumulate(positions(pivots.length), null, newRemoved);
+            System.arraycopy(recomputed, 0, scores, 0, scores.length);
+        } else {
+            double[] delta = accumulate(Arrays.copyOf(affected, numAffected), removed, newRemoved);
+            for (int e = 0; e < scores.length; ++e) {
+                scores[e] += delta[e];
+            }
+        }
+        removed = newRemoved;
+        pending.clear();
+    }
+
+    /**
+     * Accumulate the contributions of pivots in parallel ranges and sum them in range order.
+     * <p>
+     * @param sources Positions of the pivots.
+     * @param oldRemoved Removed flags of the old graph, whose contributions are subtracted, or null.
+     * @param newRemoved Removed flags of the graph whose contributions are added.
+     * @return Summed contribution of each edge.
+     */
+    private double[] accumulate(int[] sources, boolean[] oldRemoved, boolean[] newRemoved) {
+        int numRanges = (sources.length + SOURCES_PER_TASK - 1) / SOURCES_PER_TASK;
+        ArrayList<double[]> partials = new ArrayList<>();
+        if (numThreads > 1 && numRanges > 1) {
+            ForkJoinPool pool = ConcurrencyUtils.getPool(numThreads);
+            ArrayList<ForkJoinTask<double[]>> tasks = new ArrayList<>();
+            for (int r = 0; r < numRanges; ++r) {
+                int from = r * SOURCES_PER_TASK;
+                int to = Math.min(sources.length, from + SOURCES_PER_TASK);
+                tasks.add(pool.submit(() -> accumulateRange(sources, from, to, oldRemoved, newRemoved)));
+            }
+            for (ForkJoinTask<double[]> t : tasks) {
+                partials.add(t.join());
+            }
+        } else {
+            for (int r = 0; r < numRanges; ++r) {
+                int from = r * SOURCES_PER_TASK;
+                int to = Math.min(sources.length, from + SOURCES_PER_TASK);
+                partials.add(accumulateRange(sources, from, to, oldRemoved, newRemoved));
+            }
+        }
+
+        double[] sum = new double[g.numEdges()];
+        for (double[] partial : partials) {
+            for (int e = 0; e < sum.length; ++e) {
+                sum[e] += partial[e];
+            }
+        }
+        return sum;
+    }
+
+    /**
+     * Accumulate the contributions of a range of pivots.
+     * <p>
+     * @param sources Positions of the pivots.
+     * @param from First position in sources.
+     * @param to Last position in sources, exclusive.
+     * @param oldRemoved Removed flags of the old graph, whose contributions are subtracted, or null.
+     * @param newRemoved Removed flags of the graph whose contributions are added.
+     * @return Contribution of each edge.
+     */
+    private double[] accumulateRange(int[] sources, int from, int to, boolean[] oldRemoved, boolean[] newRemoved) {
+        int numNodes = g.size();
+        double[] partial = new double[g.numEdges()];
+        int[] order = new int[numNodes];
+        int[] d = new int[numNodes];
+        double[] sigma = new double[numNodes];
+        double[] delta = new double[numNodes];
+        DenseBetweenness.Workspace workspace = dense != null ? dense.new Workspace() : null;
+        for (int i = from; i < to; ++i) {
+            int source = pivots[sources[i]];
+            if (workspace != null) {
+                if (oldRemoved != null) {
+                    workspace.accumulateSource(source, oldRemoved, -1, partial, d);
+                }
+                workspace.accumulateSource(source, newRemoved, 1, partial, d);
+            } else {
+                if (oldRemoved != null) {
+                    accumulateSource(source, oldRemoved, -1, partial, order, d, sigma, delta);
+                }
+                accumulateSource(source, newRemoved, 1, partial, order, d, sigma, delta);
+            }
+            if (dist != null) {
+                System.arraycopy(d, 0, dist, sources[i] * numNodes, numNodes);
+            }
+        }
+        return partial;
+    }
+
+    /**
+     * Add the edge dependencies of one source, skipping removed edges.
+     * <p>
+     * @param source Source node index.
+     * @param skip Removed flags of edges.
+     * @param sign 1 to add the dependencies, -1 to subtract them.
+     * @param partial Scores to add to.
+     * @param order Buffer of nodes in breadth first order.
+     * @param d Buffer of distances from the source. Unreachable nodes get -1.
+     * @param sigma Buffer of shortest path counts.
+     * @param delta Buffer of node dependencies.
+     */
+    private void accumulateSource(int source, boolean[] skip, int sign, double[] partial,
+                                  int[] order, int[] d, double[] sigma, double[] delta) {
+        Arrays.fill(d, -1);
+        Arrays.fill(sigma, 0);
+        Arrays.fill(delta, 0);
+
+        // count shortest paths from the source by breadth first search
+        int head = 0;
+        int tail = 0;
+        order[tail++] = source;
+        d[source] = 0;
+        sigma[source] = 1;
+        while (head < tail) {
+            int v = order[head++];
+            for (int k = g.offsets[v]; k < g.offsets[v + 1]; ++k) {
+                if (skip[g.edgeIndexes[k]]) {
+                    continue;
+                }
+                int w = g.neighbors[k];
+                if (d[w] < 0) {
+                    d[w] = d[v] + 1;
+                    order[tail++] = w;
+                }
+                if (d[w] == d[v] + 1) {
+                    sigma[w] += sigma[v];
+                }
+            }
+        }
+
+        // accumulate dependencies in order of decreasing distance
+        for (int i = tail - 1; i > 0; --i) {
+            int w = order[i];
+            for (int k = g.offsets[w]; k < g.offsets[w + 1]; ++k) {
+                int v = g.neighbors[k];
+                if (d[v] == d[w] - 1 && !skip[g.edgeIndexes[k]]) {
+                    double c = sigma[v] / sigma[w] * (1 + delta[w]);
+                    partial[g.edgeIndexes[k]] += sign * c;
+                    delta[v] += c;
+                }
+            }
+        }
+    }
+
+    /**
+     * Compare two edges the same way as KeywordEdge.compareBetweenness,
+     * with the remaining degrees of nodes and scores that are equal up to rounding errors.
+     * <p>
+     * @param e Index of the edge.
+     * @param max Index of the edge to be compared with, or -1 for an empty edge with score -1.
+     * @return -1, 1 or 0 as KeywordEdge.compareBetweenness.
+     */
+    private int compare(int e, int max) {
+        double maxScore = max < 0 ? -1 : scores[max];
+        int maxDf = max < 0 ? 0 : g.df[max];
+        double epsilon = SCORE_EPSILON * Math.max(1, Math.abs(maxScore));
+        if (degree[g.edgeN1[e]] < 2 || degree[g.edgeN2[e]] < 2 || scores[e] < maxScore - epsilon) {
+            return -1;
+        }
+        if (scores[e] > maxScore + epsilon) {
+            return 1;
+        }
+        if (g.df[e] > maxDf) {
+            return -1;
+        }
+        if (g.df[e] < maxDf) {
+            return 1;
+        }
+        return 0;
+    }
+
+}
@@ -0,0 +1,435 @@
+package edu.ualberta.storyteller.core.keywordorganizer;
+
+import edu.ualberta.storyteller.core.dataloader.Keyword;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * This class caches the communities found from connected components, so that components that come back
+ * unchanged, for example on the next day of an overlapping window, are not detected again.
+ * <p>
+ * A component is identified by a 128 bit fingerprint of its keywords and of its edges with their
+ * document frequencies and conditional probabilities, which are all that community detection reads from
+ * a component. Each keyword and edge is hashed on its own and the hashes are summed, so the fingerprint
+ * does not depend on the order of the maps and needs no sorting.
+ * <p>
+ * The communities are stored by keyword: which keywords each community has, which of them are duplicated
+ * nodes, and which edges each node keeps. On a hit, the edges of the new component are cut and duplicated
+ * the same way, so the communities have the same nodes and edges as detecting them again, although their
+ * maps may iterate in another order.
+ * <p>
+ * At most capacity components are kept, and the least recently used one is evicted first. The cache is
+ * shared by the threads that detect components.
+ * <p>
+ * @author Bang Liu <bang3@ualberta.ca>
+ * @version 2017.1219
+ */
+public class CommunityCache {
+
+    /**
+     * Seed of the second hash of a fingerprint.
+     */
+    private static final long SEED = 0x9e3779b97f4a7c15L;
+
+    /**
+     * Maximum number of cached components.
+     */
+    private final int capacity;
+
+    /**
+     * The map of (fingerprint, communities), in order of last use.
+     */
+    private final LinkedHashMap<Fingerprint, Partition> entries;
+
+    /**
+     * Number of lookups.
+     */
+    private long numLookups = 0;
+
+    /**
+     * Number of lookups that found the component.
+     */
+    private long numHits = 0;
+
+    /**
+     * Number of evicted components.
+     */
+    private long numEvictions = 0;
+
+    /**
+     * Fingerprint of a component.
+     */
+    private static class Fingerprint {
+
+        /**
+         * First hash.
+         */
+        final long h1;
+
+        /**
+         * Second hash, with another seed.
+         */
+        final long h2;
+
+        /**
+         * Parametric constructor.
+         * <p>
+         * @param h1 First hash.
+         * @param h2 Second hash.
+         */
+        Fingerprint(long h1, long h2) {
+            this.h1 = h1;
+            this.h2 = h2;
+        }
+
+        /**
+         * Compare fingerprints.
+         * <p>
+         * @param o The other object.
+         * @return Whether both hashes are equal.
+         */
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Fingerprint && ((Fingerprint) o).h1 == h1 && ((Fingerprint) o).h2 == h2;
+        }
+
+        /**
+         * Get the hash code of the fingerprint.
+         * <p>
+         * @return Hash code.
+         */
+        @Override
+        public int hashCode() {
+            return (int) (h1 ^ (h1 >>> 32));
+        }
+
+    }
+
+    /**
+     * Communities of a component, by keyword.
+     */
+    private static class Partition {
+
+        /**
+         * Keywords of each node of each community, in the order of the community map.
+         */
+        String[][] nodes;
+
+        /**
+         * Whether each node of each community is a duplicated node.
+         */
+        boolean[][] duplicated;
+
+        /**
+         * Id of each edge of each community if it is an edge of the component, or null if it is a new edge.
+         */
+        String[][] edgeIds;
+
+        /**
+         * First and second node of each edge of each community, by node position in the community.
+         */
+        int[][] edgeNodes;
+
+        /**
+         * Edges of each node of each community, by edge position in the community, in the order of its edge map.
+         */
+        int[][][] nodeEdges;
+
+    }
+
+    /**
+     * A component seen by lookup, with its nodes and edges before community detection changes them.
+     */
+    public static class Snapshot {
+
+        /**
+         * Fingerprint of the component.
+         */
+        private final Fingerprint fingerprint;
+
+        /**
+         * The map of (keyword base form, keyword node) of the component.
+         */
+        private final HashMap<String, KeywordNode> nodes;
+
+        /**
+         * The cached communities, or null if the component is not cached.
+         */
+        public ArrayList<HashMap<String, KeywordNode>> communities;
+
+        /**
+         * Parametric constructor.
+         * <p>
+         * @param fingerprint Fingerprint of the component.
+         * @param nodes The map of (keyword base form, keyword node) of the component.
+         */
+        private Snapshot(Fingerprint fingerprint, HashMap<String, KeywordNode> nodes) {
+            this.fingerprint = fingerprint;
+            this.nodes = nodes;
+        }
+
+    }
+
+    /**
+     * Parametric constructor.
+     * <p>
+     * @param capacity Maximum number of cached components.
+     */
+    public CommunityCache(int capacity) {
+        this.capacity = capacity;
+        entries = new LinkedHashMap<Fingerprint, Partition>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Fingerprint, Partition> eldest) {
+                if (size() > CommunityCache.this.capacity) {
+                    ++numEvictions;
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Look up the communities of a component. If it is cached, its edges are cut and duplicated
+     * the same way as when it was stored, and snapshot.communities holds its communities.
+     * <p>
+     * @param component The component.
+     * @return The snapshot of the component, to store its communities if it is not cached.
+     */
+    public Snapshot lookup(HashMap<String, KeywordNode> component) {
+        Snapshot snapshot = new Snapshot(fingerprint(component), new HashMap<>(component));
+
+        Partition partition;
+        synchronized (this) {
+            ++numLookups;
+            partition = entries.get(snapshot.fingerprint);
+            if (partition != null) {
+                ++numHits;
+            }
+        }
+        if (partition != null) {
+            snapshot.communities = replay(partition, snapshot);
+        }
+        return snapshot;
+    }
+
+    /**
+     * Store the communities detected from a component.
+     * Communities with edges to nodes outside of them are not stored.
+     * <p>
+     * @param snapshot The snapshot of the component taken by lookup.
+     * @param communities The communities of the component.
+     */
+    public void store(Snapshot snapshot, ArrayList<HashMap<String, KeywordNode>> communities) {
+        int numCommunities = communities.size();
+        Partition partition = new Partition();
+        partition.nodes = new String[numCommunities][];
+        partition.duplicated = new boolean[numCommunities][];
+        partition.edgeIds = new String[numCommunities][];
+        partition.edgeNodes = new int[numCommunities][];
+        partition.nodeEdges = new int[numCommunities][][];
+        for (int c = 0; c < numCommunities; ++c) {
+            HashMap<String, KeywordNode> community = communities.get(c);
+            int size = community.size();
+            String[] names = new String[size];
+            boolean[] duplicated = new boolean[size];
+            IdentityHashMap<KeywordNode, Integer> positions = new IdentityHashMap<>();
+            int i = 0;
+            for (Map.Entry<String, KeywordNode> entry : community.entrySet()) {
+                names[i] = entry.getKey();
+                duplicated[i] = snapshot.nodes.get(entry.getKey()) != entry.getValue();
+                positions.put(entry.getValue(), i);
+                ++i;
+            }
+
+            IdentityHashMap<KeywordEdge, Integer> edgePositions = new IdentityHashMap<>();
+            ArrayList<String> edgeIds = new ArrayList<>();
+            ArrayList<Integer> edgeNodes = new ArrayList<>();
+            int[][] nodeEdges = new int[size][];
+            i = 0;
+            for (KeywordNode n : community.values()) {
+                nodeEdges[i] = new int[n.edges.size()];
+                int k = 0;
+                for (KeywordEdge e : n.edges.values()) {
+                    Integer position = edgePositions.get(e);
+                    if (position == null) {
+                        Integer n1 = positions.get(e.n1);
+                        Integer n2 = positions.get(e.n2);
+                        if (n1 == null || n2 == null) {
+                            return;
+                        }
+                        position = edgeIds.size();
+                        edgePositions.put(e, position);
+                        // edges between nodes of the component are kept, the others are new edges to duplicated nodes
+                        edgeIds.add(duplicated[n1] || duplicated[n2] ? null : e.id);
+                        edgeNodes.add(n1);
+                        edgeNodes.add(n2);
+                    }
+                    nodeEdges[i][k++] = position;
+                }
+                ++i;
+            }
+
+            partition.nodes[c] = names;
+            partition.duplicated[c] = duplicated;
+            partition.edgeIds[c] = edgeIds.toArray(new String[0]);
+            partition.edgeNodes[c] = new int[edgeNodes.size()];
+            for (int k = 0; k < edgeNodes.size(); ++k) {
+                partition.edgeNodes[c][k] = edgeNodes.get(k);
+            }
+            partition.nodeEdges[c] = nodeEdges;
+        }
+
+        synchronized (this) {
+            entries.put(snapshot.fingerprint, partition);
+        }
+    }
+
+    /**
+     * Cut and duplicate the edges of a component the same way as a cached partition.
+     * <p>
+     * @param partition The cached partition.
+     * @param snapshot The snapshot of the component.
+     * @return The communities of the component.
+     */
+    private static ArrayList<HashMap<String, KeywordNode>> replay(Partition partition, Snapshot snapshot) {
+        ArrayList<HashMap<String, KeywordNode>> communities = new ArrayList<>();
+        for (int c = 0; c < partition.nodes.length; ++c) {
+            String[] names = partition.nodes[c];
+            KeywordNode[] nodes = new KeywordNode[names.length];
+            for (int i = 0; i < names.length; ++i) {
+                KeywordNode n = snapshot.nodes.get(names[i]);
+                if (partition.duplicated[c][i]) {
+                    Keyword k = n.keyword;
+                    nodes[i] = new KeywordNode(new Keyword(k.baseForm, k.word, k.tf, k.df));
+                } else {
+                    nodes[i] = n;
+                }
+            }
+
+            // the nodes of the component still have all their edges, and the nodes of an edge are in the same community
+            String[] edgeIds = partition.edgeIds[c];
+            KeywordEdge[] edges = new KeywordEdge[edgeIds.length];
+            for (int k = 0; k < edges.length; ++k) {
+                KeywordNode n1 = nodes[partition.edgeNodes[c][2 * k]];
+                KeywordNode n2 = nodes[partition.edgeNodes[c][2 * k + 1]];
+                edges[k] = edgeIds[k] != null ? n1.edges.get(edgeIds[k]) : new KeywordEdge(n1, n2);
+            }
+
+            HashMap<String, KeywordNode> community = new HashMap<>();
+            for (int i = 0; i < names.length; ++i) {
+                nodes[i].edges.clear();
+                for (int k : partition.nodeEdges[c][i]) {
+                    nodes[i].edges.put(edges[k].id, edges[k]);
+                }
+                community.put(names[i], nodes[i]);
+            }
+            communities.add(community);
+        }
+        return communities;
+    }
+
+    /**
+     * Compute the fingerprint of a component.
+     * <p>
+     * @param component The component.
+     * @return The fingerprint.
+     */
+    private static Fingerprint fingerprint(HashMap<String, KeywordNode> component) {
+        long h1 = component.size();
+        long h2 = component.size();
+        for (KeywordNode n : component.values()) {
+            long name = hash(n.keyword.baseForm);
+            h1 += mix(name);
+            h2 += mix(name ^ SEED);
+            for (KeywordEdge e : n.edges.values()) {
+                // count each edge from its first node
+                if (e.n1 != n) {
+                    continue;
+                }
+                long h = hash(e.id) * 31 + hash(e.n1.keyword.baseForm);
+                h = mix(h ^ e.df);
+                h = mix(h ^ Double.doubleToLongBits(e.cp1));
+                h = mix(h ^ Double.doubleToLongBits(e.cp2));
+                h1 += mix(h ^ 1);
+                h2 += mix(h ^ SEED);
+            }
+        }
+        return new Fingerprint(h1, h2);
+    }
+
+    /**
+     * Hash a string to 64 bits by FNV-1a.
+     * <p>
+     * @param s The string.
+     * @return The hash.
+     */
+    private static long hash(String s) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < s.length(); ++i) {
+            h = (h ^ s.charAt(i)) * 0x100000001b3L;
+        }
+        return h;
+    }
+
+    /**
+     * Mix the bits of a hash, as the finalizer of SplitMix64.
+     * <p>
+     * @param h The hash.
+     * @return The mixed hash.
+     */
+    private static long mix(long h) {
+        h = (h ^ (h >>> 30)) * 0xbf58476d1ce4e5b9L;
+        h = (h ^ (h >>> 27)) * 0x94d049bb133111ebL;
+        return h ^ (h >>> 31);
+    }
+
+    /**
+     * Get the number of lookups.
+     * <p>
+     * @return Number of lookups.
+     */
+    public synchronized long getNumLookups() {
+        return numLookups;
+    }
+
+    /**
+     * Get the number of lookups that found the component.
+     * <p>
+     * @return Number of hits.
+     */
+    public synchronized long getNumHits() {
+        return numHits;
+    }
+
+    /**
+     * Get the number of evicted components.
+     * <p>
+     * @return Number of evictions.
+     */
+    public synchronized long getNumEvictions() {
+        return numEvictions;
+    }
+
+    /**
+     * Get the fraction of lookups that found the component.
+     * <p>
+     * @return Hit rate in [0, 1], or 0 if there was no lookup.
+     */
+    public synchronized double getHitRate() {
+        return numLookups == 0 ? 0 : (double) numHits / numLookups;
+    }
+
+    /**
+     * Get the number of cached components.
+     * <p>
+     * @return Number of cached components.
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+}
@@ -1,9 +1,15 @@
 package edu.ualberta.storyteller.core.keywordorganizer;
 
+import edu.ualberta.storyteller.core.dataloader.Keyword;
 import edu.ualberta.storyteller.core.parameter.Parameters;
+import edu.ualberta.storyteller.core.util.ConcurrencyUtils;
 import java.io.PrintStream;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 
 /**
  * Created by bangliu on 2017-12-23.
@@ -20,6 +26,21 @@ public class CommunityDetector {
      */
     public PrintStream logger = System.out;
 
+    /**
+     * Label propagation detector, which keeps the keyword labels of previous runs for warm starts.
+     */
+    public CommunityDetectorLabelPropagation labelPropagation;
+
+    /**
+     * Work done by betweenness community detection in the last run.
+     */
+    public BetweennessProgress betweennessProgress = new BetweennessProgress();
+
+    /**
+     * Communities of the components of previous runs, or null if they are not cached.
+     */
+    public CommunityCache communityCache;
+
     /**
      * Parametric constructor.
      * <p>
@@ -27,6 +48,9 @@ public class CommunityDetector {
      */
     public CommunityDetector(Parameters cons) {
         parameters = cons;
+        if (parameters.communityCacheSize > 0) {
+            communityCache = new CommunityCache(parameters.communityCacheSize);
+        }
     }
 
     /**
@@ -38,157 +62,236 @@ public class CommunityDetector {
      */
     public ArrayList<HashMap<String, KeywordNode>> detectCommunities(HashMap<String, KeywordNode> nodes) {
         logger.println("Extract Communities...");
-        for (KeywordNode n : nodes.values()) {
-            n.visited = false;
+        switch (parameters.communityDetectAlg.toLowerCase()) {
+            case "betweenness":
+            case "brandes":
+            case "louvain":
+            case "labelpropagation":
+                break;
+            default:
+                System.out.println("We haven't implement other community detection algorithms");
+                return null;
+        }
+
+        // label propagation only keeps the labels of the keywords of this graph
+        HashSet<String> keywords = null;
+        if (parameters.communityDetectAlg.equalsIgnoreCase("labelpropagation")) {
+            keywords = new HashSet<>(nodes.keySet());
+        }
+
+        // extract connected components from graph, and process them independently
+        betweennessProgress = new BetweennessProgress();
+        ArrayList<HashMap<String, KeywordNode>> communities = detectCommunities(findConnectedComponents(nodes));
+        if (labelPropagation != null && keywords != null) {
+            labelPropagation.retainLabels(keywords);
+        }
+        if (betweennessProgress.numComponents > 0) {
+            logger.println("Betweenness: " + betweennessProgress);
+        }
+        if (labelPropagation != null) {
+            synchronized (labelPropagation) {
+                logger.println("Label propagation: " + labelPropagation.numComponents + " components, "
+                        + labelPropagation.numIterations + " iterations, at most " + labelPropagation.maxIterations
+                        + " per component, since the detector was created");
+            }
+        }
+        if (communityCache != null) {
+            logger.println("Community cache: " + communityCache.getNumHits() + " hits of "
+                    + communityCache.getNumLookups() + " lookups, hit rate " + communityCache.getHitRate()
+                    + ", " + communityCache.size() + " components cached, "
+                    + communityCache.getNumEvictions() + " evicted");
         }
+        return communities;
+    }
+
+    /**
+     * Extract communities from connected components.
+     * <p>
+     * Components do not share nodes or edges, so with more than one thread they are processed by tasks
+     * of the shared work-stealing pool. Tasks are submitted from the biggest component to the smallest,
+     * so that a big component does not start last and keep one thread busy after the others are done.
+     * The communities of each component are joined in the order of the components, which keeps the result
+     * the same as a sequential run whatever the timing of the threads.
+     * <p>
+     * @param components Connected components of the keyword graph.
+     * @return A list of sub graphs.
+     */
+    private ArrayList<HashMap<String, KeywordNode>> detectCommunities(
+            ArrayList<HashMap<String, KeywordNode>> components) {
         ArrayList<HashMap<String, KeywordNode>> communities = new ArrayList<>();
+        if (parameters.numThreads <= 1 || components.size() <= 1) {
+            for (HashMap<String, KeywordNode> subNodes : components) {
+                communities.addAll(detectComponent(subNodes));
+            }
+            return communities;
+        }
 
-        // extract connected components from graph
-        ArrayList<HashMap<String, KeywordNode>> connectedComponents = findConnectedComponents(nodes);
-
-        // processing each connected component sub graph
-        while (connectedComponents.size() != 0) {
-            HashMap<String, KeywordNode> subNodes = connectedComponents.remove(0);
-
-            // filter small connected components
-            if (subNodes.size() >= parameters.minClusterNodeSize) {
-                // iteratively split big connected components into smaller ones
-                // this step is in case the graph is too big, and calculate betweenness score is too time consuming.
-                if (subNodes.size() > parameters.maxClusterNodeSize) {
-                    filterTopKPercentOfEdges(subNodes, 1);
-                    for (KeywordNode n : subNodes.values()) {
-                        n.visited = false;
-                    }
-                    connectedComponents.addAll(0, findConnectedComponents(subNodes));
+        Integer[] bySize = new Integer[components.size()];
+        for (int i = 0; i < bySize.length; ++i) {
+            bySize[i] = i;
+        }
+        Arrays.sort(bySize, (i, j) -> Integer.compare(components.get(j).size(), components.get(i).size()));
+        ForkJoinPool pool = ConcurrencyUtils.getPool(parameters.numThreads);
+        ArrayList<ForkJoinTask<ArrayList<HashMap<String, KeywordNode>>>> tasks = new ArrayList<>();
+        for (int i = 0; i < bySize.length; ++i) {
+            tasks.add(null);
+        }
+        for (int i : bySize) {
+            HashMap<String, KeywordNode> subNodes = components.get(i);
+            tasks.set(i, pool.submit(() -> detectComponent(subNodes)));
+        }
+        for (ForkJoinTask<ArrayList<HashMap<String, KeywordNode>>> t : tasks) {
+            communities.addAll(t.join());
+        }
+        return communities;
+    }
+
+    /**
+     * Extract communities from a connected component.
+     * <p>
+     * @param subNodes The connected component.
+     * @return A list of sub graphs, in the order a sequential run finds them.
+     */
+    private ArrayList<HashMap<String, KeywordNode>> detectComponent(HashMap<String, KeywordNode> subNodes) {
+        ArrayList<HashMap<String, KeywordNode>> communities = new ArrayList<>();
+
+        // filter small connected components
+        if (subNodes.size() < parameters.minClusterNodeSize) {
+            return communities;
+        }
+
+        // reuse the communities of the same component found before, except for label propagation,
+        // whose communities also depend on the labels of previous runs
+        CommunityCache.Snapshot snapshot = null;
+        if (communityCache != null && !parameters.communityDetectAlg.equalsIgnoreCase("labelpropagation")) {
+            snapshot = communityCache.lookup(subNodes);
+            if (snapshot.communities != null) {
+                return snapshot.communities;
+            }
+        }
+
+        // clustering using modularity, which is fast enough for whole connected components
+        if (parameters.communityDetectAlg.equalsIgnoreCase("louvain")) {
+            CommunityDetectorLouvain.detectCommunitiesLouvain(subNodes, communities, parameters);
+        }
+        // clustering using label propagation, and split communities that are still too big
+        else if (parameters.communityDetectAlg.equalsIgnoreCase("labelpropagation")) {
+            synchronized (this) {
+                if (labelPropagation == null) {
+                    labelPropagation = new CommunityDetectorLabelPropagation(parameters);
                 }
-                // clustering using betweenness centrality
-                else {
-                    switch (parameters.communityDetectAlg.toLowerCase()) {
-                        case "betweenness":
-                            CommunityDetectorBetweenness.detectCommunitiesBetweenness(subNodes, communities, parameters);
-                            break;
-                        default:
-                            System.out.println("We haven't implement other community detection algorithms");
-                            return null;
-                    }
+            }
+            ArrayList<HashMap<String, KeywordNode>> oversized = new ArrayList<>();
+            labelPropagation.detectCommunities(subNodes, communities, oversized);
+            for (HashMap<String, KeywordNode> community : oversized) {
+                for (HashMap<String, KeywordNode> part : ComponentSplitter.split(community,
+                        parameters.maxClusterNodeSize, 1)) {
+                    communities.addAll(detectComponent(part));
                 }
             }
         }
+        // iteratively split big connected components into smaller ones
+        // this step is in case the graph is too big, and calculate betweenness score is too time consuming.
+        else if (subNodes.size() > parameters.maxClusterNodeSize) {
+            for (HashMap<String, KeywordNode> part : ComponentSplitter.split(subNodes,
+                    parameters.maxClusterNodeSize, 1)) {
+                communities.addAll(detectComponent(part));
+            }
+        }
+        // clustering using betweenness centrality
+        else {
+            CommunityDetectorBetweenness.detectCommunitiesBetweenness(subNodes, communities, parameters,
+                    betweennessProgress);
+        }
 
+        if (snapshot != null) {
+            communityCache.store(snapshot, communities);
+        }
         return communities;
     }
 
     /**
      * Extract connected components from a graph.
+     * The graph is traversed in CSR form, and all nodes are removed from it.
      * <p>
      * @param nodes The graph we want to extract connected components from.
      * @return cc Array list of sub graphs. Each sub graph is a connected component.
      */
     public ArrayList<HashMap<String, KeywordNode>> findConnectedComponents(HashMap<String, KeywordNode> nodes) {
+        CsrGraph g = CsrGraph.of(nodes);
         ArrayList<HashMap<String, KeywordNode>> cc = new ArrayList<HashMap<String, KeywordNode>>();
-        while (nodes.size() > 0) {
-            KeywordNode source = nodes.values().iterator().next();
-            HashMap<String, KeywordNode> subNodes = new HashMap<String, KeywordNode>();
-            ArrayList<KeywordNode> q = new ArrayList<KeywordNode>();
-            q.add(0, source);
-            while (q.size() > 0) {
-                KeywordNode n = q.remove(0);
-                n.visited = true;
-                nodes.remove(n.keyword.baseForm);
-                subNodes.put(n.keyword.baseForm, n);
-                for (KeywordEdge e : n.edges.values()) {
-                    KeywordNode n2 = e.opposite(n);
-                    if (!n2.visited) {
-                        n2.visited = true;
-                        q.add(n2);
-                    }
-                }
-            }
-            cc.add(subNodes);
+        for (int[] component : g.connectedComponents()) {
+            cc.add(g.toNodes(component));
         }
+        nodes.clear();
         return cc;
     }
 
     /**
-     * Filter top k percentage of edges in a graph.
+     * Split a graph into communities given the community of each node.
      * <p>
-     * @param nodes The graph to remove edges from.
-     * @param k The percentage of edge we want to remove.
-     * @return Successfully filtered some edges or not.
+     * Edges between communities are removed from their nodes. As when betweenness community detection
+     * cuts an edge, the edge is duplicated into the other community if its conditional probability
+     * is higher than parameters.minCpToDuplicateEdge.
+     * <p>
+     * @param g The graph in CSR form.
+     * @param membership Community index of each node, numbered from 0.
+     * @param parameters Configuration.
+     * @return Communities by community index.
      */
-    private boolean filterTopKPercentOfEdges(HashMap<String, KeywordNode> nodes, double k) {
-        // count total number of edges in graph
-        int edgeSize = 0;
-        for (KeywordNode n1 : nodes.values()) {
-            edgeSize += n1.edges.size();
-        }
-        edgeSize /= 2;
-
-        // create edge list to save the most un-significant edges to remove
-        int nToRemove = (int) (edgeSize * k / 100);
-        if (nToRemove == 0) {
-            return false;
-        } else {
-            KeywordEdge[] toRemove = new KeywordEdge[nToRemove];
-
-            // iterate through all edges and remove appropriate edges from nodes' edge list
-            // TODO: notice that here seems remove randomly top k percent edges.
-            for (KeywordNode n1 : nodes.values()) {
-                for (KeywordEdge e : n1.edges.values()) {
-                    // to save time, do not try to remove an edge for twice.
-                    if (n1.equals(e.n1)) {
-                        // NOTICE: only for non-directional graph.
-                        insertInto(toRemove, e);
-                    }
-                }
-            }
+    static ArrayList<HashMap<String, KeywordNode>> cutCommunities(CsrGraph g, int[] membership, Parameters parameters) {
+        int numCommunities = 0;
+        for (int c : membership) {
+            numCommunities = Math.max(numCommunities, c + 1);
+        }
+        ArrayList<HashMap<String, KeywordNode>> communities = new ArrayList<>();
+        for (int c = 0; c < numCommunities; ++c) {
+            communities.add(new HashMap<>());
+        }
+        for (int i = 0; i < g.size(); ++i) {
+            communities.get(membership[i]).put(g.nodes[i].keyword.baseForm, g.nodes[i]);
+        }
 
-            for (KeywordEdge e : toRemove) {
-                e.n1.edges.remove(e.id);
-                e.n2.edges.remove(e.id);
+        // remove edges between communities
+        for (int e = 0; e < g.numEdges(); ++e) {
+            int c1 = membership[g.edgeN1[e]];
+            int c2 = membership[g.edgeN2[e]];
+            if (c1 == c2) {
+                continue;
             }
+            KeywordEdge edge = g.edges[e];
+            edge.n1.edges.remove(edge.id);
+            edge.n2.edges.remove(edge.id);
 
-            return true;
+            // duplicate edge if the conditional probability is higher than threshold
+            if (edge.cp1 > parameters.minCpToDuplicateEdge) {
+                duplicate(edge.n1, edge.n2, communities.get(c1));
+            }
+            if (edge.cp2 > parameters.minCpToDuplicateEdge) {
+                duplicate(edge.n2, edge.n1, communities.get(c2));
+            }
         }
+        return communities;
     }
 
     /**
-     * Insert edge e into remove array if the array is not full or
-     * e is less significant than any of the array elements.
+     * Connect a node with a copy of another node in its community. The copy is added to the community
+     * unless an earlier cut edge already added one, so that all edges of the community stay inside it.
      * <p>
-     * @param toRemove The edge array to save edges to be removed.
-     *                 Edges are sorted by strength (or significance).
-     *                 toRemove[0] is the edge with smallest strength.
-     * @param e The new edge that may be insert into the remove edge array.
-     * @return true if edge e is successfully inserted into toRemove array,
-     *         false if edge e is not inserted into toRemove array.
-     * NOTICE: seems the original code is incorrect. I revised this.
+     * @param n The node in the community.
+     * @param other The node to copy.
+     * @param community The community of n.
      */
-    public boolean insertInto(KeywordEdge[] toRemove, KeywordEdge e) {
-        // if array toRemove is of length 1
-        if (toRemove.length == 1) {
-            if (toRemove[0] == null || toRemove[0].compareEdgeStrength(e) < 0) {
-                toRemove[0] = e;
-                return true;
-            }
-            else {
-                return false;
-            }
-        }
-
-        // insert the new edge e into an appropriate position
-        if (toRemove[toRemove.length - 1] != null && toRemove[toRemove.length - 1].compareEdgeStrength(e) >= 0) {
-            return false;
-        }
-        else {
-            int i = toRemove.length - 1;
-            while (i >= 1 && (toRemove[i - 1] == null || toRemove[i - 1].compareEdgeStrength(e) < 0)) {
-                toRemove[i] = toRemove[i - 1];
-                i--;
-            }
-            toRemove[i] = e;
-            return true;
+    private static void duplicate(KeywordNode n, KeywordNode other, HashMap<String, KeywordNode> community) {
+        Keyword k = other.keyword;
+        KeywordNode newn = community.get(k.baseForm);
+        if (newn == null) {
+            newn = new KeywordNode(new Keyword(k.baseForm, k.word, k.tf, k.df));
+            community.put(k.baseForm, newn);
         }
+        KeywordEdge e = new KeywordEdge(n, newn);
+        n.edges.put(e.id, e);
+        newn.edges.put(e.id, e);
     }
 
 }
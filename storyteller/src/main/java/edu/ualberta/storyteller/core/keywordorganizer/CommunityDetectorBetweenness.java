@@ -2,20 +2,76 @@ package edu.ualberta.storyteller.core.keywordorganizer;
 
 import edu.ualberta.storyteller.core.dataloader.Keyword;
 import edu.ualberta.storyteller.core.parameter.Parameters;
+import edu.ualberta.storyteller.core.util.ConcurrencyUtils;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 
 /**
  * Created by bangliu on 2017-12-22.
  */
 public class CommunityDetectorBetweenness {
 
+    /**
+     * A subgraph waiting in the queue of betweenness community detection.
+     * Once it is separated into two subgraphs, it keeps them in the order they are processed.
+     */
+    private static class SplitTask {
+
+        /**
+         * The subgraph. It is null after the subgraph is separated.
+         */
+        HashMap<String, KeywordNode> nodes;
+
+        /**
+         * Betweenness scores kept between steps when they are updated incrementally.
+         */
+        BrandesBetweenness betweenness;
+
+        /**
+         * The subgraph that contains the first node of the removed edge, after the subgraph is separated.
+         */
+        SplitTask first;
+
+        /**
+         * The rest of the subgraph, after the subgraph is separated.
+         */
+        SplitTask second;
+
+        /**
+         * Whether the subgraph is a community.
+         */
+        boolean done = false;
+
+        /**
+         * Number of betweenness score computations of the subgraph.
+         */
+        int numComputations = 0;
+
+        /**
+         * Number of edges removed from the subgraph.
+         */
+        int numRemovedEdges = 0;
+
+        /**
+         * Parametric constructor.
+         * <p>
+         * @param nodes The subgraph.
+         */
+        SplitTask(HashMap<String, KeywordNode> nodes) {
+            this.nodes = nodes;
+        }
+
+    }
+
     /**
      * Find communities using betweenness centrality.
      * <p>
      * @param nodes The graph we need to find communities from.
      * @param communities The communities we found from the subgraph.
-     *                    This parameter is used to iteratively find communities.
      * @param parameters Configuration.
      * @return communities The communities extracted from the graph.
      */
@@ -23,81 +79,317 @@ public class CommunityDetectorBetweenness {
             HashMap<String, KeywordNode> nodes,
             ArrayList<HashMap<String, KeywordNode>> communities,
             Parameters parameters) {
+        return detectCommunitiesBetweenness(nodes, communities, parameters, null);
+    }
+
+    /**
+     * Find communities using betweenness centrality.
+     * <p>
+     * Subgraphs wait in a queue instead of the call stack, so the depth of splitting is not limited by
+     * the stack size. The queue is processed in rounds: each subgraph of a round removes the edge with
+     * maximum betweenness score, or a batch of edges with incremental scores, and is queued again if it
+     * is still connected, or as two subgraphs if it is separated. Subgraphs do not share nodes, so the
+     * subgraphs of a round run as tasks of the shared pool when there are several threads.
+     * <p>
+     * Each round costs one betweenness computation per subgraph. When parameters.betweennessWorkBudget
+     * computations have been spent on the component, the waiting subgraphs become communities as they
+     * are. Rounds and the budget do not depend on the number of threads, and the communities are listed
+     * in the order a depth first split would find them, so the result is the same for any number of
+     * threads.
+     * <p>
+     * @param nodes The graph we need to find communities from.
+     * @param communities The communities we found from the subgraph.
+     * @param parameters Configuration.
+     * @param progress The progress object to add the work to. It can be null.
+     * @return communities The communities extracted from the graph.
+     */
+    public static ArrayList<HashMap<String, KeywordNode>> detectCommunitiesBetweenness(
+            HashMap<String, KeywordNode> nodes,
+            ArrayList<HashMap<String, KeywordNode>> communities,
+            Parameters parameters,
+            BetweennessProgress progress) {
+        BetweennessProgress work = new BetweennessProgress();
+        work.numComponents = 1;
+        long budget = parameters.betweennessWorkBudget > 0 ? parameters.betweennessWorkBudget : Long.MAX_VALUE;
+        SplitTask root = new SplitTask(nodes);
+        ArrayList<SplitTask> queue = new ArrayList<>();
+        queue.add(root);
+        while (!queue.isEmpty()) {
+            work.maxQueueSize = Math.max(work.maxQueueSize, queue.size());
+            int numRun = (int) Math.min(queue.size(), budget);
+            budget -= numRun;
+            for (int i = numRun; i < queue.size(); ++i) {
+                queue.get(i).done = true;
+                ++work.numUnfinished;
+            }
+            runRound(queue.subList(0, numRun), parameters);
+
+            ArrayList<SplitTask> next = new ArrayList<>();
+            for (SplitTask task : queue) {
+                if (task.first != null) {
+                    next.add(task.first);
+                    next.add(task.second);
+                } else if (!task.done) {
+                    next.add(task);
+                }
+            }
+            queue = next;
+        }
+
+        // list communities depth first, the first subgraph of a split before the second one
+        ArrayList<SplitTask> stack = new ArrayList<>();
+        stack.add(root);
+        while (!stack.isEmpty()) {
+            SplitTask task = stack.remove(stack.size() - 1);
+            work.numComputations += task.numComputations;
+            work.numRemovedEdges += task.numRemovedEdges;
+            if (task.first != null) {
+                ++work.numSplits;
+                stack.add(task.second);
+                stack.add(task.first);
+            } else {
+                communities.add(task.nodes);
+                ++work.numCommunities;
+            }
+        }
+
+        if (progress != null) {
+            progress.add(work);
+        }
+        return communities;
+    }
+
+    /**
+     * Run one step of each subgraph of a round.
+     * <p>
+     * @param tasks The subgraphs of the round.
+     * @param parameters Configuration.
+     */
+    private static void runRound(List<SplitTask> tasks, Parameters parameters) {
+        if (parameters.numThreads <= 1 || tasks.size() <= 1) {
+            for (SplitTask task : tasks) {
+                runStep(task, parameters);
+            }
+            return;
+        }
+        ForkJoinPool pool = ConcurrencyUtils.getPool(parameters.numThreads);
+        ArrayList<ForkJoinTask<?>> futures = new ArrayList<>();
+        for (SplitTask task : tasks) {
+            futures.add(pool.submit(() -> runStep(task, parameters)));
+        }
+        for (ForkJoinTask<?> f : futures) {
+            f.join();
+        }
+    }
+
+    /**
+     * Remove the edge with maximum betweenness score from a subgraph, and separate the subgraph if it is
+     * no longer connected. The subgraph is done if the edge does not pass the filter.
+     * <p>
+     * @param task The subgraph.
+     * @param parameters Configuration.
+     */
+    private static void runStep(SplitTask task, Parameters parameters) {
+        if (parameters.useIncrementalBetweenness && "brandes".equalsIgnoreCase(parameters.communityDetectAlg)) {
+            runIncrementalStep(task, parameters);
+            return;
+        }
+        HashMap<String, KeywordNode> nodes = task.nodes;
+
         // find the edge with maximum betweenness score
-        KeywordEdge maxKeywordEdge = findMaxEdge(nodes);
+        KeywordEdge maxKeywordEdge = findMaxEdge(nodes, parameters);
+        ++task.numComputations;
 
         // decide whether continue to find sub communities
-        if (getFilterStatus(nodes.size(), maxKeywordEdge, parameters)) {
+        if (!getFilterStatus(nodes.size(), maxKeywordEdge, parameters)) {
+            task.done = true;
+            return;
+        }
+
+        // remove the edge with maximum betweenness score
+        maxKeywordEdge.n1.edges.remove(maxKeywordEdge.id);
+        maxKeywordEdge.n2.edges.remove(maxKeywordEdge.id);
+        ++task.numRemovedEdges;
+
+        // check if the graph still connected, if not, separate it
+        HashMap<String, KeywordNode> subgraph1 = findSubgraph(maxKeywordEdge.n1, nodes);
+        if (subgraph1.size() != nodes.size()) {
+            split(task, subgraph1, maxKeywordEdge, parameters);
+        }
+    }
+
+    /**
+     * Remove edges with maximum Brandes betweenness scores from a subgraph, updating the scores incrementally.
+     * <p>
+     * While the graph stays connected, the scores are not recomputed from scratch after removing
+     * edges: only the sources whose shortest paths used the removed edges are recomputed. Up to
+     * parameters.betweennessBatchSize edges with the highest scores are removed per update. A batch
+     * stops at the first edge that does not pass the filter or that disconnects the graph.
+     * With a batch size of 1, the communities are the same as removing one edge per step
+     * with the Brandes algorithm. Components bigger than parameters.betweennessSampleThreshold keep
+     * the pivots chosen when they are first scored.
+     * <p>
+     * @param task The subgraph.
+     * @param parameters Configuration.
+     */
+    private static void runIncrementalStep(SplitTask task, Parameters parameters) {
+        HashMap<String, KeywordNode> nodes = task.nodes;
+        if (task.betweenness == null) {
+            task.betweenness = new BrandesBetweenness(nodes, parameters.numThreads, true,
+                    numPivots(nodes, parameters), parameters.denseBetweennessMaxNodes);
+        } else {
+            task.betweenness.update();
+        }
+        ++task.numComputations;
+
+        BrandesBetweenness betweenness = task.betweenness;
+        int numRemoved = 0;
+        for (int e : betweenness.topEdges(Math.max(1, parameters.betweennessBatchSize))) {
+            if (!betweenness.canRemove(e)) {
+                continue;
+            }
+            KeywordEdge maxKeywordEdge = betweenness.getEdge(e);
+            if (!getFilterStatus(nodes.size(), maxKeywordEdge, parameters)) {
+                break;
+            }
+
             // remove the edge with maximum betweenness score
             maxKeywordEdge.n1.edges.remove(maxKeywordEdge.id);
             maxKeywordEdge.n2.edges.remove(maxKeywordEdge.id);
+            betweenness.remove(e);
+            ++numRemoved;
+            ++task.numRemovedEdges;
 
-            // check if the graph still connected,
-            // if yes, iteratively run to find communities
+            // separate the graph if it is no longer connected
             HashMap<String, KeywordNode> subgraph1 = findSubgraph(maxKeywordEdge.n1, nodes);
-            if (subgraph1.size() == nodes.size()) {
-                return detectCommunitiesBetweenness(nodes, communities, parameters);
-            } else {
-                // remove a subgraph from the whole graph
-                for (String key : subgraph1.keySet()) {
-                    nodes.remove(key);
-                }
+            if (subgraph1.size() != nodes.size()) {
+                split(task, subgraph1, maxKeywordEdge, parameters);
+                return;
+            }
+        }
+        if (numRemoved == 0) {
+            task.betweenness = null;
+            task.done = true;
+        }
+    }
 
-                // duplicate edge if the conditional probability is higher than threshold
-                if (maxKeywordEdge.cp1 > parameters.minCpToDuplicateEdge) {
-                    Keyword k = maxKeywordEdge.n2.keyword;
-                    KeywordNode newn = new KeywordNode(new Keyword(k.baseForm, k.word, k.tf, k.df));
-                    KeywordEdge e = new KeywordEdge(maxKeywordEdge.n1, newn);
-                    maxKeywordEdge.n1.edges.put(e.id, e);
-                    newn.edges.put(e.id, e);
-                    subgraph1.put(k.baseForm, newn);
-                }
-                if (maxKeywordEdge.cp2 > parameters.minCpToDuplicateEdge) {
-                    Keyword k = maxKeywordEdge.n1.keyword;
-                    KeywordNode newn = new KeywordNode(new Keyword(k.baseForm, k.word, k.tf, k.df));
-                    KeywordEdge e = new KeywordEdge(newn, maxKeywordEdge.n2);
-                    maxKeywordEdge.n2.edges.put(e.id, e);
-                    newn.edges.put(e.id, e);
-                    nodes.put(k.baseForm, newn);
-                }
+    /**
+     * Separate a subgraph into two subgraphs after removing an edge.
+     * <p>
+     * @param task The subgraph. Its nodes are moved to two new subgraphs.
+     * @param subgraph1 The subgraph that contains the first node of the removed edge.
+     * @param maxKeywordEdge The removed edge.
+     * @param parameters Configuration.
+     */
+    private static void split(SplitTask task, HashMap<String, KeywordNode> subgraph1, KeywordEdge maxKeywordEdge,
+                              Parameters parameters) {
+        // remove a subgraph from the whole graph
+        HashMap<String, KeywordNode> nodes = task.nodes;
+        for (String key : subgraph1.keySet()) {
+            nodes.remove(key);
+        }
+
+        // duplicate edge if the conditional probability is higher than threshold
+        if (maxKeywordEdge.cp1 > parameters.minCpToDuplicateEdge) {
+            Keyword k = maxKeywordEdge.n2.keyword;
+            KeywordNode newn = new KeywordNode(new Keyword(k.baseForm, k.word, k.tf, k.df));
+            KeywordEdge e = new KeywordEdge(maxKeywordEdge.n1, newn);
+            maxKeywordEdge.n1.edges.put(e.id, e);
+            newn.edges.put(e.id, e);
+            subgraph1.put(k.baseForm, newn);
+        }
+        if (maxKeywordEdge.cp2 > parameters.minCpToDuplicateEdge) {
+            Keyword k = maxKeywordEdge.n1.keyword;
+            KeywordNode newn = new KeywordNode(new Keyword(k.baseForm, k.word, k.tf, k.df));
+            KeywordEdge e = new KeywordEdge(newn, maxKeywordEdge.n2);
+            maxKeywordEdge.n2.edges.put(e.id, e);
+            newn.edges.put(e.id, e);
+            nodes.put(k.baseForm, newn);
+        }
 
-                // keep find communities for the separated two subgraphs
-                detectCommunitiesBetweenness(subgraph1, communities, parameters);
-                detectCommunitiesBetweenness(nodes, communities, parameters);
+        // keep find communities for the separated two subgraphs
+        task.first = new SplitTask(subgraph1);
+        task.second = new SplitTask(nodes);
+        task.nodes = null;
+        task.betweenness = null;
+    }
 
-                return communities;
+    /**
+     * Find the edge with maximum betweenness score with the algorithm given by parameters.communityDetectAlg.
+     * <p>
+     * @param nodes The graph we are analyzing.
+     * @param parameters Configuration.
+     * @return maxEdge The edge with maximum betweenness score.
+     */
+    public static KeywordEdge findMaxEdge(HashMap<String, KeywordNode> nodes, Parameters parameters) {
+        if ("brandes".equalsIgnoreCase(parameters.communityDetectAlg)) {
+            if (nodes.size() > parameters.betweennessSampleThreshold) {
+                return findMaxEdgeApproximation(nodes, parameters);
             }
-        } else {
-            communities.add(nodes);
-            return communities;
+            return findMaxEdgeBrandes(nodes, parameters.numThreads, parameters.denseBetweennessMaxNodes);
         }
+        return findMaxEdge(nodes);
     }
 
     /**
      * Find the edge with maximum betweenness score.
      * <p>
+     * The breadth first searches of all source nodes run on a CSR snapshot of the graph.
+     * <p>
      * @param nodes The graph we are analyzing.
      * @return maxEdge The edge with maximum betweenness score.
      */
     public static KeywordEdge findMaxEdge(HashMap<String, KeywordNode> nodes) {
-        // clear each edge's betweenness score,
-        // as it changes when graph structure changes
-        for (KeywordNode n : nodes.values()) {
-            for (KeywordEdge e : n.edges.values()) {
-                e.betweennessScore = 0;
-            }
-        }
+        CsrGraph g = CsrGraph.of(nodes);
+        int numNodes = g.size();
+        double[] scores = new double[g.numEdges()];
+        boolean[] visited = new boolean[numNodes];
+        int[] prev = new int[numNodes];
+        int[] prevEdge = new int[numNodes];
+        // the source is not marked as visited, so it may be queued twice
+        int[] q = new int[numNodes + 1];
 
-        // initialize variable to save the edge with maximum betweenness score
-        KeywordEdge maxKeywordEdge = new KeywordEdge(null, null, null);
-        maxKeywordEdge.betweennessScore = -1;
+        // find the edge with maximum betweenness score, -1 stands for an empty edge with score -1
+        int maxEdge = -1;
+        for (int source = 0; source < numNodes; ++source) {
+            Arrays.fill(visited, false);
+            int head = 0;
+            int tail = 0;
+            q[tail++] = source;
+            while (head < tail) {
+                int n = q[head++];
+                for (int k = g.offsets[n]; k < g.offsets[n + 1]; ++k) {
+                    int n2 = g.neighbors[k];
+                    if (!visited[n2]) {
+                        visited[n2] = true;
+                        prev[n2] = n;
+                        prevEdge[n2] = g.edgeIndexes[k];
 
-        // find the edge with maximum betweenness score
-        for (KeywordNode source : nodes.values()) {
-            for (KeywordNode n : nodes.values()) {
-                n.visited = false;
+                        // update the betweenness score of edges in the path (source -> n2)
+                        int m = n2;
+                        do {
+                            scores[prevEdge[m]]++;
+                            m = prev[m];
+                        } while (m != source);
+
+                        if (compareBetweenness(g, scores, g.edgeIndexes[k], maxEdge) > 0) {
+                            maxEdge = g.edgeIndexes[k];
+                        }
+                        q[tail++] = n2;
+                    }
+                }
             }
-            maxKeywordEdge = BFS(source, maxKeywordEdge);
+        }
+
+        for (int i = 0; i < g.numEdges(); ++i) {
+            g.edges[i].betweennessScore = scores[i];
+        }
+        KeywordEdge maxKeywordEdge;
+        if (maxEdge < 0) {
+            maxKeywordEdge = new KeywordEdge(null, null, null);
+            maxKeywordEdge.betweennessScore = -1;
+        } else {
+            maxKeywordEdge = g.edges[maxEdge];
         }
 
         // for undirected graph, each shortest path will be count for twice,
@@ -107,60 +399,59 @@ public class CommunityDetectorBetweenness {
     }
 
     /**
-     * Using Breath First Search to get edge with maximum betweenness score.
+     * Find the edge with maximum exact betweenness score by the Brandes algorithm.
      * <p>
-     * Given a source node, the BFS visits each other node in the graph. Every
-     * time it reaches a new unvisited node, all the edges' betweenness score
-     * in the path (source node -> new unvisited node) will increase by 1 using
-     * the 'updateBetweennessScore' function. After executing this function, the
-     * total increased betweenness score of each edge is: how many shortest paths
-     * from source node to any other nodes in the graph go through this edge.
+     * Unlike findMaxEdge, which counts one shortest path per node pair, the score of an edge is
+     * the fraction of all shortest paths of each node pair that go through it.
+     * The score of every edge of the graph is updated.
      * <p>
-     * @param source The search source node where we start the BFS algorithm.
-     * @param maxKeywordEdge The edge with maximum betweenness score.
-     *                       This parameter is used for iteratively executing this function.
-     * @return maxKeywordEdge The edge with maximum betweenness score.
+     * @param nodes The graph we are analyzing.
+     * @param numThreads Number of worker threads.
+     * @return maxEdge The edge with maximum betweenness score.
      */
-    public static KeywordEdge BFS(KeywordNode source, KeywordEdge maxKeywordEdge) {
-        ArrayList<KeywordNode> q = new ArrayList<>();
-        q.add(source);
-        while (q.size() > 0) {
-            KeywordNode n = q.remove(0);
-            for (KeywordEdge e : n.edges.values()) {
-                KeywordNode n2 = e.opposite(n);
-                if (!n2.visited) {
-                    n2.visited = true;
-                    n2.prev = n;
-                    updateBetweennessScore(n2, source, maxKeywordEdge);
-                    if (e.compareBetweenness(maxKeywordEdge) > 0) {
-                        maxKeywordEdge = e;
-                    }
-                    q.add(n2);
-                }
-            }
-        }
-        return maxKeywordEdge;
+    public static KeywordEdge findMaxEdgeBrandes(HashMap<String, KeywordNode> nodes, int numThreads) {
+        return findMaxEdgeBrandes(nodes, numThreads, 0);
     }
 
     /**
-     * Update the betweenness score of edges in the path (root -> n).
-     * Update maxKeywordEdge.
+     * Find the edge with maximum exact betweenness score by the Brandes algorithm,
+     * searching small components on adjacency bit matrices.
      * <p>
-     * @param n The destination node we now arrive.
-     * @param root The source node where we start the path search.
-     * @param maxKeywordEdge The edge with maximum betweenness score.
-     * @return maxKeywordEdge The edge with maximum betweenness score.
+     * @param nodes The graph we are analyzing.
+     * @param numThreads Number of worker threads.
+     * @param denseMaxNodes Maximum number of nodes of a component searched on adjacency bit matrices.
+     * @return maxEdge The edge with maximum betweenness score.
      */
-    public static KeywordEdge updateBetweennessScore(KeywordNode n, KeywordNode root, KeywordEdge maxKeywordEdge) {
-        do {
-            KeywordEdge e = n.edges.get(KeywordEdge.getId(n, n.prev));
-            e.betweennessScore++;
-            if (e.compareBetweenness(maxKeywordEdge) > 0) {
-                maxKeywordEdge = e;
-            }
-            n = n.prev;
-        } while (!n.equals(root));
-        return maxKeywordEdge;
+    public static KeywordEdge findMaxEdgeBrandes(HashMap<String, KeywordNode> nodes, int numThreads,
+                                                 int denseMaxNodes) {
+        return new BrandesBetweenness(nodes, numThreads, false, Integer.MAX_VALUE, denseMaxNodes).getMaxEdge();
+    }
+
+    /**
+     * Compare two edges' betweenness score in a CSR graph, the same way as KeywordEdge.compareBetweenness.
+     * <p>
+     * @param g The graph.
+     * @param scores Betweenness score of each edge.
+     * @param e Index of the edge.
+     * @param max Index of the edge to be compared with, or -1 for an empty edge with score -1.
+     * @return -1, 1 or 0 as KeywordEdge.compareBetweenness.
+     */
+    private static int compareBetweenness(CsrGraph g, double[] scores, int e, int max) {
+        double maxScore = max < 0 ? -1 : scores[max];
+        int maxDf = max < 0 ? 0 : g.df[max];
+        if (g.degree(g.edgeN1[e]) < 2 || g.degree(g.edgeN2[e]) < 2 || scores[e] < maxScore) {
+            return -1;
+        }
+        if (scores[e] > maxScore) {
+            return 1;
+        }
+        if (g.df[e] > maxDf) {
+            return -1;
+        }
+        if (g.df[e] < maxDf) {
+            return 1;
+        }
+        return 0;
     }
 
     /**
@@ -190,107 +481,48 @@ public class CommunityDetectorBetweenness {
      * @return subNodes A sub graph that contains the source node.
      */
     public static HashMap<String, KeywordNode> findSubgraph(KeywordNode source, HashMap<String, KeywordNode> nodes) {
-        for (KeywordNode n : nodes.values()) {
-            n.visited = false;
-        }
-        HashMap<String, KeywordNode> subNodes = new HashMap<>();
-        ArrayList<KeywordNode> q = new ArrayList<>();
-        q.add(source);
-        while (q.size() > 0) {
-            KeywordNode n = q.remove(0);
-            n.visited = true;
-            subNodes.put(n.keyword.baseForm, n);
-            for (KeywordEdge e : n.edges.values()) {
-                KeywordNode n2 = e.opposite(n);
-                if (!n2.visited) {
-                    n2.visited = true;
-                    q.add(n2);
-                }
-            }
-        }
-        return subNodes;
+        CsrGraph g = CsrGraph.of(nodes);
+        return g.toNodes(g.bfs(g.indexOf(source), new boolean[g.size()]));
     }
 
     /**
-     * Using Breath First Search to get edge with approximate maximum betweenness score.
+     * Find the edge with approximate maximum betweenness score.
      * <p>
-     * Sample nodes pairs when graph size is over threshold to save time.
+     * Brandes dependencies are accumulated from a sample of pivot sources only and scaled to all sources.
+     * The number of pivots is given by numPivots. The score of every edge of the graph is updated.
      * <p>
      * @param nodes The graph we are analyzing.
      * @param parameters Configuration.
      * @return maxEdge The edge with approximate maximum betweenness score.
      */
     public static KeywordEdge findMaxEdgeApproximation(HashMap<String, KeywordNode> nodes, Parameters parameters) {
-        // clear each edge's betweenness score,
-        // as it changes when graph structure changes
-        System.out.println("KeywordNode size: " + nodes.size());
-        for (KeywordNode n : nodes.values()) {
-            for (KeywordEdge e : n.edges.values()) {
-                e.betweennessScore = 0;
-            }
-        }
-
-        // initialize variable to save the edge with maximum betweenness score
-        KeywordEdge maxKeywordEdge = new KeywordEdge(null, null, null);
-        maxKeywordEdge.betweennessScore = -1;
-
-        // find the edge with approximate maximum betweenness score
-        long milis = System.currentTimeMillis();
-        for (KeywordNode source : nodes.values()) {
-            for (KeywordNode dest : nodes.values()) {
-                // sample node pairs when graph size is bigger than threshold
-                if (source.id.compareTo(dest.id) < 0 &&
-                        Math.random() < Math.pow((double) parameters.maxClusterNodeSize / nodes.size(), 2)) {
-                    for (KeywordNode nn : nodes.values()) {
-                        nn.visited = false;
-                    }
-                    maxKeywordEdge = BFS(source, dest, maxKeywordEdge);
-                }
-            }
-        }
-        System.out.println("Time (milis) for finding approximate maximum betweenness score edge: " +
-                (System.currentTimeMillis() - milis) / 1000);
-        return maxKeywordEdge;
+        return new BrandesBetweenness(nodes, parameters.numThreads, false, numPivots(nodes, parameters),
+                parameters.denseBetweennessMaxNodes).getMaxEdge();
     }
 
     /**
-     * Using Breath First Search to get edge with maximum betweenness score.
+     * Get the number of pivot sources for estimating the betweenness scores of a graph.
      * <p>
-     * Given source and destination node, BFS the graph and update edges' betweenness score
-     * in the search path. Update maxKeywordEdge and return it.
-     * NOTICE: I am suspicious about the way they do this.
+     * Graphs with at most parameters.betweennessSampleThreshold nodes use all nodes as sources.
+     * Bigger graphs use parameters.betweennessSampleSize pivots, or, if it is not positive, as many
+     * pivots as needed for the error bound parameters.betweennessSampleError.
      * <p>
-     * @param source The source node for BFS.
-     * @param dest The destination node for BFS.
-     * @param maxKeywordEdge The edge with maximum betweenness score after this search.
-     * @return maxKeywordEdge The edge with maximum betweenness score after this search.
+     * @param nodes The graph.
+     * @param parameters Configuration.
+     * @return Number of pivots.
      */
-    public static KeywordEdge BFS(KeywordNode source, KeywordNode dest, KeywordEdge maxKeywordEdge) {
-        ArrayList<KeywordNode> q = new ArrayList<KeywordNode>();
-        q.add(source);
-        source.visited = true;
-        while (q.size() > 0) {
-            KeywordNode n = q.remove(0);
-            for (KeywordEdge e : n.edges.values()) {
-                KeywordNode n2 = e.opposite(n);
-                if (n2.equals(dest)) {
-                    e.betweennessScore++;
-                    if (e.compareBetweenness(maxKeywordEdge) > 0) {
-                        maxKeywordEdge = e;
-                    }
-                    return maxKeywordEdge;
-                }
-                if (!n2.visited) {
-                    n2.visited = true;
-                    e.betweennessScore++;
-                    if (e.compareBetweenness(maxKeywordEdge) > 0) {
-                        maxKeywordEdge = e;
-                    }
-                    q.add(n2);
-                }
-            }
+    public static int numPivots(HashMap<String, KeywordNode> nodes, Parameters parameters) {
+        if (nodes.size() <= parameters.betweennessSampleThreshold) {
+            return Integer.MAX_VALUE;
         }
-        return maxKeywordEdge;
+        if (parameters.betweennessSampleSize > 0) {
+            return parameters.betweennessSampleSize;
+        }
+        int numEdges = 0;
+        for (KeywordNode n : nodes.values()) {
+            numEdges += n.edges.size();
+        }
+        return BrandesBetweenness.sampleSize(numEdges / 2, parameters.betweennessSampleError);
     }
 
 }
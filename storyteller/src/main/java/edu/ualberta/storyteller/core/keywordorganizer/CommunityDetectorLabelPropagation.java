@@ -0,0 +1,325 @@
+package edu.ualberta.storyteller.core.keywordorganizer;
+
+import edu.ualberta.storyteller.core.parameter.Parameters;
+import edu.ualberta.storyteller.core.util.ConcurrencyUtils;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Set;
+
+/**
+ * This class finds keyword communities by label propagation.
+ * <p>
+ * Every node repeatedly takes the label with the largest total edge df among its neighbors, keeping its
+ * own label on ties, until no label changes. Nodes are greedily colored so that neighbors have different
+ * colors. Colors are updated one after another, and the nodes of a color are updated in parallel, as
+ * none of them reads the label of another. So labels do not oscillate as when all nodes are updated at
+ * once, and the result does not depend on the number of threads. Nodes with the same label form a
+ * community, which is split into its connected parts.
+ * <p>
+ * The detector remembers the label of each keyword of the last graph. When it runs again, for example on
+ * the next day's keyword graph, keywords start from their previous labels and new keywords start from
+ * labels of their own. As most keywords stay in the same community, such warm started runs converge in a few iterations.
+ * Components can be processed by several threads at the same time; the labels are shared under the lock
+ * of the detector. Label values only tell which nodes start together, so the communities do not depend
+ * on the order in which components are processed.
+ * <p>
+ * @author Bang Liu <bang3@ualberta.ca>
+ * @version 2017.1219
+ */
+public class CommunityDetectorLabelPropagation {
+
+    /**
+     * Minimum number of nodes updated by one task.
+     */
+    private static final int MIN_NODES_PER_TASK = 256;
+
+    /**
+     * Configuration.
+     */
+    Parameters parameters;
+
+    /**
+     * The map of (keyword base form, label) of the keywords of the previous run.
+     */
+    public HashMap<String, Integer> labels = new HashMap<>();
+
+    /**
+     * The next label that has never been used.
+     */
+    private int nextLabel = 0;
+
+    /**
+     * Number of components processed by this detector. Updated under the lock of the detector.
+     */
+    public long numComponents = 0;
+
+    /**
+     * Total number of iterations over all processed components. Updated under the lock of the detector.
+     */
+    public long numIterations = 0;
+
+    /**
+     * Largest number of iterations of one component. Updated under the lock of the detector.
+     */
+    public int maxIterations = 0;
+
+    /**
+     * Parametric constructor.
+     * <p>
+     * @param cons Configuration.
+     */
+    public CommunityDetectorLabelPropagation(Parameters cons) {
+        parameters = cons;
+    }
+
+    /**
+     * Find communities of a graph by label propagation.
+     * <p>
+     * Edges between communities are removed the same way as betweenness community detection cuts them.
+     * Communities smaller than parameters.minClusterNodeSize are left out, and communities bigger than
+     * parameters.maxClusterNodeSize are returned separately to be split further.
+     * <p>
+     * @param nodes The graph we need to find communities from.
+     * @param communities The list to add the found communities to.
+     * @param oversized The list to add the communities bigger than parameters.maxClusterNodeSize to.
+     * @return communities The communities extracted from the graph.
+     */
+    public ArrayList<HashMap<String, KeywordNode>> detectCommunities(HashMap<String, KeywordNode> nodes,
+                                                                    ArrayList<HashMap<String, KeywordNode>> communities,
+                                                                    ArrayList<HashMap<String, KeywordNode>> oversized) {
+        CsrGraph g = CsrGraph.of(nodes);
+        int n = g.size();
+
+        // start from the previous labels, numbered from 0 in the order of their first node
+        HashMap<Integer, Integer> denseLabels = new HashMap<>();
+        int[] label = new int[n];
+        for (int i = 0; i < n; ++i) {
+            Integer previous;
+            synchronized (this) {
+                previous = labels.get(g.nodes[i].keyword.baseForm);
+            }
+            int key = previous != null ? previous : -1 - i;
+            Integer dense = denseLabels.get(key);
+            if (dense == null) {
+                dense = denseLabels.size();
+                denseLabels.put(key, dense);
+            }
+            label[i] = dense;
+        }
+
+        // order nodes by color
+        int[] color = color(g);
+        int numColors = 0;
+        for (int c : color) {
+            numColors = Math.max(numColors, c + 1);
+        }
+        int[] colorStart = new int[numColors + 1];
+        for (int c : color) {
+            ++colorStart[c + 1];
+        }
+        for (int c = 0; c < numColors; ++c) {
+            colorStart[c + 1] += colorStart[c];
+        }
+        int[] order = new int[n];
+        int[] fill = Arrays.copyOf(colorStart, numColors);
+        for (int i = 0; i < n; ++i) {
+            order[fill[color[i]]++] = i;
+        }
+
+        // update labels color by color until they do not change
+        int iterations = 0;
+        while (iterations < parameters.labelPropagationMaxIterations) {
+            ++iterations;
+            int numChanged = 0;
+            for (int c = 0; c < numColors; ++c) {
+                numChanged += propagate(g, label, order, colorStart[c], colorStart[c + 1]);
+            }
+            if (numChanged == 0) {
+                break;
+            }
+        }
+
+        // communities are the connected parts of nodes with the same label
+        int[] membership = label.clone();
+        int numParts = CommunityDetectorLouvain.splitDisconnected(n, g.offsets, g.neighbors, membership);
+        int[] partLabel = new int[numParts];
+        Arrays.fill(partLabel, -1);
+        HashMap<Integer, Boolean> usedLabels = new HashMap<>();
+        for (int i = 0; i < n; ++i) {
+            int part = membership[i];
+            if (partLabel[part] < 0) {
+                // the first part of a label keeps it, other parts get new labels
+                partLabel[part] = usedLabels.put(label[i], true) == null ? label[i] : -1;
+            }
+        }
+        int[] originalLabel = new int[denseLabels.size()];
+        for (HashMap.Entry<Integer, Integer> e : denseLabels.entrySet()) {
+            originalLabel[e.getValue()] = e.getKey();
+        }
+        synchronized (this) {
+            ++numComponents;
+            numIterations += iterations;
+            maxIterations = Math.max(maxIterations, iterations);
+            for (int part = 0; part < numParts; ++part) {
+                // parts are remembered by a label of their own unless they keep a previous label
+                int l = partLabel[part] < 0 ? -1 : originalLabel[partLabel[part]];
+                partLabel[part] = l >= 0 ? l : nextLabel++;
+            }
+            for (int i = 0; i < n; ++i) {
+                labels.put(g.nodes[i].keyword.baseForm, partLabel[membership[i]]);
+            }
+        }
+
+        for (HashMap<String, KeywordNode> community : CommunityDetector.cutCommunities(g, membership, parameters)) {
+            if (community.size() > parameters.maxClusterNodeSize) {
+                oversized.add(community);
+            } else if (community.size() >= parameters.minClusterNodeSize) {
+                communities.add(community);
+            }
+        }
+        return communities;
+    }
+
+    /**
+     * Forget the labels of the keywords that are not in a graph, so that the labels do not grow with
+     * all the keywords ever seen but only with the keywords of the last graph.
+     * <p>
+     * @param keywords Base forms of the keywords of the graph.
+     */
+    public synchronized void retainLabels(Set<String> keywords) {
+        labels.keySet().retainAll(keywords);
+    }
+
+    /**
+     * Color nodes greedily in index order, so that neighbors have different colors.
+     * <p>
+     * @param g The graph.
+     * @return Color of each node, numbered from 0.
+     */
+    private static int[] color(CsrGraph g) {
+        int n = g.size();
+        int[] color = new int[n];
+        Arrays.fill(color, -1);
+        int[] usedBy = new int[n + 1];
+        Arrays.fill(usedBy, -1);
+        for (int i = 0; i < n; ++i) {
+            for (int k = g.offsets[i]; k < g.offsets[i + 1]; ++k) {
+                int c = color[g.neighbors[k]];
+                if (c >= 0) {
+                    usedBy[c] = i;
+                }
+            }
+            int c = 0;
+            while (usedBy[c] == i) {
+                ++c;
+            }
+            color[i] = c;
+        }
+        return color;
+    }
+
+    /**
+     * Buffers and counts of a worker that propagates labels.
+     */
+    private static class Worker {
+
+        /**
+         * Weight of each label among the neighbors of the current node.
+         */
+        final double[] weight;
+
+        /**
+         * Labels with a weight for the current node.
+         */
+        final int[] touched;
+
+        /**
+         * Number of changed labels.
+         */
+        int numChanged = 0;
+
+        /**
+         * Parametric constructor.
+         * <p>
+         * @param size Number of nodes of the graph.
+         */
+        Worker(int size) {
+            weight = new double[size];
+            touched = new int[size];
+        }
+
+    }
+
+    /**
+     * Update the labels of the nodes of a color from the labels of their neighbors.
+     * <p>
+     * @param g The graph.
+     * @param label Label of each node, updated in place.
+     * @param order Nodes ordered by color.
+     * @param from First position of the color in order.
+     * @param to Last position of the color in order, exclusive.
+     * @return Number of changed labels.
+     */
+    private int propagate(CsrGraph g, int[] label, int[] order, int from, int to) {
+        int numChanged = 0;
+        for (Worker worker : ConcurrencyUtils.forEachRange(parameters.numThreads, to - from, MIN_NODES_PER_TASK,
+                () -> new Worker(g.size()),
+                (worker, rangeFrom, rangeTo) -> propagateRange(g, label, order, from + rangeFrom, from + rangeTo, worker))) {
+            numChanged += worker.numChanged;
+        }
+        return numChanged;
+    }
+
+    /**
+     * Update the labels of a range of nodes of the same color from the labels of their neighbors.
+     * <p>
+     * @param g The graph.
+     * @param label Label of each node, updated in place.
+     * @param order Nodes ordered by color.
+     * @param from First position in order.
+     * @param to Last position in order, exclusive.
+     * @param worker Buffers of the worker, whose count of changed labels is updated.
+     */
+    private static void propagateRange(CsrGraph g, int[] label, int[] order, int from, int to, Worker worker) {
+        double[] weight = worker.weight;
+        int[] touched = worker.touched;
+        int numChanged = 0;
+        for (int p = from; p < to; ++p) {
+            int i = order[p];
+            int numTouched = 0;
+            for (int k = g.offsets[i]; k < g.offsets[i + 1]; ++k) {
+                int l = label[g.neighbors[k]];
+                if (weight[l] == 0) {
+                    touched[numTouched++] = l;
+                }
+                weight[l] += g.df[g.edgeIndexes[k]];
+            }
+
+            // keep the current label on ties, otherwise take the smallest of the best labels
+            double maxWeight = 0;
+            for (int t = 0; t < numTouched; ++t) {
+                maxWeight = Math.max(maxWeight, weight[touched[t]]);
+            }
+            int best = label[i];
+            if (weight[best] < maxWeight) {
+                best = Integer.MAX_VALUE;
+                for (int t = 0; t < numTouched; ++t) {
+                    if (weight[touched[t]] == maxWeight) {
+                        best = Math.min(best, touched[t]);
+                    }
+                }
+            }
+            for (int t = 0; t < numTouched; ++t) {
+                weight[touched[t]] = 0;
+            }
+
+            if (best != label[i]) {
+                label[i] = best;
+                ++numChanged;
+            }
+        }
+        worker.numChanged += numChanged;
+    }
+
+}
@@ -0,0 +1,287 @@
+package edu.ualberta.storyteller.core.keywordorganizer;
+
+import edu.ualberta.storyteller.core.parameter.Parameters;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * This class finds keyword communities by modularity optimization with the Louvain method.
+ * <p>
+ * Each level moves nodes to the neighbor community with the largest modularity gain until no node
+ * moves, and then merges each community into a node of the next level. As in the Leiden method,
+ * communities are split into their connected parts before merging, so every community is connected.
+ * Edges are weighted by document frequency or by conditional probability. The run time is close to
+ * linear in the number of edges, so whole components can be clustered without pre-splitting them.
+ * <p>
+ * @author Bang Liu <bang3@ualberta.ca>
+ * @version 2017.1219
+ */
+public class CommunityDetectorLouvain {
+
+    /**
+     * Maximum number of passes over the nodes of a level.
+     */
+    private static final int MAX_PASSES = 32;
+
+    /**
+     * Minimum modularity gain of a move, so that rounding errors do not move nodes back and forth.
+     */
+    private static final double MIN_GAIN = 1e-12;
+
+    /**
+     * Find communities of a graph by the Louvain method.
+     * <p>
+     * Edges between communities are removed from their nodes, and they are duplicated into the other
+     * community if their conditional probability is higher than parameters.minCpToDuplicateEdge, the
+     * same way as betweenness community detection does. Communities of a single node are left out.
+     * <p>
+     * @param nodes The graph we need to find communities from.
+     * @param communities The list to add the found communities to.
+     * @param parameters Configuration.
+     * @return communities The communities extracted from the graph.
+     */
+    public static ArrayList<HashMap<String, KeywordNode>> detectCommunitiesLouvain(
+            HashMap<String, KeywordNode> nodes,
+            ArrayList<HashMap<String, KeywordNode>> communities,
+            Parameters parameters) {
+        CsrGraph g = CsrGraph.of(nodes);
+        double[] weights = new double[g.numEdges()];
+        for (int e = 0; e < weights.length; ++e) {
+            weights[e] = "cp".equalsIgnoreCase(parameters.louvainEdgeWeight)
+                    ? (g.cp1[e] + g.cp2[e]) / 2 : g.df[e];
+        }
+        int[] membership = findMembership(g, weights, parameters.louvainResolution);
+
+        for (HashMap<String, KeywordNode> community : CommunityDetector.cutCommunities(g, membership, parameters)) {
+            if (community.size() > 1) {
+                communities.add(community);
+            }
+        }
+        return communities;
+    }
+
+    /**
+     * Find the community of each node of a graph.
+     * <p>
+     * @param g The graph.
+     * @param weights Weight of each edge.
+     * @param resolution Resolution of modularity. Bigger values give smaller communities.
+     * @return Community index of each node, numbered from 0 in the order of their first node.
+     */
+    public static int[] findMembership(CsrGraph g, double[] weights, double resolution) {
+        // the first level is the graph itself
+        int n = g.size();
+        int[] offsets = g.offsets.clone();
+        int[] neighbors = g.neighbors.clone();
+        double[] adjWeights = new double[neighbors.length];
+        for (int k = 0; k < neighbors.length; ++k) {
+            adjWeights[k] = weights[g.edgeIndexes[k]];
+        }
+        double[] selfWeights = new double[n];
+
+        int[] membership = new int[n];
+        for (int i = 0; i < n; ++i) {
+            membership[i] = i;
+        }
+
+        while (true) {
+            int[] community = moveNodes(n, offsets, neighbors, adjWeights, selfWeights, resolution);
+            int numCommunities = splitDisconnected(n, offsets, neighbors, community);
+            for (int i = 0; i < membership.length; ++i) {
+                membership[i] = community[membership[i]];
+            }
+            if (numCommunities == n) {
+                return membership;
+            }
+
+            // merge each community into a node of the next level
+            int[] nodeOrder = new int[n];
+            int[] communityStart = new int[numCommunities + 1];
+            for (int i = 0; i < n; ++i) {
+                ++communityStart[community[i] + 1];
+            }
+            for (int c = 0; c < numCommunities; ++c) {
+                communityStart[c + 1] += communityStart[c];
+            }
+            int[] fill = Arrays.copyOf(communityStart, numCommunities);
+            for (int i = 0; i < n; ++i) {
+                nodeOrder[fill[community[i]]++] = i;
+            }
+
+            int[] newOffsets = new int[numCommunities + 1];
+            int[] newNeighbors = new int[neighbors.length];
+            double[] newAdjWeights = new double[neighbors.length];
+            double[] newSelfWeights = new double[numCommunities];
+            double[] toCommunity = new double[numCommunities];
+            int[] touched = new int[numCommunities];
+            int size = 0;
+            for (int c = 0; c < numCommunities; ++c) {
+                int numTouched = 0;
+                for (int p = communityStart[c]; p < communityStart[c + 1]; ++p) {
+                    int i = nodeOrder[p];
+                    newSelfWeights[c] += selfWeights[i];
+                    for (int k = offsets[i]; k < offsets[i + 1]; ++k) {
+                        int c2 = community[neighbors[k]];
+                        if (c2 == c) {
+                            newSelfWeights[c] += adjWeights[k];
+                            continue;
+                        }
+                        if (toCommunity[c2] == 0) {
+                            touched[numTouched++] = c2;
+                        }
+                        toCommunity[c2] += adjWeights[k];
+                    }
+                }
+                Arrays.sort(touched, 0, numTouched);
+                for (int t = 0; t < numTouched; ++t) {
+                    newNeighbors[size] = touched[t];
+                    newAdjWeights[size] = toCommunity[touched[t]];
+                    toCommunity[touched[t]] = 0;
+                    ++size;
+                }
+                newOffsets[c + 1] = size;
+            }
+
+            n = numCommunities;
+            offsets = newOffsets;
+            neighbors = Arrays.copyOf(newNeighbors, size);
+            adjWeights = Arrays.copyOf(newAdjWeights, size);
+            selfWeights = newSelfWeights;
+        }
+    }
+
+    /**
+     * Move nodes between communities while modularity increases.
+     * <p>
+     * @param n Number of nodes.
+     * @param offsets Start of each node's neighbors.
+     * @param neighbors Neighbor of each entry.
+     * @param adjWeights Weight of each entry.
+     * @param selfWeights Weight of the edges inside each node, counted in both directions.
+     * @param resolution Resolution of modularity.
+     * @return Community of each node, numbered from 0 in the order of their first node.
+     */
+    private static int[] moveNodes(int n, int[] offsets, int[] neighbors, double[] adjWeights,
+                                   double[] selfWeights, double resolution) {
+        double[] strength = new double[n];
+        double totalWeight = 0;
+        for (int i = 0; i < n; ++i) {
+            strength[i] = selfWeights[i];
+            for (int k = offsets[i]; k < offsets[i + 1]; ++k) {
+                strength[i] += adjWeights[k];
+            }
+            totalWeight += strength[i];
+        }
+
+        int[] community = new int[n];
+        double[] total = new double[n];
+        for (int i = 0; i < n; ++i) {
+            community[i] = i;
+            total[i] = strength[i];
+        }
+        if (totalWeight == 0) {
+            return community;
+        }
+
+        double[] toCommunity = new double[n];
+        int[] touched = new int[n];
+        boolean moved = true;
+        for (int pass = 0; pass < MAX_PASSES && moved; ++pass) {
+            moved = false;
+            for (int i = 0; i < n; ++i) {
+                // weights from node i to its neighbor communities
+                int numTouched = 0;
+                for (int k = offsets[i]; k < offsets[i + 1]; ++k) {
+                    int c = community[neighbors[k]];
+                    if (toCommunity[c] == 0) {
+                        touched[numTouched++] = c;
+                    }
+                    toCommunity[c] += adjWeights[k];
+                }
+
+                // take node i out of its community and put it into the best one
+                int current = community[i];
+                total[current] -= strength[i];
+                int best = current;
+                double bestGain = toCommunity[current] - resolution * strength[i] * total[current] / totalWeight;
+                for (int t = 0; t < numTouched; ++t) {
+                    int c = touched[t];
+                    double gain = toCommunity[c] - resolution * strength[i] * total[c] / totalWeight;
+                    if (gain > bestGain + MIN_GAIN) {
+                        best = c;
+                        bestGain = gain;
+                    }
+                    toCommunity[c] = 0;
+                }
+                toCommunity[current] = 0;
+                total[best] += strength[i];
+                if (best != current) {
+                    community[i] = best;
+                    moved = true;
+                }
+            }
+        }
+        return renumber(community);
+    }
+
+    /**
+     * Split each community into its connected parts.
+     * <p>
+     * @param n Number of nodes.
+     * @param offsets Start of each node's neighbors.
+     * @param neighbors Neighbor of each entry.
+     * @param community Community of each node. It is replaced by the connected part of each node,
+     *                  numbered from 0 in the order of their first node.
+     * @return Number of connected parts.
+     */
+    static int splitDisconnected(int n, int[] offsets, int[] neighbors, int[] community) {
+        int[] part = new int[n];
+        Arrays.fill(part, -1);
+        int[] queue = new int[n];
+        int numParts = 0;
+        for (int s = 0; s < n; ++s) {
+            if (part[s] >= 0) {
+                continue;
+            }
+            int head = 0;
+            int tail = 0;
+            queue[tail++] = s;
+            part[s] = numParts;
+            while (head < tail) {
+                int i = queue[head++];
+                for (int k = offsets[i]; k < offsets[i + 1]; ++k) {
+                    int j = neighbors[k];
+                    if (part[j] < 0 && community[j] == community[s]) {
+                        part[j] = numParts;
+                        queue[tail++] = j;
+                    }
+                }
+            }
+            ++numParts;
+        }
+        System.arraycopy(part, 0, community, 0, n);
+        return numParts;
+    }
+
+    /**
+     * Number communities from 0 in the order of their first node.
+     * <p>
+     * @param community Community of each node.
+     * @return Renumbered communities.
+     */
+    private static int[] renumber(int[] community) {
+        int[] index = new int[community.length];
+        Arrays.fill(index, -1);
+        int[] renumbered = new int[community.length];
+        int next = 0;
+        for (int i = 0; i < community.length; ++i) {
+            if (index[community[i]] < 0) {
+                index[community[i]] = next++;
+            }
+            renumbered[i] = index[community[i]];
+        }
+        return renumbered;
+    }
+
+}
@@ -0,0 +1,271 @@
+package edu.ualberta.storyteller.core.keywordorganizer;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+
+/**
+ * This class splits connected components that are too big for betweenness community detection.
+ * <p>
+ * The weakest edges of a component are removed until all its connected parts are small enough.
+ * Edges are compared by their larger conditional probability and then by document frequency, as by
+ * KeywordEdge.compareEdgeStrength. A part that is still too big removes a batch of its weakest edges,
+ * starting with a given percentage of them. The batches of a part grow twice as big each time removing
+ * them does not disconnect it, and start over in its connected parts once it falls apart. Batches are
+ * selected with a bounded heap over primitive arrays of a CSR snapshot, and the connected parts are found
+ * by searching only the part that lost edges, so a giant component is broken up in a few passes over its
+ * edges instead of one full pass per percent of edges.
+ * <p>
+ * @author Bang Liu <bang3@ualberta.ca>
+ * @version 2017.1219
+ */
+public class ComponentSplitter {
+
+    /**
+     * The component in CSR form.
+     */
+    private final CsrGraph g;
+
+    /**
+     * Larger conditional probability of each edge.
+     */
+    private final double[] cp;
+
+    /**
+     * Whether each edge is removed.
+     */
+    private final boolean[] removed;
+
+    /**
+     * The last search that visited each node.
+     */
+    private final int[] mark;
+
+    /**
+     * Number of searches so far.
+     */
+    private int numSearches = 0;
+
+    /**
+     * A connected part of the component.
+     */
+    private static class Part {
+
+        /**
+         * Node indexes of the part.
+         */
+        int[] nodes;
+
+        /**
+         * Indexes of the remaining edges of the part.
+         */
+        int[] edges;
+
+        /**
+         * Percentage of the remaining edges to remove in the next batch.
+         */
+        double percent;
+
+        /**
+         * Parametric constructor.
+         * <p>
+         * @param nodes Node indexes of the part.
+         * @param edges Indexes of the remaining edges of the part.
+         * @param percent Percentage of the remaining edges to remove in the next batch.
+         */
+        Part(int[] nodes, int[] edges, double percent) {
+            this.nodes = nodes;
+            this.edges = edges;
+            this.percent = percent;
+        }
+
+    }
+
+    /**
+     * Parametric constructor.
+     * <p>
+     * @param nodes The component.
+     */
+    private ComponentSplitter(HashMap<String, KeywordNode> nodes) {
+        g = CsrGraph.of(nodes);
+        cp = new double[g.numEdges()];
+        for (int e = 0; e < cp.length; ++e) {
+            cp[e] = Math.max(g.cp1[e], g.cp2[e]);
+        }
+        removed = new boolean[g.numEdges()];
+        mark = new int[g.size()];
+    }
+
+    /**
+     * Split a connected component by removing its weakest edges until no connected part has more
+     * than maxSize nodes. The removed edges are removed from their nodes.
+     * <p>
+     * @param nodes The component.
+     * @param maxSize Maximum number of nodes of a part.
+     * @param percent Percentage of the edges of a part removed by its first batch.
+     * @return The connected parts, in the order a depth first split finds them.
+     */
+    public static ArrayList<HashMap<String, KeywordNode>> split(HashMap<String, KeywordNode> nodes,
+                                                                 int maxSize, double percent) {
+        ComponentSplitter splitter = new ComponentSplitter(nodes);
+        CsrGraph g = splitter.g;
+        int[] all = new int[g.size()];
+        for (int i = 0; i < all.length; ++i) {
+            all[i] = i;
+        }
+        int[] allEdges = new int[g.numEdges()];
+        for (int e = 0; e < allEdges.length; ++e) {
+            allEdges[e] = e;
+        }
+
+        ArrayList<HashMap<String, KeywordNode>> parts = new ArrayList<>();
+        ArrayList<Part> stack = new ArrayList<>();
+        stack.add(new Part(all, allEdges, percent));
+        while (!stack.isEmpty()) {
+            Part part = stack.remove(stack.size() - 1);
+            if (part.nodes.length <= maxSize || part.edges.length == 0) {
+                parts.add(g.toNodes(part.nodes));
+                continue;
+            }
+            splitter.removeWeakest(part);
+            ArrayList<Part> children = splitter.findParts(part);
+            if (children.size() == 1) {
+                part.edges = children.get(0).edges;
+                part.percent = Math.min(100, part.percent * 2);
+                stack.add(part);
+            } else {
+                for (int c = children.size() - 1; c >= 0; --c) {
+                    children.get(c).percent = percent;
+                    stack.add(children.get(c));
+                }
+            }
+        }
+
+        for (int e = 0; e < g.numEdges(); ++e) {
+            if (splitter.removed[e]) {
+                KeywordEdge edge = g.edges[e];
+                edge.n1.edges.remove(edge.id);
+                edge.n2.edges.remove(edge.id);
+            }
+        }
+        return parts;
+    }
+
+    /**
+     * Remove the weakest edges of a part.
+     * <p>
+     * @param part The part. Its batch is part.percent percent of its remaining edges, and at least one edge.
+     */
+    private void removeWeakest(Part part) {
+        int k = Math.max(1, (int) (part.edges.length * part.percent / 100));
+
+        // keep the k weakest edges in a heap whose root is the strongest of them
+        int[] heap = new int[k];
+        int size = 0;
+        for (int e : part.edges) {
+            if (size < k) {
+                int i = size++;
+                while (i > 0 && weaker(heap[(i - 1) / 2], e)) {
+                    heap[i] = heap[(i - 1) / 2];
+                    i = (i - 1) / 2;
+                }
+                heap[i] = e;
+            } else if (weaker(e, heap[0])) {
+                int i = 0;
+                while (true) {
+                    int child = 2 * i + 1;
+                    if (child >= k) {
+                        break;
+                    }
+                    if (child + 1 < k && weaker(heap[child], heap[child + 1])) {
+                        ++child;
+                    }
+                    if (!weaker(e, heap[child])) {
+                        break;
+                    }
+                    heap[i] = heap[child];
+                    i = child;
+                }
+                heap[i] = e;
+            }
+        }
+        for (int e : heap) {
+            removed[e] = true;
+        }
+    }
+
+    /**
+     * Find the connected parts of a part over its remaining edges.
+     * <p>
+     * @param part The part.
+     * @return The connected parts, ordered by their first node in part.nodes.
+     */
+    private ArrayList<Part> findParts(Part part) {
+        ArrayList<Part> children = new ArrayList<>();
+        int[] queue = new int[part.nodes.length];
+        int first = numSearches + 1;
+        for (int s : part.nodes) {
+            if (mark[s] >= first) {
+                continue;
+            }
+            int search = ++numSearches;
+            int head = 0;
+            int tail = 0;
+            queue[tail++] = s;
+            mark[s] = search;
+            int numEdges = 0;
+            while (head < tail) {
+                int n = queue[head++];
+                for (int k = g.offsets[n]; k < g.offsets[n + 1]; ++k) {
+                    if (removed[g.edgeIndexes[k]]) {
+                        continue;
+                    }
+                    ++numEdges;
+                    int n2 = g.neighbors[k];
+                    if (mark[n2] != search) {
+                        mark[n2] = search;
+                        queue[tail++] = n2;
+                    }
+                }
+            }
+            int[] edges = new int[numEdges / 2];
+            int numFound = 0;
+            for (int q = 0; q < tail; ++q) {
+                int n = queue[q];
+                for (int k = g.offsets[n]; k < g.offsets[n + 1]; ++k) {
+                    int e = g.edgeIndexes[k];
+                    if (!removed[e] && g.edgeN1[e] == n) {
+                        edges[numFound++] = e;
+                    }
+                }
+            }
+            int[] nodes = new int[tail];
+            System.arraycopy(queue, 0, nodes, 0, tail);
+            children.add(new Part(nodes, edges, part.percent));
+        }
+        return children;
+    }
+
+    /**
+     * Whether an edge is weaker than another one.
+     * Edges of the same strength are ordered by the base forms of their keywords,
+     * so the result does not depend on the order of the edges.
+     * <p>
+     * @param a The first edge.
+     * @param b The second edge.
+     * @return true if edge a is weaker than edge b.
+     */
+    private boolean weaker(int a, int b) {
+        if (cp[a] != cp[b]) {
+            return cp[a] < cp[b];
+        }
+        if (g.df[a] != g.df[b]) {
+            return g.df[a] < g.df[b];
+        }
+        int c = g.edges[a].n1.keyword.baseForm.compareTo(g.edges[b].n1.keyword.baseForm);
+        if (c == 0) {
+            c = g.edges[a].n2.keyword.baseForm.compareTo(g.edges[b].n2.keyword.baseForm);
+        }
+        return c < 0;
+    }
+
+}
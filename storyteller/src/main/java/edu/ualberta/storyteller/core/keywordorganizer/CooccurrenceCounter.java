@@ -0,0 +1,284 @@
+package edu.ualberta.storyteller.core.keywordorganizer;
+
+/**
+ * This class counts keyword pair co-occurrences in an open addressing hash table.
+ * <p>
+ * A pair of node indexes is packed into a long key. For each pair, the table keeps the number of
+ * documents that contain both keywords and optionally the first occurrence of the pair, which is any
+ * long that orders occurrences. Counters filled by different threads can be merged, and counts can be
+ * subtracted again. A pair whose count drops to 0 is removed.
+ * <p>
+ * @author Bang Liu <bang3@ualberta.ca>
+ * @version 2017.1219
+ */
+public class CooccurrenceCounter {
+
+    /**
+     * Key of empty slots. Packed pairs (i, j) with i < j are never 0.
+     */
+    private static final long EMPTY = 0;
+
+    /**
+     * Packed pairs.
+     */
+    private long[] keys;
+
+    /**
+     * Count of each pair.
+     */
+    private int[] counts;
+
+    /**
+     * First occurrence of each pair, or null if first occurrences are not kept.
+     */
+    private long[] firsts;
+
+    /**
+     * Number of pairs.
+     */
+    private int size;
+
+    /**
+     * Parametric constructor.
+     * <p>
+     * @param expectedSize Expected number of pairs.
+     */
+    public CooccurrenceCounter(int expectedSize) {
+        this(expectedSize, true);
+    }
+
+    /**
+     * Parametric constructor.
+     * <p>
+     * @param expectedSize Expected number of pairs.
+     * @param keepFirsts Whether keep the first occurrence of each pair.
+     */
+    public CooccurrenceCounter(int expectedSize, boolean keepFirsts) {
+        int capacity = 16;
+        while (capacity < expectedSize * 2L && capacity < (1 << 30)) {
+            capacity <<= 1;
+        }
+        keys = new long[capacity];
+        counts = new int[capacity];
+        firsts = keepFirsts ? new long[capacity] : null;
+    }
+
+    /**
+     * Pack a pair of node indexes into a key.
+     * <p>
+     * @param i Smaller node index.
+     * @param j Bigger node index.
+     * @return Packed pair.
+     */
+    public static long pair(int i, int j) {
+        return ((long) i << 32) | j;
+    }
+
+    /**
+     * Get the smaller node index of a packed pair.
+     * <p>
+     * @param pair Packed pair.
+     * @return Node index.
+     */
+    public static int first(long pair) {
+        return (int) (pair >>> 32);
+    }
+
+    /**
+     * Get the bigger node index of a packed pair.
+     * <p>
+     * @param pair Packed pair.
+     * @return Node index.
+     */
+    public static int second(long pair) {
+        return (int) pair;
+    }
+
+    /**
+     * Add occurrences of a pair.
+     * <p>
+     * @param pair Packed pair.
+     * @param count Number of occurrences. It is negative to subtract occurrences, which must
+     *              not make the count of the pair negative.
+     * @param first First occurrence among them.
+     */
+    public void add(long pair, int count, long first) {
+        if (count == 0) {
+            return;
+        }
+        int slot = slot(pair);
+        if (keys[slot] == EMPTY) {
+            keys[slot] = pair;
+            counts[slot] = count;
+            if (firsts != null) {
+                firsts[slot] = first;
+            }
+            if (++size * 2 > keys.length) {
+                grow();
+            }
+        } else {
+            counts[slot] += count;
+            if (counts[slot] == 0) {
+                delete(slot);
+            } else if (firsts != null) {
+                firsts[slot] = Math.min(firsts[slot], first);
+            }
+        }
+    }
+
+    /**
+     * Add all pairs of another counter.
+     * <p>
+     * @param other The other counter.
+     */
+    public void addAll(CooccurrenceCounter other) {
+        addAll(other, 1);
+    }
+
+    /**
+     * Add or subtract all pairs of another counter.
+     * <p>
+     * @param other The other counter.
+     * @param sign 1 to add the counts of the other counter, -1 to subtract them.
+     */
+    public void addAll(CooccurrenceCounter other, int sign) {
+        for (int slot = 0; slot < other.keys.length; ++slot) {
+            if (other.keys[slot] != EMPTY) {
+                add(other.keys[slot], sign * other.counts[slot], other.first(slot));
+            }
+        }
+    }
+
+    /**
+     * Get the count of a pair.
+     * <p>
+     * @param pair Packed pair.
+     * @return Count, or 0 if the pair never occurred.
+     */
+    public int get(long pair) {
+        int slot = slot(pair);
+        return keys[slot] == EMPTY ? 0 : counts[slot];
+    }
+
+    /**
+     * Get the number of pairs.
+     * <p>
+     * @return Number of pairs.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Get the number of slots. Slots from 0 to capacity() - 1 can be visited by
+     * key(), count() and first().
+     * <p>
+     * @return Number of slots.
+     */
+    public int capacity() {
+        return keys.length;
+    }
+
+    /**
+     * Get the pair in a slot.
+     * <p>
+     * @param slot Slot index.
+     * @return Packed pair, or 0 if the slot is empty.
+     */
+    public long key(int slot) {
+        return keys[slot];
+    }
+
+    /**
+     * Get the count in a slot.
+     * <p>
+     * @param slot Slot index.
+     * @return Count.
+     */
+    public int count(int slot) {
+        return counts[slot];
+    }
+
+    /**
+     * Get the first occurrence in a slot.
+     * <p>
+     * @param slot Slot index.
+     * @return First occurrence, or 0 if first occurrences are not kept.
+     */
+    public long first(int slot) {
+        return firsts == null ? 0 : firsts[slot];
+    }
+
+    /**
+     * Find the slot of a pair by linear probing.
+     * <p>
+     * @param pair Packed pair.
+     * @return The slot that holds the pair, or the empty slot where it would be inserted.
+     */
+    private int slot(long pair) {
+        int mask = keys.length - 1;
+        int slot = home(pair);
+        while (keys[slot] != EMPTY && keys[slot] != pair) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    /**
+     * Get the slot where probing for a pair starts.
+     * <p>
+     * @param pair Packed pair.
+     * @return Slot index.
+     */
+    private int home(long pair) {
+        long h = pair * 0x9e3779b97f4a7c15L;
+        return (int) (h ^ (h >>> 32)) & (keys.length - 1);
+    }
+
+    /**
+     * Empty a slot, moving back the following pairs of its probe sequence.
+     * <p>
+     * @param slot Slot index.
+     */
+    private void delete(int slot) {
+        int mask = keys.length - 1;
+        int hole = slot;
+        for (int i = (slot + 1) & mask; keys[i] != EMPTY; i = (i + 1) & mask) {
+            // the pair in slot i can fill the hole if the hole is between its home and i
+            if (((i - home(keys[i])) & mask) >= ((i - hole) & mask)) {
+                keys[hole] = keys[i];
+                counts[hole] = counts[i];
+                if (firsts != null) {
+                    firsts[hole] = firsts[i];
+                }
+                hole = i;
+            }
+        }
+        keys[hole] = EMPTY;
+        counts[hole] = 0;
+        --size;
+    }
+
+    /**
+     * Double the table.
+     */
+    private void grow() {
+        long[] oldKeys = keys;
+        int[] oldCounts = counts;
+        long[] oldFirsts = firsts;
+        keys = new long[oldKeys.length * 2];
+        counts = new int[keys.length];
+        firsts = oldFirsts == null ? null : new long[keys.length];
+        for (int i = 0; i < oldKeys.length; ++i) {
+            if (oldKeys[i] != EMPTY) {
+                int slot = slot(oldKeys[i]);
+                keys[slot] = oldKeys[i];
+                counts[slot] = oldCounts[i];
+                if (firsts != null) {
+                    firsts[slot] = oldFirsts[i];
+                }
+            }
+        }
+    }
+
+}
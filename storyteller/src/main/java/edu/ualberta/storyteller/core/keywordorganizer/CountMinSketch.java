@@ -0,0 +1,131 @@
+package edu.ualberta.storyteller.core.keywordorganizer;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * This class defines a count-min sketch over long keys.
+ * <p>
+ * The sketch has depth rows of width counters. A key is counted in one counter of each row, and
+ * its estimated count is the minimum of these counters. Estimates are never smaller than the true
+ * count, and with probability 1 - exp(-depth) they exceed it by at most e / width times the total
+ * count. Counters are updated atomically, so several threads can add keys at the same time. The total
+ * count is not updated for each key: each thread counts its own keys and adds them to the total once.
+ * <p>
+ * @author Bang Liu <bang3@ualberta.ca>
+ * @version 2017.1219
+ */
+public class CountMinSketch {
+
+    /**
+     * Number of rows.
+     */
+    private final int depth;
+
+    /**
+     * Number of counters per row.
+     */
+    private final int width;
+
+    /**
+     * Counters, row by row.
+     */
+    private final AtomicIntegerArray counters;
+
+    /**
+     * Total count of all keys, as added by addTotal.
+     */
+    private final AtomicLong total = new AtomicLong();
+
+    /**
+     * Parametric constructor.
+     * <p>
+     * @param memoryMB Memory budget of the counters in megabytes.
+     * @param depth Number of rows.
+     */
+    public CountMinSketch(int memoryMB, int depth) {
+        this.depth = Math.max(1, depth);
+        long numCounters = Math.max(1, (long) memoryMB) * (1 << 20) / 4;
+        width = (int) Math.max(1, Math.min(Integer.MAX_VALUE / this.depth, numCounters / this.depth));
+        counters = new AtomicIntegerArray(this.depth * width);
+    }
+
+    /**
+     * Count one occurrence of a key. The occurrence must also be added to the total with addTotal.
+     * <p>
+     * @param key The key.
+     */
+    public void add(long key) {
+        for (int row = 0; row < depth; ++row) {
+            counters.incrementAndGet(row * width + column(key, row));
+        }
+    }
+
+    /**
+     * Add occurrences counted by add to the total count.
+     * <p>
+     * @param count Number of occurrences.
+     */
+    public void addTotal(long count) {
+        total.addAndGet(count);
+    }
+
+    /**
+     * Estimate the count of a key.
+     * <p>
+     * @param key The key.
+     * @return Estimated count, which is not smaller than the true count.
+     */
+    public int estimate(long key) {
+        int min = Integer.MAX_VALUE;
+        for (int row = 0; row < depth; ++row) {
+            min = Math.min(min, counters.get(row * width + column(key, row)));
+        }
+        return min;
+    }
+
+    /**
+     * Get the total count of all keys.
+     * <p>
+     * @return Total count.
+     */
+    public long getTotal() {
+        return total.get();
+    }
+
+    /**
+     * Get the bound of the estimation error, which holds with probability getConfidence().
+     * <p>
+     * @return Maximum over-estimation of a count.
+     */
+    public double getErrorBound() {
+        return Math.E / width * total.get();
+    }
+
+    /**
+     * Get the probability that an estimate is within the error bound.
+     * <p>
+     * @return Confidence.
+     */
+    public double getConfidence() {
+        return 1 - Math.exp(-depth);
+    }
+
+    /**
+     * Hash a key into a column of a row.
+     * <p>
+     * @param key The key.
+     * @param row Row index.
+     * @return Column index.
+     */
+    private int column(long key, int row) {
+        long h = key ^ (0x9e3779b97f4a7c15L * (row + 1));
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return (int) ((h >>> 1) % width);
+    }
+
+}
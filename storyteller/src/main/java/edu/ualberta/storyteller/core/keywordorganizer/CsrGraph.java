@@ -0,0 +1,287 @@
+package edu.ualberta.storyteller.core.keywordorganizer;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * This class defines an immutable keyword graph in compressed sparse row (CSR) form.
+ * <p>
+ * Nodes and edges are numbered by int indexes. The neighbors of node i are
+ * neighbors[offsets[i]] to neighbors[offsets[i + 1] - 1], and edgeIndexes gives the undirected
+ * edge of each of these entries. Edge attributes are kept in arrays parallel to edges.
+ * <p>
+ * A CSR graph is a snapshot of a map of keyword nodes. Nodes are numbered in the iteration order
+ * of the map and neighbors are kept in the iteration order of each node's edges, so traversals
+ * visit nodes in the same order as traversals on the map. The original nodes and edges are kept
+ * so that results can be converted back.
+ * <p>
+ * @author Bang Liu <bang3@ualberta.ca>
+ * @version 2017.1219
+ */
+public class CsrGraph {
+
+    /**
+     * Keyword nodes indexed by node index.
+     */
+    public final KeywordNode[] nodes;
+
+    /**
+     * Start of each node's neighbors. The last element is the number of entries.
+     */
+    public final int[] offsets;
+
+    /**
+     * Neighbor node index of each entry.
+     */
+    public final int[] neighbors;
+
+    /**
+     * Undirected edge index of each entry.
+     */
+    public final int[] edgeIndexes;
+
+    /**
+     * Keyword edges indexed by edge index.
+     */
+    public final KeywordEdge[] edges;
+
+    /**
+     * Node index of the first node of each edge.
+     */
+    public final int[] edgeN1;
+
+    /**
+     * Node index of the second node of each edge.
+     */
+    public final int[] edgeN2;
+
+    /**
+     * Document frequency of each edge.
+     */
+    public final int[] df;
+
+    /**
+     * Conditional probability p(n2 | n1) of each edge.
+     */
+    public final double[] cp1;
+
+    /**
+     * Conditional probability p(n1 | n2) of each edge.
+     */
+    public final double[] cp2;
+
+    /**
+     * The map of (keyword node, node index).
+     */
+    private final IdentityHashMap<KeywordNode, Integer> nodeIndexes;
+
+    /**
+     * Parametric constructor.
+     * <p>
+     * @param nodes Keyword nodes.
+     * @param nodeIndexes The map of (keyword node, node index).
+     * @param offsets Start of each node's neighbors.
+     * @param neighbors Neighbor node index of each entry.
+     * @param edgeIndexes Undirected edge index of each entry.
+     * @param edges Keyword edges.
+     */
+    private CsrGraph(KeywordNode[] nodes, IdentityHashMap<KeywordNode, Integer> nodeIndexes,
+                     int[] offsets, int[] neighbors, int[] edgeIndexes, KeywordEdge[] edges) {
+        this.nodes = nodes;
+        this.nodeIndexes = nodeIndexes;
+        this.offsets = offsets;
+        this.neighbors = neighbors;
+        this.edgeIndexes = edgeIndexes;
+        this.edges = edges;
+        edgeN1 = new int[edges.length];
+        edgeN2 = new int[edges.length];
+        df = new int[edges.length];
+        cp1 = new double[edges.length];
+        cp2 = new double[edges.length];
+        for (int i = 0; i < edges.length; ++i) {
+            KeywordEdge e = edges[i];
+            edgeN1[i] = nodeIndexes.get(e.n1);
+            edgeN2[i] = nodeIndexes.get(e.n2);
+            df[i] = e.df;
+            cp1[i] = e.cp1;
+            cp2[i] = e.cp2;
+        }
+    }
+
+    /**
+     * Create a CSR graph from a map of keyword nodes.
+     * Edges to nodes that are not in the map are left out.
+     * <p>
+     * @param graph The graph.
+     * @return The CSR graph.
+     */
+    public static CsrGraph of(Map<String, KeywordNode> graph) {
+        KeywordNode[] nodes = graph.values().toArray(new KeywordNode[0]);
+        IdentityHashMap<KeywordNode, Integer> nodeIndexes = new IdentityHashMap<>(nodes.length);
+        for (int i = 0; i < nodes.length; ++i) {
+            nodeIndexes.put(nodes[i], i);
+        }
+
+        int[] offsets = new int[nodes.length + 1];
+        for (int i = 0; i < nodes.length; ++i) {
+            int degree = 0;
+            for (KeywordEdge e : nodes[i].edges.values()) {
+                if (nodeIndexes.containsKey(other(e, nodes[i]))) {
+                    ++degree;
+                }
+            }
+            offsets[i + 1] = offsets[i] + degree;
+        }
+
+        int[] neighbors = new int[offsets[nodes.length]];
+        int[] edgeIndexes = new int[neighbors.length];
+        IdentityHashMap<KeywordEdge, Integer> edgeIds = new IdentityHashMap<>(neighbors.length / 2);
+        ArrayList<KeywordEdge> edges = new ArrayList<>(neighbors.length / 2);
+        int k = 0;
+        for (KeywordNode n : nodes) {
+            for (KeywordEdge e : n.edges.values()) {
+                Integer neighbor = nodeIndexes.get(other(e, n));
+                if (neighbor == null) {
+                    continue;
+                }
+                Integer edgeId = edgeIds.get(e);
+                if (edgeId == null) {
+                    edgeId = edges.size();
+                    edgeIds.put(e, edgeId);
+                    edges.add(e);
+                }
+                neighbors[k] = neighbor;
+                edgeIndexes[k] = edgeId;
+                ++k;
+            }
+        }
+        return new CsrGraph(nodes, nodeIndexes, offsets, neighbors, edgeIndexes, edges.toArray(new KeywordEdge[0]));
+    }
+
+    /**
+     * Get the other end of an edge.
+     * <p>
+     * @param e The edge.
+     * @param n One end of the edge.
+     * @return The other end.
+     */
+    private static KeywordNode other(KeywordEdge e, KeywordNode n) {
+        return e.n1 == n ? e.n2 : e.n1;
+    }
+
+    /**
+     * Get the number of nodes.
+     * <p>
+     * @return Number of nodes.
+     */
+    public int size() {
+        return nodes.length;
+    }
+
+    /**
+     * Get the number of undirected edges.
+     * <p>
+     * @return Number of edges.
+     */
+    public int numEdges() {
+        return edges.length;
+    }
+
+    /**
+     * Get the degree of a node.
+     * <p>
+     * @param i Node index.
+     * @return Number of neighbors.
+     */
+    public int degree(int i) {
+        return offsets[i + 1] - offsets[i];
+    }
+
+    /**
+     * Get the index of a keyword node.
+     * <p>
+     * @param n The keyword node.
+     * @return Node index, or -1 if the node is not in the graph.
+     */
+    public int indexOf(KeywordNode n) {
+        Integer i = nodeIndexes.get(n);
+        return i == null ? -1 : i;
+    }
+
+    /**
+     * Visit the nodes reachable from a source node by breadth first search.
+     * <p>
+     * @param source Index of the source node.
+     * @param visited Visited flags of nodes. Visited nodes are skipped, and the flags of
+     *                the returned nodes are set.
+     * @return Indexes of the reached nodes in the order they are visited.
+     */
+    public int[] bfs(int source, boolean[] visited) {
+        return bfs(source, visited, new int[nodes.length]);
+    }
+
+    /**
+     * Visit the nodes reachable from a source node by breadth first search, with a queue buffer
+     * that can be shared by several searches.
+     * <p>
+     * @param source Index of the source node.
+     * @param visited Visited flags of nodes. Visited nodes are skipped, and the flags of
+     *                the returned nodes are set.
+     * @param queue Queue buffer with room for all nodes of the graph. Its content is overwritten.
+     * @return Indexes of the reached nodes in the order they are visited.
+     */
+    private int[] bfs(int source, boolean[] visited, int[] queue) {
+        int head = 0;
+        int tail = 0;
+        queue[tail++] = source;
+        visited[source] = true;
+        while (head < tail) {
+            int n = queue[head++];
+            for (int k = offsets[n]; k < offsets[n + 1]; ++k) {
+                int n2 = neighbors[k];
+                if (!visited[n2]) {
+                    visited[n2] = true;
+                    queue[tail++] = n2;
+                }
+            }
+        }
+        int[] order = new int[tail];
+        System.arraycopy(queue, 0, order, 0, tail);
+        return order;
+    }
+
+    /**
+     * Find the connected components of the graph.
+     * Components are ordered by their first node.
+     * <p>
+     * @return Node indexes of each component in breadth first order.
+     */
+    public ArrayList<int[]> connectedComponents() {
+        ArrayList<int[]> components = new ArrayList<>();
+        boolean[] visited = new boolean[nodes.length];
+        int[] queue = new int[nodes.length];
+        for (int i = 0; i < nodes.length; ++i) {
+            if (!visited[i]) {
+                components.add(bfs(i, visited, queue));
+            }
+        }
+        return components;
+    }
+
+    /**
+     * Convert a set of node indexes back to a map of keyword nodes.
+     * <p>
+     * @param indexes Node indexes.
+     * @return The map of (keyword base form, keyword node), filled in the order of indexes.
+     */
+    public HashMap<String, KeywordNode> toNodes(int[] indexes) {
+        HashMap<String, KeywordNode> subNodes = new HashMap<>();
+        for (int i : indexes) {
+            subNodes.put(nodes[i].keyword.baseForm, nodes[i]);
+        }
+        return subNodes;
+    }
+
+}
@@ -0,0 +1,284 @@
+package edu.ualberta.storyteller.core.keywordorganizer;
+
+import java.util.Arrays;
+
+/**
+ * This class accumulates Brandes edge dependencies of small components on adjacency bit matrices.
+ * <p>
+ * Nodes are relabeled 0 to n - 1 in breadth first order, so that the neighbors of a node have close
+ * labels and each row of the adjacency matrix has its bits in a narrow range of words. Rows are stored
+ * as long[] bitsets. Each level of a breadth first search is a bitset: the next level is the union of
+ * the rows of the current level minus the visited nodes, and the predecessors of a node are its row
+ * intersected with the previous level, so 64 neighbors are tested by one word operation and only the
+ * edges of the shortest path DAG are visited one by one.
+ * <p>
+ * The relabeling and the edge index of each node pair are shared by all threads. Each thread
+ * accumulates sources with a Workspace, whose buffers are allocated once, so accumulating a source
+ * allocates nothing.
+ * <p>
+ * @author Bang Liu <bang3@ualberta.ca>
+ * @version 2017.1219
+ */
+class DenseBetweenness {
+
+    /**
+     * The component in CSR form.
+     */
+    private final CsrGraph g;
+
+    /**
+     * Number of nodes.
+     */
+    private final int n;
+
+    /**
+     * Number of words of a row.
+     */
+    private final int words;
+
+    /**
+     * Dense label of each CSR node index.
+     */
+    private final int[] label;
+
+    /**
+     * CSR node index of each dense label.
+     */
+    private final int[] node;
+
+    /**
+     * Edge index of each pair of dense labels, row by first label, or -1 if they are not connected.
+     */
+    private final int[] pairEdge;
+
+    /**
+     * Parametric constructor.
+     * <p>
+     * @param g The component in CSR form.
+     */
+    DenseBetweenness(CsrGraph g) {
+        this.g = g;
+        n = g.size();
+        words = (n + 63) >>> 6;
+
+        // relabel nodes in breadth first order, component by component
+        label = new int[n];
+        node = new int[n];
+        int next = 0;
+        for (int[] component : g.connectedComponents()) {
+            for (int i : component) {
+                label[i] = next;
+                node[next] = i;
+                ++next;
+            }
+        }
+
+        pairEdge = new int[n * n];
+        Arrays.fill(pairEdge, -1);
+        for (int e = 0; e < g.numEdges(); ++e) {
+            int a = label[g.edgeN1[e]];
+            int b = label[g.edgeN2[e]];
+            pairEdge[a * n + b] = e;
+            pairEdge[b * n + a] = e;
+        }
+    }
+
+    /**
+     * Buffers of one thread.
+     */
+    class Workspace {
+
+        /**
+         * Removed flags that adjacency holds the remaining edges of, one for each of two slots.
+         */
+        private final boolean[][] slotSkip = new boolean[2][];
+
+        /**
+         * Adjacency bit matrix of the remaining edges, one for each of two slots.
+         */
+        private final long[][] slotAdjacency = {new long[n * words], new long[n * words]};
+
+        /**
+         * First word of each row with a bit set, one for each of two slots.
+         */
+        private final int[][] slotRowFrom = {new int[n], new int[n]};
+
+        /**
+         * Last word of each row with a bit set, exclusive, one for each of two slots.
+         */
+        private final int[][] slotRowTo = {new int[n], new int[n]};
+
+        /**
+         * The slot built least recently.
+         */
+        private int oldestSlot = 0;
+
+        /**
+         * Bits of the nodes of each level, level by level, with room for an empty level after the last one.
+         */
+        private final long[] levels = new long[(n + 1) * words];
+
+        /**
+         * Bits of the visited nodes.
+         */
+        private final long[] visited = new long[words];
+
+        /**
+         * Nodes in breadth first order.
+         */
+        private final int[] order = new int[n];
+
+        /**
+         * Start of each level in order.
+         */
+        private final int[] levelStart = new int[n + 1];
+
+        /**
+         * Shortest path count of each node.
+         */
+        private final double[] sigma = new double[n];
+
+        /**
+         * Dependency of each node.
+         */
+        private final double[] delta = new double[n];
+
+        /**
+         * Find the slot of the adjacency matrix of the remaining edges, building it if needed.
+         * Removed flags are identified by reference, as they are never changed once they are used.
+         * <p>
+         * @param skip Removed flags of edges.
+         * @return The slot.
+         */
+        private int slot(boolean[] skip) {
+            for (int s = 0; s < 2; ++s) {
+                if (slotSkip[s] == skip) {
+                    return s;
+                }
+            }
+            int s = oldestSlot;
+            oldestSlot = 1 - s;
+            slotSkip[s] = skip;
+            long[] adjacency = slotAdjacency[s];
+            int[] rowFrom = slotRowFrom[s];
+            int[] rowTo = slotRowTo[s];
+            Arrays.fill(adjacency, 0);
+            Arrays.fill(rowFrom, words);
+            Arrays.fill(rowTo, 0);
+            for (int e = 0; e < g.numEdges(); ++e) {
+                if (skip[e]) {
+                    continue;
+                }
+                int a = label[g.edgeN1[e]];
+                int b = label[g.edgeN2[e]];
+                adjacency[a * words + (b >>> 6)] |= 1L << b;
+                adjacency[b * words + (a >>> 6)] |= 1L << a;
+                rowFrom[a] = Math.min(rowFrom[a], b >>> 6);
+                rowTo[a] = Math.max(rowTo[a], (b >>> 6) + 1);
+                rowFrom[b] = Math.min(rowFrom[b], a >>> 6);
+                rowTo[b] = Math.max(rowTo[b], (a >>> 6) + 1);
+            }
+            return s;
+        }
+
+        /**
+         * Add the edge dependencies of one source, skipping removed edges.
+         * <p>
+         * @param source Source CSR node index.
+         * @param skip Removed flags of edges.
+         * @param sign 1 to add the dependencies, -1 to subtract them.
+         * @param partial Scores to add to.
+         * @param d Distances from the source by CSR node index, filled in. Unreachable nodes get -1.
+         */
+        void accumulateSource(int source, boolean[] skip, int sign, double[] partial, int[] d) {
+            int s = slot(skip);
+            long[] adjacency = slotAdjacency[s];
+            int[] rowFrom = slotRowFrom[s];
+            int[] rowTo = slotRowTo[s];
+            Arrays.fill(d, -1);
+            Arrays.fill(visited, 0);
+
+            // count shortest paths level by level
+            int start = label[source];
+            order[0] = start;
+            levelStart[0] = 0;
+            levelStart[1] = 1;
+            Arrays.fill(levels, 0, words, 0);
+            levels[start >>> 6] |= 1L << start;
+            visited[start >>> 6] |= 1L << start;
+            sigma[start] = 1;
+            d[source] = 0;
+            int numLevels = 1;
+            while (true) {
+                // the new nodes of the rows of the current level form the next level,
+                // and each of them gets the path counts of its predecessors
+                int next = numLevels * words;
+                Arrays.fill(levels, next, next + words, 0);
+                int from = words;
+                int to = 0;
+                for (int p = levelStart[numLevels - 1]; p < levelStart[numLevels]; ++p) {
+                    int v = order[p];
+                    double paths = sigma[v];
+                    int row = v * words;
+                    for (int i = rowFrom[v]; i < rowTo[v]; ++i) {
+                        long bits = adjacency[row + i] & ~visited[i];
+                        if (bits == 0) {
+                            continue;
+                        }
+                        levels[next + i] |= bits;
+                        from = Math.min(from, i);
+                        to = Math.max(to, i + 1);
+                        while (bits != 0) {
+                            sigma[(i << 6) + Long.numberOfTrailingZeros(bits)] += paths;
+                            bits &= bits - 1;
+                        }
+                    }
+                }
+                if (from >= to) {
+                    break;
+                }
+                int tail = levelStart[numLevels];
+                for (int i = from; i < to; ++i) {
+                    long bits = levels[next + i];
+                    visited[i] |= bits;
+                    while (bits != 0) {
+                        int w = (i << 6) + Long.numberOfTrailingZeros(bits);
+                        bits &= bits - 1;
+                        order[tail++] = w;
+                        d[node[w]] = numLevels;
+                    }
+                }
+                ++numLevels;
+                levelStart[numLevels] = tail;
+            }
+
+            // accumulate dependencies in order of decreasing distance
+            for (int level = numLevels - 1; level > 0; --level) {
+                int previous = (level - 1) * words;
+                for (int p = levelStart[level + 1] - 1; p >= levelStart[level]; --p) {
+                    int w = order[p];
+                    double factor = (1 + delta[w]) / sigma[w];
+                    int row = w * words;
+                    for (int j = rowFrom[w]; j < rowTo[w]; ++j) {
+                        long preds = adjacency[row + j] & levels[previous + j];
+                        while (preds != 0) {
+                            int v = (j << 6) + Long.numberOfTrailingZeros(preds);
+                            preds &= preds - 1;
+                            double c = sigma[v] * factor;
+                            partial[pairEdge[v * n + w]] += sign * c;
+                            delta[v] += c;
+                        }
+                    }
+                }
+            }
+
+            // clear the buffers of the reached nodes
+            for (int p = 0; p < levelStart[numLevels]; ++p) {
+                sigma[order[p]] = 0;
+                delta[order[p]] = 0;
+            }
+        }
+
+    }
+
+}
@@ -1,279 +1,498 @@
-package edu.ualberta.storyteller.core.keywordorganizer;
-
-import edu.ualberta.storyteller.core.parameter.Parameters;
-import edu.ualberta.storyteller.core.dataloader.Keyword;
-import edu.ualberta.storyteller.core.dataloader.Corpus;
-import edu.ualberta.storyteller.core.dataloader.Document;
-import java.io.Serializable;
-import java.io.DataOutputStream;
-import java.io.FileOutputStream;
-import java.io.IOException;
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.HashSet;
-
-/**
- * This class defines keyword graph (KeyGraph).
- * <p>
- * @author Bang Liu <bang3@ualberta.ca>
- * @version 2017.1219
- */
-public class KeywordGraph implements Serializable {
-
-    /**
-     * Configuration.
-     */
-	Parameters parameters;
-
-    /**
-     * The map of graph nodes.
-     */
-	public HashMap<String, KeywordNode> graphNodes;
-
-
-    /**
-     * Default constructor.
-     */
-	public KeywordGraph() {
-    }
-
-    /**
-     * Parametric constructor.
-     * <p>
-     * @param cons Configuration.
-     */
-	public KeywordGraph(Parameters cons) {
-		parameters = cons;
-	}
-
-    /**
-     * Create keyword graph given documents.
-     * @param corpus The corpus we are handling.
-     */
-	public void buildGraph(Corpus corpus) {
-		graphNodes = new HashMap<>();
-
-		// add nodes
-		for (Document d : corpus.docs.values()) {
-			for (Keyword k : d.keywords.values()) {
-                // create a new node or retrieve existing node given a keyword of a document
-				KeywordNode n;
-				if (graphNodes.containsKey(k.baseForm)) {
-                    n = graphNodes.get(k.baseForm);
-                } else {
-					Keyword keyword = new Keyword(k.baseForm, k.word, 0, corpus.DF.get(k.baseForm));
-					n = new KeywordNode(keyword);
-					graphNodes.put(keyword.baseForm, n);
-				}
-
-                // record the documents associated with this node
-				n.keyword.documents.put(d.id, d);  //!!!!!!!!!!!!!!!!!!!! some documents are missing. why???
-
-                // update keyword's tf
-				n.keyword.tf++;
-			}
-		}
-
-//		// filter nodes
-//		ArrayList<String> toRemoveIds = new ArrayList<String>();
-//		for (KeywordNode n : graphNodes.values()) {
-//            // remove nodes whose keyword's tf smaller than a threshold (too rare)
-//            // or keyword's df bigger than a threshold (too frequent and normal)
-//            if (n.keyword.tf < parameters.minNodeDF ||
-//                corpus.DF.get(n.keyword.baseForm) > parameters.maxNodeDFPercent * corpus.docs.size()) {
-//                toRemoveIds.add(n.keyword.baseForm);
-//            }
-//        }
-//		for (String baseForm : toRemoveIds) {
-//            graphNodes.remove(baseForm);
-//        }
-//		toRemoveIds.clear();
-
-		// add edges
-		for (Document d : corpus.docs.values()) {
-			for (Keyword k1 : d.keywords.values()) {
-				if (graphNodes.containsKey(k1.baseForm)) {
-					KeywordNode n1 = graphNodes.get(k1.baseForm);
-					for (Keyword k2 : d.keywords.values()) {
-						if (graphNodes.containsKey(k2.baseForm) && k1.baseForm.compareTo(k2.baseForm) < 0) {
-							KeywordNode n2 = graphNodes.get(k2.baseForm);
-							String edgeId = KeywordEdge.getId(n1, n2);
-							if (!n1.edges.containsKey(edgeId)) {
-								KeywordEdge e = new KeywordEdge(n1, n2, edgeId);
-								n1.edges.put(edgeId, e);
-								n2.edges.put(edgeId, e);
-							}
-							n1.edges.get(edgeId).df++;
-						}
-					}
-				}
-			}
-		}
-
-		// filter edges
-		ArrayList<KeywordEdge> toRemove = new ArrayList<KeywordEdge>();
-		for (KeywordNode n : graphNodes.values()) {
-			for (KeywordEdge e : n.edges.values()) {
-                // remove edges with small df or edges with small edge correlation
-                // (which means node n1 n2 may also be connected with a lot of other nodes)
-				Double MI = e.df / (e.n1.keyword.df + e.n2.keyword.df - e.df);
-				if (e.df < parameters.minEdgeDF || MI < parameters.minEdgeCorrelation) {
-					toRemove.add(e);
-				} else {
-                    e.computeCPs();
-                }
-			}
-			for (KeywordEdge e : toRemove) {
-				e.n1.edges.remove(e.id);
-				e.n2.edges.remove(e.id);
-			}
-			toRemove.clear();
-		}
-
-//		// post-filter nodes
-//		for (KeywordNode n : graphNodes.values()) {
-//            // remove nodes without edge
-//            if (n.edges.size() == 0) {
-//                toRemoveIds.add(n.keyword.baseForm);
-//            }
-//        }
-//		for (String baseForm : toRemoveIds)
-//			graphNodes.remove(baseForm);
-//		toRemoveIds.clear();
-	}
-
-    /**
-     * Merge two graphs into one graph.
-     * @param kg1 One graph to merge.
-     * @param kg2 Another graph to merge.
-     * @return kg The merges graph.
-     */
-	public static HashMap<String, KeywordNode> mergeKeyGraphs(HashMap<String, KeywordNode> kg1,
-                                                              HashMap<String, KeywordNode> kg2) {
-        // initialize the merged graph
-		HashMap<String, KeywordNode> kg = new HashMap<String, KeywordNode>();
-
-        // add the nodes of two graphs to the merged graph
-		for (KeywordNode n : kg1.values())
-			kg.put(n.keyword.baseForm, new KeywordNode(n.keyword));
-		for (KeywordNode n : kg2.values())
-			kg.put(n.keyword.baseForm, new KeywordNode(n.keyword));
-
-        // add the edges of two graphs to the merged graph
-		for (KeywordNode n : kg1.values()) {
-            for (KeywordEdge e : n.edges.values()) {
-                if (n.keyword.baseForm.compareTo(e.opposite(n).keyword.baseForm) < 0) {
-                    if (!kg.get(e.n1.keyword.baseForm).edges.containsKey(e.id)) {
-                        KeywordNode n1 = kg.get(e.n1.keyword.baseForm);
-                        KeywordNode n2 = kg.get(e.n2.keyword.baseForm);
-                        KeywordEdge ee = new KeywordEdge(n1, n2, e.id);
-                        n1.edges.put(ee.id, ee);
-                        n2.edges.put(ee.id, ee);
-                    }
-                }
-            }
-        }
-		for (KeywordNode n : kg2.values()) {
-            for (KeywordEdge e : n.edges.values()) {
-                if (n.keyword.baseForm.compareTo(e.opposite(n).keyword.baseForm) < 0) {
-                    if (!kg.get(e.n1.keyword.baseForm).edges.containsKey(e.id)) {
-                        KeywordNode n1 = kg.get(e.n1.keyword.baseForm);
-                        KeywordNode n2 = kg.get(e.n2.keyword.baseForm);
-                        KeywordEdge ee = new KeywordEdge(n1, n2, e.id);
-                        n1.edges.put(ee.id, ee);
-                        n2.edges.put(ee.id, ee);
-                    }
-                }
-            }
-        }
-
-		return kg;
-	}
-
-    public static void removeNode(HashMap<String, KeywordNode> graphNodes, String keyword) {
-        ArrayList<String> toRemove = new ArrayList<String>();
-        for (String key: graphNodes.keySet()) {
-            KeywordNode keywordNode = graphNodes.get(key);
-            if (keywordNode.keyword.equals(keyword)) {
-                toRemove.add(key);
-            }
-        }
-        for (String key: toRemove) {
-            graphNodes.get(key).removeAllEdges();
-            graphNodes.remove(key);
-        }
-    }
-
-    /**
-     * Get all string keywords contained in a graph.
-     * @param graph The graph we are analyzing.
-     * @return A set of keywords.
-     */
-    public static HashSet<String> getKeywords(HashMap<String, KeywordNode> graph) {
-        HashSet<String> keywords = new HashSet<>();
-        for (KeywordNode kw: graph.values()) {
-            keywords.add(kw.keyword.word);
-        }
-        return keywords;
-    }
-
-    /**
-     * Print graph nodes and edges to node.txt and edge.txt.
-     * <p>
-     * @param nodes The graph to print.
-     */
-    public void printGraph(HashMap<String, KeywordNode> nodes) {
-        try {
-            DataOutputStream nout = new DataOutputStream(new FileOutputStream("node.txt"));
-            DataOutputStream eout = new DataOutputStream(new FileOutputStream("edge.txt"));
-            printGraph(nodes, nout, eout);
-            nout.close();
-            eout.close();
-        } catch (Exception e) {
-            e.printStackTrace();
-        }
-
-    }
-
-    /**
-     * Print a list of graph to node.txt and edge.txt.
-     * <p>
-     * @param communities The graph array to print.
-     */
-    public void printGraph(ArrayList<HashMap<String, KeywordNode>> communities) {
-        try {
-            DataOutputStream nout = new DataOutputStream(new FileOutputStream("node.txt"));
-            DataOutputStream eout = new DataOutputStream(new FileOutputStream("edge.txt"));
-            for (HashMap<String, KeywordNode> nodes : communities) {
-                printGraph(nodes, nout, eout);
-            }
-            nout.close();
-            eout.close();
-        } catch (Exception e) {
-            e.printStackTrace();
-        }
-
-    }
-
-    /**
-     * Print graph nodes and edges to specific output streams.
-     * <p>
-     * @param nodes The graph to print.
-     * @param nout The output stream of nodes.
-     * @param eout The output stream of edges.
-     * @throws IOException
-     */
-    private void printGraph(HashMap<String, KeywordNode> nodes,
-                            DataOutputStream nout,
-                            DataOutputStream eout) throws IOException {
-        for (KeywordNode n : nodes.values()) {
-            nout.writeBytes(n.id + "\t\t\t\t\t\t" + n.keyword.word + "\n");
-            for (KeywordEdge e : n.edges.values()) {
-                if (e.n1.equals(n)) {
-                    eout.writeBytes(e.n1.id + "\t" + e.n2.id + "\n");
-                }
-            }
-        }
-    }
-
-}
+package edu.ualberta.storyteller.core.keywordorganizer;
+
+import edu.ualberta.storyteller.core.parameter.Parameters;
+import edu.ualberta.storyteller.core.dataloader.Keyword;
+import edu.ualberta.storyteller.core.dataloader.Corpus;
+import edu.ualberta.storyteller.core.dataloader.Document;
+import edu.ualberta.storyteller.core.util.ConcurrencyUtils;
+import java.io.Serializable;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.function.Supplier;
+
+/**
+ * This class defines keyword graph (KeyGraph).
+ * <p>
+ * @author Bang Liu <bang3@ualberta.ca>
+ * @version 2017.1219
+ */
+public class KeywordGraph implements Serializable {
+
+    /**
+     * Serialization version.
+     */
+    private static final long serialVersionUID = -2362012000684995953L;
+
+    /**
+     * Configuration.
+     */
+	Parameters parameters;
+
+    /**
+     * The map of graph nodes.
+     */
+	public HashMap<String, KeywordNode> graphNodes;
+
+    /**
+     * Documents that node postings refer to.
+     */
+	public transient PostingStore postingStore;
+
+    /**
+     * Error bound of pair count estimates in approximate co-occurrence mode, 0 in exact mode.
+     */
+	public double cooccurrenceErrorBound;
+
+    /**
+     * Number of keyword pairs that were counted exactly.
+     */
+	public int numCandidatePairs;
+
+
+    /**
+     * Default constructor.
+     */
+	public KeywordGraph() {
+    }
+
+    /**
+     * Parametric constructor.
+     * <p>
+     * @param cons Configuration.
+     */
+	public KeywordGraph(Parameters cons) {
+		parameters = cons;
+	}
+
+    /**
+     * Create keyword graph given documents.
+     * @param corpus The corpus we are handling.
+     */
+	public void buildGraph(Corpus corpus) {
+		// add nodes
+		addNodes(corpus);
+
+//		// filter nodes
+//		ArrayList<String> toRemoveIds = new ArrayList<String>();
+//		for (KeywordNode n : graphNodes.values()) {
+//            // remove nodes whose keyword's tf smaller than a threshold (too rare)
+//            // or keyword's df bigger than a threshold (too frequent and normal)
+//            if (n.keyword.tf < parameters.minNodeDF ||
+//                corpus.DF.get(n.keyword.baseForm) > parameters.maxNodeDFPercent * corpus.docs.size()) {
+//                toRemoveIds.add(n.keyword.baseForm);
+//            }
+//        }
+//		for (String baseForm : toRemoveIds) {
+//            graphNodes.remove(baseForm);
+//        }
+//		toRemoveIds.clear();
+
+		// add edges
+		addEdges();
+
+//		// post-filter nodes
+//		for (KeywordNode n : graphNodes.values()) {
+//            // remove nodes without edge
+//            if (n.edges.size() == 0) {
+//                toRemoveIds.add(n.keyword.baseForm);
+//            }
+//        }
+//		for (String baseForm : toRemoveIds)
+//			graphNodes.remove(baseForm);
+//		toRemoveIds.clear();
+	}
+
+    /**
+     * Create a node for each keyword of the corpus, with its tf and postings.
+     * <p>
+     * @param corpus The corpus we are handling.
+     */
+	void addNodes(Corpus corpus) {
+		graphNodes = new HashMap<>();
+		postingStore = new PostingStore(corpus.docs.size());
+
+		for (Document d : corpus.docs.values()) {
+			int ordinal = postingStore.add(d);
+			for (Keyword k : d.keywords.values()) {
+                // create a new node or retrieve existing node given a keyword of a document
+				KeywordNode n;
+				if (graphNodes.containsKey(k.baseForm)) {
+                    n = graphNodes.get(k.baseForm);
+                } else {
+					Keyword keyword = new Keyword(k.baseForm, k.word, 0, corpus.getDF(k.termId));
+					n = new KeywordNode(keyword);
+					n.postings = new PostingList(postingStore);
+					graphNodes.put(keyword.baseForm, n);
+				}
+
+                // record the documents associated with this node
+				n.postings.add(ordinal);
+
+                // update keyword's tf
+				n.keyword.tf++;
+			}
+		}
+		for (KeywordNode n : graphNodes.values()) {
+			n.postings.seal();
+		}
+	}
+
+    /**
+     * Count co-occurring keyword pairs and add the edges that pass the edge filters.
+     * <p>
+     * Documents are split into ranges that are counted by parameters.numThreads workers into
+     * primitive pair counters, which are merged afterwards. Edges are added in the order of their
+     * first occurrence, so the graph does not depend on the number of workers.
+     * <p>
+     * In approximate mode, pairs are first counted into a count-min sketch of bounded memory, and
+     * only pairs whose estimated count passes the edge filters are counted exactly. Estimates are
+     * upper bounds and the filters only keep pairs with high enough counts, so the graph is the
+     * same as in exact mode; the sketch error only decides how many extra pairs are counted.
+     */
+	private void addEdges() {
+		// number nodes in base form order, so that n1 of the edge of pair (i, j) is nodes[i]
+		KeywordNode[] nodes = graphNodes.values().toArray(new KeywordNode[0]);
+		Arrays.sort(nodes, (a, b) -> a.keyword.baseForm.compareTo(b.keyword.baseForm));
+		HashMap<String, Integer> indexes = new HashMap<>(nodes.length * 2);
+		for (int i = 0; i < nodes.length; ++i) {
+			indexes.put(nodes[i].keyword.baseForm, i);
+		}
+
+		// count pairs, exactly or only those that may pass the edge filters
+		CooccurrenceCounter counter;
+		if ("approximate".equalsIgnoreCase(parameters.cooccurrenceMode)) {
+			CountMinSketch sketch = new CountMinSketch(parameters.cooccurrenceSketchMB, parameters.cooccurrenceSketchDepth);
+			for (long[] numPairs : forEachRange(() -> new long[1],
+					(numPairs, from, to) -> numPairs[0] += sketchPairs(from, to, indexes, sketch))) {
+				sketch.addTotal(numPairs[0]);
+			}
+			counter = countPairs(indexes, sketch, nodes);
+			cooccurrenceErrorBound = sketch.getErrorBound();
+			numCandidatePairs = counter.size();
+		} else {
+			counter = countPairs(indexes, null, nodes);
+			numCandidatePairs = counter.size();
+		}
+
+		// filter edges
+		long[] kept = new long[counter.size()];
+		int numKept = 0;
+		for (int slot = 0; slot < counter.capacity(); ++slot) {
+			long pair = counter.key(slot);
+			if (pair == 0) {
+				continue;
+			}
+			KeywordNode n1 = nodes[CooccurrenceCounter.first(pair)];
+			KeywordNode n2 = nodes[CooccurrenceCounter.second(pair)];
+			if (keepEdge(counter.count(slot), n1.keyword.df, n2.keyword.df)) {
+				kept[numKept++] = counter.first(slot);
+			}
+		}
+
+		// add kept edges by first occurrence
+		Arrays.sort(kept, 0, numKept);
+		int[] docIndexes = null;
+		int doc = -1;
+		for (int i = 0; i < numKept; ++i) {
+			if ((int) (kept[i] >>> 32) != doc) {
+				doc = (int) (kept[i] >>> 32);
+				docIndexes = nodeIndexes(postingStore.get(doc), indexes);
+			}
+			long position = kept[i] & 0xffffffffL;
+			int i1 = docIndexes[(int) (position / docIndexes.length)];
+			int i2 = docIndexes[(int) (position % docIndexes.length)];
+			KeywordEdge e = new KeywordEdge(nodes[i1], nodes[i2]);
+			e.df = counter.get(CooccurrenceCounter.pair(i1, i2));
+			e.computeCPs();
+			nodes[i1].edges.put(e.id, e);
+			nodes[i2].edges.put(e.id, e);
+		}
+	}
+
+    /**
+     * Decide whether an edge passes the edge filters.
+     * <p>
+     * @param df Number of documents that contain both keywords.
+     * @param df1 DF of one keyword.
+     * @param df2 DF of the other keyword.
+     * @return False for edges with small df or with small edge correlation
+     *         (which means node n1 n2 may also be connected with a lot of other nodes).
+     */
+	boolean keepEdge(int df, double df1, double df2) {
+		double MI = df / (df1 + df2 - df);
+		return !(df < parameters.minEdgeDF || MI < parameters.minEdgeCorrelation);
+	}
+
+    /**
+     * Count keyword pairs of all documents with parameters.numThreads workers.
+     * <p>
+     * Each worker counts all its ranges into its own counter, so there is one counter per worker
+     * to merge, whatever the number of ranges.
+     * <p>
+     * @param indexes The map of (keyword base form, node index).
+     * @param sketch Sketch of pair counts. If it is not null, only pairs whose estimated count
+     *               passes the edge filters are counted.
+     * @param nodes Nodes indexed by node index.
+     * @return Pair counter.
+     */
+	private CooccurrenceCounter countPairs(HashMap<String, Integer> indexes, CountMinSketch sketch, KeywordNode[] nodes) {
+		ArrayList<CooccurrenceCounter> counters = forEachRange(() -> new CooccurrenceCounter(1024),
+				(counter, from, to) -> countPairs(counter, from, to, indexes, sketch, nodes));
+		CooccurrenceCounter counter = counters.get(0);
+		for (int w = 1; w < counters.size(); ++w) {
+			counter.addAll(counters.get(w));
+			counters.set(w, null);
+		}
+		return counter;
+	}
+
+    /**
+     * Run a task on ranges of document ordinals with parameters.numThreads workers.
+     * <p>
+     * @param newState Create the state of a worker.
+     * @param task The task on a range.
+     * @return The state of each worker.
+     */
+	private <T> ArrayList<T> forEachRange(Supplier<T> newState, ConcurrencyUtils.RangeTask<T> task) {
+		return ConcurrencyUtils.forEachRange(parameters.numThreads, postingStore.size(), 1, newState, task);
+	}
+
+    /**
+     * Count the keyword pairs of a range of documents.
+     * <p>
+     * The first occurrence of a pair is the document ordinal in the high 32 bits and the position
+     * of the pair in the document's keyword by keyword loop in the low 32 bits.
+     * <p>
+     * @param counter Pair counter to add the pairs to.
+     * @param from First document ordinal.
+     * @param to Last document ordinal, exclusive.
+     * @param indexes The map of (keyword base form, node index).
+     * @param sketch Sketch of pair counts. If it is not null, only pairs whose estimated count
+     *               passes the edge filters are counted. As estimates are never too small, no
+     *               edge that passes the filters is missed.
+     * @param nodes Nodes indexed by node index.
+     */
+	private void countPairs(CooccurrenceCounter counter, int from, int to, HashMap<String, Integer> indexes,
+							CountMinSketch sketch, KeywordNode[] nodes) {
+		for (int ordinal = from; ordinal < to; ++ordinal) {
+			int[] docIndexes = nodeIndexes(postingStore.get(ordinal), indexes);
+			int k = docIndexes.length;
+			for (int a = 0; a < k; ++a) {
+				for (int b = 0; b < k; ++b) {
+					if (docIndexes[a] < docIndexes[b]) {
+						long pair = CooccurrenceCounter.pair(docIndexes[a], docIndexes[b]);
+						if (sketch == null || keepEdge(estimate(sketch, pair, nodes[docIndexes[a]], nodes[docIndexes[b]]),
+								nodes[docIndexes[a]].keyword.df, nodes[docIndexes[b]].keyword.df)) {
+							counter.add(pair, 1, ((long) ordinal << 32) | ((long) a * k + b));
+						}
+					}
+				}
+			}
+		}
+	}
+
+    /**
+     * Get an upper bound of the count of a pair from a sketch.
+     * <p>
+     * @param sketch Sketch of pair counts.
+     * @param pair Packed pair.
+     * @param n1 Node of one keyword.
+     * @param n2 Node of the other keyword.
+     * @return The estimated count, which is at most the tf of either keyword.
+     */
+	private static int estimate(CountMinSketch sketch, long pair, KeywordNode n1, KeywordNode n2) {
+		return (int) Math.min(sketch.estimate(pair), Math.min(n1.keyword.tf, n2.keyword.tf));
+	}
+
+    /**
+     * Add the keyword pairs of a range of documents to a sketch.
+     * <p>
+     * @param from First document ordinal.
+     * @param to Last document ordinal, exclusive.
+     * @param indexes The map of (keyword base form, node index).
+     * @param sketch Sketch of pair counts.
+     * @return Number of added pairs, which are not added to the total count of the sketch.
+     */
+	private long sketchPairs(int from, int to, HashMap<String, Integer> indexes, CountMinSketch sketch) {
+		long numPairs = 0;
+		for (int ordinal = from; ordinal < to; ++ordinal) {
+			int[] docIndexes = nodeIndexes(postingStore.get(ordinal), indexes);
+			for (int a = 0; a < docIndexes.length; ++a) {
+				for (int b = 0; b < docIndexes.length; ++b) {
+					if (docIndexes[a] < docIndexes[b]) {
+						sketch.add(CooccurrenceCounter.pair(docIndexes[a], docIndexes[b]));
+						++numPairs;
+					}
+				}
+			}
+		}
+		return numPairs;
+	}
+
+    /**
+     * Get the node indexes of a document's keywords.
+     * <p>
+     * @param d The document.
+     * @param indexes The map of (keyword base form, node index).
+     * @return Node indexes in the iteration order of the document's keywords.
+     */
+	private static int[] nodeIndexes(Document d, HashMap<String, Integer> indexes) {
+		int[] docIndexes = new int[d.keywords.size()];
+		int i = 0;
+		for (Keyword k : d.keywords.values()) {
+			docIndexes[i++] = indexes.get(k.baseForm);
+		}
+		return docIndexes;
+	}
+
+    /**
+     * Merge two graphs into one graph.
+     * @param kg1 One graph to merge.
+     * @param kg2 Another graph to merge.
+     * @return kg The merges graph.
+     */
+	public static HashMap<String, KeywordNode> mergeKeyGraphs(HashMap<String, KeywordNode> kg1,
+                                                              HashMap<String, KeywordNode> kg2) {
+        // initialize the merged graph
+		HashMap<String, KeywordNode> kg = new HashMap<String, KeywordNode>();
+
+        // add the nodes of two graphs to the merged graph
+		for (KeywordNode n : kg1.values())
+			kg.put(n.keyword.baseForm, copyNode(n));
+		for (KeywordNode n : kg2.values())
+			kg.put(n.keyword.baseForm, copyNode(n));
+
+        // add the edges of two graphs to the merged graph
+		for (KeywordNode n : kg1.values()) {
+            for (KeywordEdge e : n.edges.values()) {
+                if (n.keyword.baseForm.compareTo(e.opposite(n).keyword.baseForm) < 0) {
+                    if (!kg.get(e.n1.keyword.baseForm).edges.containsKey(e.id)) {
+                        KeywordNode n1 = kg.get(e.n1.keyword.baseForm);
+                        KeywordNode n2 = kg.get(e.n2.keyword.baseForm);
+                        KeywordEdge ee = new KeywordEdge(n1, n2, e.id);
+                        n1.edges.put(ee.id, ee);
+                        n2.edges.put(ee.id, ee);
+                    }
+                }
+            }
+        }
+		for (KeywordNode n : kg2.values()) {
+            for (KeywordEdge e : n.edges.values()) {
+                if (n.keyword.baseForm.compareTo(e.opposite(n).keyword.baseForm) < 0) {
+                    if (!kg.get(e.n1.keyword.baseForm).edges.containsKey(e.id)) {
+                        KeywordNode n1 = kg.get(e.n1.keyword.baseForm);
+                        KeywordNode n2 = kg.get(e.n2.keyword.baseForm);
+                        KeywordEdge ee = new KeywordEdge(n1, n2, e.id);
+                        n1.edges.put(ee.id, ee);
+                        n2.edges.put(ee.id, ee);
+                    }
+                }
+            }
+        }
+
+		return kg;
+	}
+
+    /**
+     * Copy a node without its edges. The copy shares the keyword and postings of the node.
+     * @param n The node to copy.
+     * @return The copy.
+     */
+	private static KeywordNode copyNode(KeywordNode n) {
+		KeywordNode copy = new KeywordNode(n.keyword);
+		copy.postings = n.postings;
+		return copy;
+	}
+
+    public static void removeNode(HashMap<String, KeywordNode> graphNodes, String keyword) {
+        ArrayList<String> toRemove = new ArrayList<String>();
+        for (String key: graphNodes.keySet()) {
+            KeywordNode keywordNode = graphNodes.get(key);
+            if (keywordNode.keyword.equals(keyword)) {
+                toRemove.add(key);
+            }
+        }
+        for (String key: toRemove) {
+            graphNodes.get(key).removeAllEdges();
+            graphNodes.remove(key);
+        }
+    }
+
+    /**
+     * Get all string keywords contained in a graph.
+     * @param graph The graph we are analyzing.
+     * @return A set of keywords.
+     */
+    public static HashSet<String> getKeywords(HashMap<String, KeywordNode> graph) {
+        HashSet<String> keywords = new HashSet<>();
+        for (KeywordNode kw: graph.values()) {
+            keywords.add(kw.keyword.word);
+        }
+        return keywords;
+    }
+
+    /**
+     * Print graph nodes and edges to node.txt and edge.txt.
+     * <p>
+     * @param nodes The graph to print.
+     */
+    public void printGraph(HashMap<String, KeywordNode> nodes) {
+        try {
+            DataOutputStream nout = new DataOutputStream(new FileOutputStream("node.txt"));
+            DataOutputStream eout = new DataOutputStream(new FileOutputStream("edge.txt"));
+            printGraph(nodes, nout, eout);
+            nout.close();
+            eout.close();
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+
+    }
+
+    /**
+     * Print a list of graph to node.txt and edge.txt.
+     * <p>
+     * @param communities The graph array to print.
+     */
+    public void printGraph(ArrayList<HashMap<String, KeywordNode>> communities) {
+        try {
+            DataOutputStream nout = new DataOutputStream(new FileOutputStream("node.txt"));
+            DataOutputStream eout = new DataOutputStream(new FileOutputStream("edge.txt"));
+            for (HashMap<String, KeywordNode> nodes : communities) {
+                printGraph(nodes, nout, eout);
+            }
+            nout.close();
+            eout.close();
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+
+    }
+
+    /**
+     * Print graph nodes and edges to specific output streams.
+     * <p>
+     * @param nodes The graph to print.
+     * @param nout The output stream of nodes.
+     * @param eout The output stream of edges.
+     * @throws IOException
+     */
+    private void printGraph(HashMap<String, KeywordNode> nodes,
+                            DataOutputStream nout,
+                            DataOutputStream eout) throws IOException {
+        for (KeywordNode n : nodes.values()) {
+            nout.writeBytes(n.id + "\t\t\t\t\t\t" + n.keyword.word + "\n");
+            for (KeywordEdge e : n.edges.values()) {
+                if (e.n1.equals(n)) {
+                    eout.writeBytes(e.n1.id + "\t" + e.n2.id + "\n");
+                }
+            }
+        }
+    }
+
+}
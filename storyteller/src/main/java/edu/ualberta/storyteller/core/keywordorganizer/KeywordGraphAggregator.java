@@ -0,0 +1,222 @@
+package edu.ualberta.storyteller.core.keywordorganizer;
+
+import edu.ualberta.storyteller.core.dataloader.Document;
+import edu.ualberta.storyteller.core.dataloader.Keyword;
+import edu.ualberta.storyteller.core.dataloader.TermDictionary;
+import edu.ualberta.storyteller.core.dataloader.WindowedCorpus;
+import edu.ualberta.storyteller.core.parameter.Parameters;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * This class keeps the keyword co-occurrence counts of a windowed corpus as per-bucket partial
+ * aggregates, so that the keyword graph of the window is updated instead of rebuilt.
+ * <p>
+ * Each bucket of the corpus has a partial with its documents and their keyword pair counts. When
+ * the window slides, the partials of expired buckets are subtracted from the window counts, and
+ * new buckets are counted and added. Buckets that gained or lost documents are adjusted by those
+ * documents only. Node tf and DF are the per-bucket DF partials of the windowed corpus itself.
+ * Counting pairs is quadratic in keywords per document, so daily work is proportional to the
+ * documents that joined or left the window.
+ * <p>
+ * @author Bang Liu <bang3@ualberta.ca>
+ * @version 2017.1219
+ */
+public class KeywordGraphAggregator {
+
+    /**
+     * Configuration.
+     */
+    Parameters parameters;
+
+    /**
+     * The corpus whose documents are aggregated.
+     */
+    private WindowedCorpus corpus;
+
+    /**
+     * The map of (bucket index, partial aggregate of the bucket).
+     */
+    private TreeMap<Long, Partial> partials = new TreeMap<>();
+
+    /**
+     * Keyword pair counts of the window, keyed by pairs of term ids.
+     */
+    private CooccurrenceCounter pairs = new CooccurrenceCounter(1024, false);
+
+    /**
+     * Parametric constructor.
+     * <p>
+     * @param cons Configuration.
+     */
+    public KeywordGraphAggregator(Parameters cons) {
+        parameters = cons;
+    }
+
+    /**
+     * Bring the aggregates up to date with the documents of a windowed corpus and build its keyword graph.
+     * The graph is the same as KeywordGraph.buildGraph builds, except for the order of nodes' edges.
+     * If the corpus is not the one of the previous update, aggregation starts over.
+     * <p>
+     * @param corpus The windowed corpus.
+     * @return Keyword graph of the corpus.
+     */
+    public KeywordGraph update(WindowedCorpus corpus) {
+        if (corpus != this.corpus) {
+            this.corpus = corpus;
+            partials.clear();
+            pairs = new CooccurrenceCounter(1024, false);
+        }
+        SortedMap<Long, Map<String, Document>> bucketDocs = corpus.getBucketDocs();
+
+        // subtract expired buckets
+        for (Iterator<Map.Entry<Long, Partial>> it = partials.entrySet().iterator(); it.hasNext(); ) {
+            Map.Entry<Long, Partial> entry = it.next();
+            if (!bucketDocs.containsKey(entry.getKey())) {
+                pairs.addAll(entry.getValue().pairs, -1);
+                it.remove();
+            }
+        }
+
+        // add new buckets, and adjust buckets whose documents changed
+        for (Map.Entry<Long, Map<String, Document>> entry : bucketDocs.entrySet()) {
+            Map<String, Document> docs = entry.getValue();
+            Partial partial = partials.get(entry.getKey());
+            if (partial == null) {
+                partial = new Partial();
+                for (Document d : docs.values()) {
+                    partial.add(d);
+                }
+                pairs.addAll(partial.pairs);
+                partials.put(entry.getKey(), partial);
+                continue;
+            }
+            ArrayList<Document> removed = new ArrayList<>();
+            for (Document d : partial.docs.values()) {
+                if (docs.get(d.id) != d) {
+                    removed.add(d);
+                }
+            }
+            for (Document d : removed) {
+                partial.remove(d);
+                countPairs(pairs, d, -1);
+            }
+            for (Document d : docs.values()) {
+                if (partial.docs.get(d.id) != d) {
+                    partial.add(d);
+                    countPairs(pairs, d, 1);
+                }
+            }
+        }
+
+        return buildGraph();
+    }
+
+    /**
+     * Build the keyword graph of the corpus from the window counts.
+     * <p>
+     * Nodes and their postings are created from the documents as in KeywordGraph.buildGraph.
+     * Edges are filtered in one pass over the window pair counts, because the filters depend on
+     * the DF of nodes, which changes with every document that joins or leaves the window.
+     * <p>
+     * @return The keyword graph.
+     */
+    private KeywordGraph buildGraph() {
+        KeywordGraph g = new KeywordGraph(parameters);
+        g.addNodes(corpus);
+
+        // filter edges
+        long[] kept = new long[pairs.size()];
+        int numKept = 0;
+        for (int slot = 0; slot < pairs.capacity(); ++slot) {
+            long pair = pairs.key(slot);
+            if (pair != 0 && g.keepEdge(pairs.count(slot), corpus.getDF(CooccurrenceCounter.first(pair)),
+                    corpus.getDF(CooccurrenceCounter.second(pair)))) {
+                kept[numKept++] = pair;
+            }
+        }
+
+        // add kept edges in pair order
+        Arrays.sort(kept, 0, numKept);
+        TermDictionary dictionary = TermDictionary.getInstance();
+        for (int i = 0; i < numKept; ++i) {
+            KeywordNode n1 = g.graphNodes.get(dictionary.getTerm(CooccurrenceCounter.first(kept[i])));
+            KeywordNode n2 = g.graphNodes.get(dictionary.getTerm(CooccurrenceCounter.second(kept[i])));
+            if (n1.keyword.baseForm.compareTo(n2.keyword.baseForm) > 0) {
+                KeywordNode n = n1;
+                n1 = n2;
+                n2 = n;
+            }
+            KeywordEdge e = new KeywordEdge(n1, n2);
+            e.df = pairs.get(kept[i]);
+            e.computeCPs();
+            n1.edges.put(e.id, e);
+            n2.edges.put(e.id, e);
+        }
+        return g;
+    }
+
+    /**
+     * Add or subtract the keyword pairs of a document.
+     * <p>
+     * @param counter Pair counter keyed by pairs of term ids.
+     * @param d The document.
+     * @param sign 1 to add the pairs, -1 to subtract them.
+     */
+    private static void countPairs(CooccurrenceCounter counter, Document d, int sign) {
+        int[] termIds = new int[d.keywords.size()];
+        int k = 0;
+        for (Keyword keyword : d.keywords.values()) {
+            termIds[k++] = keyword.termId;
+        }
+        Arrays.sort(termIds);
+        for (int a = 0; a < k; ++a) {
+            for (int b = a + 1; b < k; ++b) {
+                counter.add(CooccurrenceCounter.pair(termIds[a], termIds[b]), sign, 0);
+            }
+        }
+    }
+
+    /**
+     * Define the partial aggregate of a bucket: its documents and their keyword pair counts.
+     */
+    private static class Partial {
+
+        /**
+         * Documents counted in this partial.
+         */
+        LinkedHashMap<String, Document> docs = new LinkedHashMap<>();
+
+        /**
+         * Keyword pair counts of the documents, keyed by pairs of term ids.
+         */
+        CooccurrenceCounter pairs = new CooccurrenceCounter(1024, false);
+
+        /**
+         * Count a document.
+         * <p>
+         * @param d The document.
+         */
+        void add(Document d) {
+            docs.put(d.id, d);
+            countPairs(pairs, d, 1);
+        }
+
+        /**
+         * Stop counting a document.
+         * <p>
+         * @param d The document.
+         */
+        void remove(Document d) {
+            docs.remove(d.id);
+            countPairs(pairs, d, -1);
+        }
+
+    }
+
+}
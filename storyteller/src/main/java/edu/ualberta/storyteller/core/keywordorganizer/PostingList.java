@@ -0,0 +1,142 @@
+package edu.ualberta.storyteller.core.keywordorganizer;
+
+import edu.ualberta.storyteller.core.dataloader.Document;
+import java.util.Arrays;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
+
+/**
+ * This class defines the posting list of a graph node: the ordinals of the documents that
+ * contain the node's keyword.
+ * <p>
+ * Ordinals are appended in ascending order into an int array. When the list is sealed, it is
+ * converted into a bitmap over all ordinals of the store if that takes less memory, which is the
+ * case for keywords contained in more than 1/32 of the documents.
+ * <p>
+ * @author Bang Liu <bang3@ualberta.ca>
+ * @version 2017.1219
+ */
+public class PostingList {
+
+    /**
+     * The store that ordinals refer to.
+     */
+    private final PostingStore store;
+
+    /**
+     * Sorted document ordinals, or null if the list is a bitmap.
+     */
+    private int[] ordinals = new int[4];
+
+    /**
+     * Bitmap of document ordinals, or null if the list is an array.
+     */
+    private long[] bitmap;
+
+    /**
+     * Number of documents.
+     */
+    private int size;
+
+    /**
+     * Parametric constructor.
+     * <p>
+     * @param store The store that ordinals refer to.
+     */
+    public PostingList(PostingStore store) {
+        this.store = store;
+    }
+
+    /**
+     * Append a document ordinal. Ordinals must be added in ascending order, and adding
+     * the last ordinal again has no effect.
+     * <p>
+     * @param ordinal Document ordinal.
+     */
+    public void add(int ordinal) {
+        if (size > 0 && ordinals[size - 1] == ordinal) {
+            return;
+        }
+        if (size == ordinals.length) {
+            ordinals = Arrays.copyOf(ordinals, size * 2);
+        }
+        ordinals[size++] = ordinal;
+    }
+
+    /**
+     * Finish adding ordinals and choose the compact representation.
+     */
+    public void seal() {
+        if (ordinals == null) {
+            return;
+        }
+        int universe = store.size();
+        if (size > universe / 32) {
+            bitmap = new long[(universe + 63) >>> 6];
+            for (int i = 0; i < size; ++i) {
+                bitmap[ordinals[i] >>> 6] |= 1L << ordinals[i];
+            }
+            ordinals = null;
+        } else if (size < ordinals.length) {
+            ordinals = Arrays.copyOf(ordinals, size);
+        }
+    }
+
+    /**
+     * Get the number of documents.
+     * <p>
+     * @return Number of documents.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Visit document ordinals in ascending order.
+     * <p>
+     * @param action Action on each ordinal.
+     */
+    public void forEach(IntConsumer action) {
+        if (bitmap == null) {
+            for (int i = 0; i < size; ++i) {
+                action.accept(ordinals[i]);
+            }
+            return;
+        }
+        for (int w = 0; w < bitmap.length; ++w) {
+            long word = bitmap[w];
+            while (word != 0) {
+                action.accept((w << 6) + Long.numberOfTrailingZeros(word));
+                word &= word - 1;
+            }
+        }
+    }
+
+    /**
+     * Visit documents in ascending order of ordinal.
+     * <p>
+     * @param action Action on each document.
+     */
+    public void forEachDocument(Consumer<Document> action) {
+        forEach(ordinal -> action.accept(store.get(ordinal)));
+    }
+
+    /**
+     * Check whether the list is stored as a bitmap.
+     * <p>
+     * @return True if it is a bitmap.
+     */
+    public boolean isBitmap() {
+        return bitmap != null;
+    }
+
+    /**
+     * Get the number of bytes used by ordinals, not counting object headers.
+     * <p>
+     * @return Number of bytes.
+     */
+    public long sizeInBytes() {
+        return bitmap == null ? 4L * ordinals.length : 8L * bitmap.length;
+    }
+
+}
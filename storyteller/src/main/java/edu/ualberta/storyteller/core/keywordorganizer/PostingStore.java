@@ -0,0 +1,69 @@
+package edu.ualberta.storyteller.core.keywordorganizer;
+
+import edu.ualberta.storyteller.core.dataloader.Document;
+import java.util.Arrays;
+
+/**
+ * This class assigns ordinals to the documents of a keyword graph.
+ * <p>
+ * Posting lists of graph nodes refer to documents by these ordinals, which are given in the order
+ * documents are added, so each posting list can be kept sorted by appending.
+ * <p>
+ * @author Bang Liu <bang3@ualberta.ca>
+ * @version 2017.1219
+ */
+public class PostingStore {
+
+    /**
+     * Documents indexed by ordinal.
+     */
+    private Document[] docs;
+
+    /**
+     * Number of documents.
+     */
+    private int size;
+
+    /**
+     * Parametric constructor.
+     * <p>
+     * @param capacity Expected number of documents.
+     */
+    public PostingStore(int capacity) {
+        docs = new Document[Math.max(16, capacity)];
+    }
+
+    /**
+     * Add a document.
+     * <p>
+     * @param d The document.
+     * @return Ordinal of the document.
+     */
+    public int add(Document d) {
+        if (size == docs.length) {
+            docs = Arrays.copyOf(docs, size * 2);
+        }
+        docs[size] = d;
+        return size++;
+    }
+
+    /**
+     * Get a document by ordinal.
+     * <p>
+     * @param ordinal Document ordinal.
+     * @return The document.
+     */
+    public Document get(int ordinal) {
+        return docs[ordinal];
+    }
+
+    /**
+     * Get the number of documents.
+     * <p>
+     * @return Number of documents.
+     */
+    public int size() {
+        return size;
+    }
+
+}
@@ -1,237 +1,389 @@
-package edu.ualberta.storyteller.core.parameter;
-
-import edu.ualberta.storyteller.core.util.*;
-import java.io.DataInputStream;
-import java.io.FileInputStream;
-import java.io.Serializable;
-import java.util.HashMap;
-import java.util.HashSet;
-import java.util.StringTokenizer;
-
-public class Parameters implements Serializable {
-
-    //! Language.
-    public String language;
-
-    //! Data type.
-    public String dataType;
-
-    //! TF boost rate for normal words.
-	//! NOTICE: currently, if it is not zero, the program will be out of memory!!!
-    public double boostRateNormalWord = 0;
-
-    //! TF boost rate for document's main keywords.
-    public double boostRateMainKeyword = 3;
-
-    //! TF boost rate for document's normal keywords.
-    public double boostRateNormalKeyword = 1;
-
-    //! Minimum cosine similarity between a keyword graph and its related document.
-    //! If the similarity is bigger than this threshold, the document will be included
-    //! in the topic.
-    public double minSimDoc2KeyGraph = .25;
-
-    //! Algorithm for keyword graph community detection.
-    public String communityDetectAlg = "Betweenness";
-
-    //! Algorithm for event splitting.
-    //! Currently: "DocRelation", "DocGraph", "Rule"
-    public String eventSplitAlg = "DocRelation";
-
-    //! Minimum number of related documents for a topic.
-    //! Detected topics with a size smaller than it will be filtered.
-    public int minTopicSize = 5;
-
-    //! Minimum document frequency of keyword graph nodes.
-    //! Nodes in a keyword graph will a smaller DF will be filtered (too rare).
-    public int minNodeDF = 4;
-
-	//! Minimum document frequency of keyword graph edges.
-	//! Edges in a keyword graph will a smaller DF will be filtered (too rare).
-	public int minEdgeDF = 3;
-
-	//! Minimum edge correlation of keyword graph edges.
-	//! KeywordEdge (n1, n2) will smaller correlation will be filtered
-	//! (which means node n1 n2 may also be connected with a lot of other nodes).
-    //! NOTICE: this param influence the final clusters a lot.
-	public double minEdgeCorrelation = .15;
-
-    //! Maximum document frequency percentage of keyword graph nodes.
-    //! Nodes appear in over than this percentage documents will be filtered (too normal).
-    public double maxNodeDFPercent = .3;
-
-    //! Minimum number of nodes for a cluster (a keyword graph that represents a topic).
-    //! Clusters with a smaller size will be filtered.
-    public int minClusterNodeSize = 3;
-
-    //! Maximum number of nodes for a cluster (a keyword graph that represents a topic).
-    //! Clusters with a bigger size will continue be split by community detection algorithm.
-    public int maxClusterNodeSize = 800;
-
-    //! Minimum number of keywords for a document.
-    //! Documents that contains less keywords will be filtered.
-    public int minDocKeywordSize = 5;
-
-    //! Merge two document clusters if their intersect proportion is bigger than a threshold
-    public double minIntersectPercentToMergeCluster = .3;
-
-    //! Minimum conditional probability to duplicate an edge rather than delete it from keyword graph.
-    //! Duplicate the edge if the conditional probability is higher than this threshold.
-    public double minCpToDuplicateEdge = 1.7;
-
-    //! Whether use document's topic to split a document cluster into sub clusters.
-    public boolean useDocumentTopic = false;
-
-    //! Whether use document's title common word's count to split a document cluster into sub clusters.
-    public boolean useDocumentTitleCommonWords = false;
-
-    //! Minimum number of common words in title to taken two documents into one group.
-    public int minTitleCommonWordsSize = 2;
-
-    //! Minimum percentage of common words in title to taken two documents into one group.
-    public double minTitleCommonWordsPercent = .4;
-
-    //! The file that contains stop words. Each line is a word.
-    public String fStopwords;
-    public HashSet<String> stopwords;
-
-    //! The file that contains SVM model to determine whether two documents are of same event.
-    public String fModel;
-    public libsvm.svm_model model;
-
-    public String fSameStoryModel;
-    public libsvm.svm_model sameStoryModel;
-
-    //! Minimum key graph compatibility for matching a document cluster to an existing story tree.
-    public double minKeygraphCompatibilityDc2St = .6;
-
-    //! Minimum compatibility for matching a document cluster to an existing story tree's node.
-    public double minCompatibilityDc2Sn = .3;
-
-    //! Minimum tf cosine similarity for matching a document cluster to an existing story tree's node.
-    public double minTFCosineSimilarityDc2Sn = .02;
-
-    //! Used to control the influence of timestamp difference between new document and old document.
-    //! Assume if time gap is bigger, the possibility that two documents are connected will decay by exponential func.
-    //! If this param is bigger, the decay will be faster; otherwise, the decay is smoother.
-    //! Calculate time proximity.
-    public double deltaTimeGap = .5;
-
-    //! Used to control the influence of document distribution.
-    //! Calculate document distributional proximity.
-    public double deltaDocDistribution = .5;
-
-    //! How many day's data to keep.
-    public int historyLength = 3;
-
-    //! Whether use extra title for topic match.
-    public boolean useRelatedNewsTitlesForMatch = false;
-
-    //! The file that contains SVM model to determine whether a document matches a query.
-    public String fQueryDocMatchModel;
-    public libsvm.svm_model queryDocMatchModel;
-
-    //! Maximum number of docs to match for a topic.
-    public int maxMatchedDocsSize = 20;
-
-    /**
-     * Parametric constructor.
-     * Create Parameters instance from file.
-     * @param paramsFile File name of parameters' file.
-     * @throws Exception
-     */
-	public Parameters(String paramsFile) throws Exception {
-		load(new DataInputStream(new FileInputStream(paramsFile)));
-	}
-
-    /**
-     * Load parameters from parameter file.
-     * @param in Parameter file input stream.
-     * @throws Exception
-     */
-	public void load(DataInputStream in) throws Exception {
-        // create variable to save parameters
-		HashMap<String, String> conf = new HashMap<String, String>();
-
-        // read parameter file and parse each line.
-        // lines started with "//" are considered to be comments
-		String line = null;
-		while ((line = in.readLine()) != null) {
-			line = line.trim();
-			if (line.startsWith("//") || line.length() == 0) {
-                continue;
-            }
-
-			StringTokenizer st = new StringTokenizer(line, "= ;");
-			conf.put(st.nextToken(), st.nextToken());
-		}
-
-        // parameters for experimental setup
-        language = conf.get("language");
-        dataType = conf.get("dataType");
-
-        // parameters to boost word tf
-        boostRateNormalWord = Double.parseDouble(conf.get("boostRateNormalWord"));
-        boostRateMainKeyword = Double.parseDouble(conf.get("boostRateMainKeyword"));
-        boostRateNormalKeyword = Double.parseDouble(conf.get("boostRateNormalKeyword"));
-
-        // parameters to filter documents
-        minDocKeywordSize = Integer.parseInt(conf.get("minDocKeywordSize"));
-
-        // parameters to filter keyword graph nodes
-        minNodeDF = Integer.parseInt(conf.get("minNodeDF"));
-		maxNodeDFPercent = Double.parseDouble(conf.get("maxNodeDFPercent"));
-
-        // parameters to filter keyword graph edges
-		minEdgeDF = Integer.parseInt(conf.get("minEdgeDF"));
-        minEdgeCorrelation = Double.parseDouble(conf.get("minEdgeCorrelation"));
-
-        // parameters to detect keyword graph communities
-        communityDetectAlg = conf.get("communityDetectAlg");
-
-        // parameters to split or filter keyword graphs
-		maxClusterNodeSize = Integer.parseInt(conf.get("maxClusterNodeSize"));
-		minClusterNodeSize = Integer.parseInt(conf.get("minClusterNodeSize"));
-		minIntersectPercentToMergeCluster = Double.parseDouble(conf.get("minIntersectPercentToMergeCluster"));
-        minCpToDuplicateEdge = Double.parseDouble(conf.get("minCpToDuplicateEdge"));
-
-        // parameters to assign document to keyword graphs
-        minSimDoc2KeyGraph = Double.parseDouble(conf.get("minSimDoc2KeyGraph"));
-
-        // parameters to filter document clusters
-        minTopicSize = Integer.parseInt(conf.get("minTopicSize"));
-
-        // parameters to processing document clusters
-        useDocumentTopic = Boolean.parseBoolean(conf.get("useDocumentTopic"));
-        useDocumentTitleCommonWords = Boolean.parseBoolean(conf.get("useDocumentTitleCommonWords"));
-        minTitleCommonWordsSize = Integer.parseInt(conf.get("minTitleCommonWordsSize"));
-        minTitleCommonWordsPercent = Double.parseDouble(conf.get("minTitleCommonWordsPercent"));
-        fStopwords = conf.get("fStopwords");
-        stopwords = NlpUtils.importStopwords(fStopwords, language);
-        eventSplitAlg = conf.get("eventSplitAlg");
-
-        // parameters to merge new documents wit stories
-        minKeygraphCompatibilityDc2St = Double.parseDouble(conf.get("minKeygraphCompatibilityDc2St"));
-        minCompatibilityDc2Sn = Double.parseDouble(conf.get("minCompatibilityDc2Sn"));
-        minTFCosineSimilarityDc2Sn = Double.parseDouble(conf.get("minTFCosineSimilarityDc2Sn"));
-        deltaTimeGap = Double.parseDouble(conf.get("deltaTimeGap"));
-        deltaDocDistribution = Double.parseDouble(conf.get("deltaDocDistribution"));
-
-        // parameters for filter corpora
-        historyLength = Integer.parseInt(conf.get("historyLength"));
-
-        // parameters related to event classification supervised learning
-        fModel = conf.get("fModel");
-        model = libsvm.svm.svm_load_model(fModel);
-        fSameStoryModel = conf.get("fSameStoryModel");
-        sameStoryModel = libsvm.svm.svm_load_model(fSameStoryModel);
-
-        // parameters for query doc matching
-        useRelatedNewsTitlesForMatch = Boolean.parseBoolean(conf.get("useRelatedNewsTitlesForMatch"));
-        fQueryDocMatchModel = conf.get("fQueryDocMatchModel");
-        queryDocMatchModel = libsvm.svm.svm_load_model(fQueryDocMatchModel);
-        maxMatchedDocsSize = Integer.parseInt(conf.get("maxMatchedDocsSize"));
-
-    }
-
-}
+package edu.ualberta.storyteller.core.parameter;
+
+import edu.ualberta.storyteller.core.util.*;
+import java.io.DataInputStream;
+import java.io.FileInputStream;
+import java.io.Serializable;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.StringTokenizer;
+
+public class Parameters implements Serializable {
+
+    //! Serialization version of the parameters before new ones were added.
+    private static final long serialVersionUID = -6343256738461324211L;
+
+    //! Language.
+    public String language;
+
+    //! Data type.
+    public String dataType;
+
+    //! TF boost rate for normal words.
+	//! NOTICE: currently, if it is not zero, the program will be out of memory!!!
+    public double boostRateNormalWord = 0;
+
+    //! TF boost rate for document's main keywords.
+    public double boostRateMainKeyword = 3;
+
+    //! TF boost rate for document's normal keywords.
+    public double boostRateNormalKeyword = 1;
+
+    //! Minimum cosine similarity between a keyword graph and its related document.
+    //! If the similarity is bigger than this threshold, the document will be included
+    //! in the topic.
+    public double minSimDoc2KeyGraph = .25;
+
+    //! Algorithm for keyword graph community detection.
+    //! Currently: "Betweenness", "Brandes" (exact edge betweenness over all shortest paths,
+    //! computed with numThreads workers), "Louvain" (modularity optimization of whole connected
+    //! components, which ignores maxClusterNodeSize), "LabelPropagation" (parallel label propagation
+    //! of whole connected components, warm started from the labels of the previous run)
+    public String communityDetectAlg = "Betweenness";
+
+    //! Algorithm for event splitting.
+    //! Currently: "DocRelation", "DocGraph", "Rule"
+    public String eventSplitAlg = "DocRelation";
+
+    //! Minimum number of related documents for a topic.
+    //! Detected topics with a size smaller than it will be filtered.
+    public int minTopicSize = 5;
+
+    //! Minimum document frequency of keyword graph nodes.
+    //! Nodes in a keyword graph will a smaller DF will be filtered (too rare).
+    public int minNodeDF = 4;
+
+	//! Minimum document frequency of keyword graph edges.
+	//! Edges in a keyword graph will a smaller DF will be filtered (too rare).
+	public int minEdgeDF = 3;
+
+	//! Minimum edge correlation of keyword graph edges.
+	//! KeywordEdge (n1, n2) will smaller correlation will be filtered
+	//! (which means node n1 n2 may also be connected with a lot of other nodes).
+    //! NOTICE: this param influence the final clusters a lot.
+	public double minEdgeCorrelation = .15;
+
+    //! Maximum document frequency percentage of keyword graph nodes.
+    //! Nodes appear in over than this percentage documents will be filtered (too normal).
+    public double maxNodeDFPercent = .3;
+
+    //! Minimum number of nodes for a cluster (a keyword graph that represents a topic).
+    //! Clusters with a smaller size will be filtered.
+    public int minClusterNodeSize = 3;
+
+    //! Maximum number of nodes for a cluster (a keyword graph that represents a topic).
+    //! Clusters with a bigger size will continue be split by community detection algorithm.
+    public int maxClusterNodeSize = 800;
+
+    //! Minimum number of keywords for a document.
+    //! Documents that contains less keywords will be filtered.
+    public int minDocKeywordSize = 5;
+
+    //! Merge two document clusters if their intersect proportion is bigger than a threshold
+    public double minIntersectPercentToMergeCluster = .3;
+
+    //! Minimum conditional probability to duplicate an edge rather than delete it from keyword graph.
+    //! Duplicate the edge if the conditional probability is higher than this threshold.
+    public double minCpToDuplicateEdge = 1.7;
+
+    //! Whether use document's topic to split a document cluster into sub clusters.
+    public boolean useDocumentTopic = false;
+
+    //! Whether use document's title common word's count to split a document cluster into sub clusters.
+    public boolean useDocumentTitleCommonWords = false;
+
+    //! Minimum number of common words in title to taken two documents into one group.
+    public int minTitleCommonWordsSize = 2;
+
+    //! Minimum percentage of common words in title to taken two documents into one group.
+    public double minTitleCommonWordsPercent = .4;
+
+    //! The file that contains stop words. Each line is a word.
+    public String fStopwords;
+    public HashSet<String> stopwords;
+
+    //! The file that contains SVM model to determine whether two documents are of same event.
+    public String fModel;
+    public libsvm.svm_model model;
+
+    public String fSameStoryModel;
+    public libsvm.svm_model sameStoryModel;
+
+    //! Minimum key graph compatibility for matching a document cluster to an existing story tree.
+    public double minKeygraphCompatibilityDc2St = .6;
+
+    //! Minimum compatibility for matching a document cluster to an existing story tree's node.
+    public double minCompatibilityDc2Sn = .3;
+
+    //! Minimum tf cosine similarity for matching a document cluster to an existing story tree's node.
+    public double minTFCosineSimilarityDc2Sn = .02;
+
+    //! Used to control the influence of timestamp difference between new document and old document.
+    //! Assume if time gap is bigger, the possibility that two documents are connected will decay by exponential func.
+    //! If this param is bigger, the decay will be faster; otherwise, the decay is smoother.
+    //! Calculate time proximity.
+    public double deltaTimeGap = .5;
+
+    //! Used to control the influence of document distribution.
+    //! Calculate document distributional proximity.
+    public double deltaDocDistribution = .5;
+
+    //! How many day's data to keep.
+    public int historyLength = 3;
+
+    //! Time span in hours of the buckets that index the documents of the history window.
+    //! Expired buckets are dropped as a whole when the window slides.
+    public int corpusBucketHours = 24;
+
+    //! Whether use extra title for topic match.
+    public boolean useRelatedNewsTitlesForMatch = false;
+
+    //! The file that contains SVM model to determine whether a document matches a query.
+    public String fQueryDocMatchModel;
+    public libsvm.svm_model queryDocMatchModel;
+
+    //! Maximum number of docs to match for a topic.
+    public int maxMatchedDocsSize = 20;
+
+    //! Number of worker threads used by the parallel stages of the pipeline.
+    //! If it is bigger than 1, input files are memory-mapped, split into newline-aligned
+    //! chunks and parsed in parallel.
+    public int numThreads = 1;
+
+    //! Whether merge near-duplicate documents when loading a corpus.
+    //! Documents whose SimHash signatures differ in at most maxSimHashDistance bits are merged
+    //! into the first of them, which keeps all their urls.
+    public boolean useNearDuplicateFilter = false;
+    public int maxSimHashDistance = 3;
+
+    //! Whether update the keyword graph of the history window from per-bucket co-occurrence counts
+    //! instead of rebuilding it from all documents every day.
+    //! The counts live in the EventDetector and follow one WindowedCorpus object, so they are only reused
+    //! by a process that keeps both from day to day, as StoryLayer.main does. A process that reloads the
+    //! history corpus from its snapshot counts it from scratch on its first day. Graph nodes and postings
+    //! are always rebuilt from the window, which is linear in its keywords.
+    public boolean useIncrementalKeywordGraph = false;
+
+    //! How keyword pairs are counted when building a keyword graph: "exact" or "approximate".
+    //! Approximate mode first counts pairs into a count-min sketch of cooccurrenceSketchMB megabytes
+    //! and cooccurrenceSketchDepth rows, and then counts exactly only the pairs that may become edges.
+    public String cooccurrenceMode = "exact";
+    public int cooccurrenceSketchMB = 64;
+    public int cooccurrenceSketchDepth = 4;
+
+    //! Whether update Brandes betweenness scores incrementally after removing edges from a
+    //! connected component, instead of recomputing them. Only used by the "Brandes" algorithm.
+    //! Up to betweennessBatchSize edges with the highest scores are removed before each update.
+    public boolean useIncrementalBetweenness = false;
+    public int betweennessBatchSize = 1;
+
+    //! Components with more nodes than betweennessSampleThreshold get Brandes betweenness scores estimated
+    //! from a sample of pivot sources. There are betweennessSampleSize pivots, or, if it is 0, enough pivots
+    //! that with probability 0.9 every score is within betweennessSampleError times the number of node pairs.
+    public int betweennessSampleThreshold = 1000;
+    public int betweennessSampleSize = 0;
+    public double betweennessSampleError = 0.1;
+
+    //! Maximum number of betweenness score computations, full or incremental, spent on splitting a component.
+    //! Subgraphs still waiting when it runs out are kept as communities. 0 means no limit.
+    public int betweennessWorkBudget = 0;
+
+    //! Components with at most denseBetweennessMaxNodes nodes, but not the smallest ones, get Brandes betweenness
+    //! scores from breadth first searches on adjacency bit matrices, which take numNodes^2 ints per component.
+    //! 0 disables them.
+    public int denseBetweennessMaxNodes = 1024;
+
+    //! Maximum number of connected components whose communities are cached for the next runs, for example
+    //! for the next day of an overlapping window. The least recently used ones are evicted. 0 disables the cache.
+    //! It is off by default: a component is only found again if the df of all its keywords and edges is
+    //! unchanged, which is rare once the window slides, so the cache mostly costs fingerprints and memory.
+    public int communityCacheSize = 0;
+
+    //! Edge weight of Louvain community detection: "df" (document frequency of the keyword pair)
+    //! or "cp" (average of the two conditional probabilities of the keyword pair).
+    //! Bigger louvainResolution values give smaller communities.
+    public String louvainEdgeWeight = "df";
+    public double louvainResolution = 1;
+
+    //! Maximum number of label propagation iterations.
+    public int labelPropagationMaxIterations = 20;
+
+    /**
+     * Default constructor.
+     * Create Parameters instance with the default value of each parameter and no models.
+     */
+    public Parameters() {
+    }
+
+    /**
+     * Parametric constructor.
+     * Create Parameters instance from file.
+     * @param paramsFile File name of parameters' file.
+     * @throws Exception
+     */
+	public Parameters(String paramsFile) throws Exception {
+		load(new DataInputStream(new FileInputStream(paramsFile)));
+	}
+
+    /**
+     * Load parameters from parameter file.
+     * @param in Parameter file input stream.
+     * @throws Exception
+     */
+	public void load(DataInputStream in) throws Exception {
+        // create variable to save parameters
+		HashMap<String, String> conf = new HashMap<String, String>();
+
+        // read parameter file and parse each line.
+        // lines started with "//" are considered to be comments
+		String line = null;
+		while ((line = in.readLine()) != null) {
+			line = line.trim();
+			if (line.startsWith("//") || line.length() == 0) {
+                continue;
+            }
+
+			StringTokenizer st = new StringTokenizer(line, "= ;");
+			conf.put(st.nextToken(), st.nextToken());
+		}
+
+        // parameters for experimental setup
+        language = conf.get("language");
+        dataType = conf.get("dataType");
+
+        // parameters to boost word tf
+        boostRateNormalWord = Double.parseDouble(conf.get("boostRateNormalWord"));
+        boostRateMainKeyword = Double.parseDouble(conf.get("boostRateMainKeyword"));
+        boostRateNormalKeyword = Double.parseDouble(conf.get("boostRateNormalKeyword"));
+
+        // parameters to filter documents
+        minDocKeywordSize = Integer.parseInt(conf.get("minDocKeywordSize"));
+
+        // parameters to filter keyword graph nodes
+        minNodeDF = Integer.parseInt(conf.get("minNodeDF"));
+		maxNodeDFPercent = Double.parseDouble(conf.get("maxNodeDFPercent"));
+
+        // parameters to filter keyword graph edges
+		minEdgeDF = Integer.parseInt(conf.get("minEdgeDF"));
+        minEdgeCorrelation = Double.parseDouble(conf.get("minEdgeCorrelation"));
+
+        // parameters to detect keyword graph communities
+        communityDetectAlg = conf.get("communityDetectAlg");
+
+        // parameters to split or filter keyword graphs
+		maxClusterNodeSize = Integer.parseInt(conf.get("maxClusterNodeSize"));
+		minClusterNodeSize = Integer.parseInt(conf.get("minClusterNodeSize"));
+		minIntersectPercentToMergeCluster = Double.parseDouble(conf.get("minIntersectPercentToMergeCluster"));
+        minCpToDuplicateEdge = Double.parseDouble(conf.get("minCpToDuplicateEdge"));
+
+        // parameters to assign document to keyword graphs
+        minSimDoc2KeyGraph = Double.parseDouble(conf.get("minSimDoc2KeyGraph"));
+
+        // parameters to filter document clusters
+        minTopicSize = Integer.parseInt(conf.get("minTopicSize"));
+
+        // parameters to processing document clusters
+        useDocumentTopic = Boolean.parseBoolean(conf.get("useDocumentTopic"));
+        useDocumentTitleCommonWords = Boolean.parseBoolean(conf.get("useDocumentTitleCommonWords"));
+        minTitleCommonWordsSize = Integer.parseInt(conf.get("minTitleCommonWordsSize"));
+        minTitleCommonWordsPercent = Double.parseDouble(conf.get("minTitleCommonWordsPercent"));
+        fStopwords = conf.get("fStopwords");
+        stopwords = NlpUtils.importStopwords(fStopwords, language);
+        eventSplitAlg = conf.get("eventSplitAlg");
+
+        // parameters to merge new documents wit stories
+        minKeygraphCompatibilityDc2St = Double.parseDouble(conf.get("minKeygraphCompatibilityDc2St"));
+        minCompatibilityDc2Sn = Double.parseDouble(conf.get("minCompatibilityDc2Sn"));
+        minTFCosineSimilarityDc2Sn = Double.parseDouble(conf.get("minTFCosineSimilarityDc2Sn"));
+        deltaTimeGap = Double.parseDouble(conf.get("deltaTimeGap"));
+        deltaDocDistribution = Double.parseDouble(conf.get("deltaDocDistribution"));
+
+        // parameters for filter corpora
+        historyLength = Integer.parseInt(conf.get("historyLength"));
+        if (conf.containsKey("corpusBucketHours")) {
+            corpusBucketHours = Integer.parseInt(conf.get("corpusBucketHours"));
+        }
+
+        // parameters related to event classification supervised learning
+        fModel = conf.get("fModel");
+        model = libsvm.svm.svm_load_model(fModel);
+        fSameStoryModel = conf.get("fSameStoryModel");
+        sameStoryModel = libsvm.svm.svm_load_model(fSameStoryModel);
+
+        // parameters for query doc matching
+        useRelatedNewsTitlesForMatch = Boolean.parseBoolean(conf.get("useRelatedNewsTitlesForMatch"));
+        fQueryDocMatchModel = conf.get("fQueryDocMatchModel");
+        queryDocMatchModel = libsvm.svm.svm_load_model(fQueryDocMatchModel);
+        maxMatchedDocsSize = Integer.parseInt(conf.get("maxMatchedDocsSize"));
+
+        // parameters for parallel processing
+        if (conf.containsKey("numThreads")) {
+            numThreads = Integer.parseInt(conf.get("numThreads"));
+        }
+
+        // parameters for near-duplicate filtering
+        if (conf.containsKey("useNearDuplicateFilter")) {
+            useNearDuplicateFilter = Boolean.parseBoolean(conf.get("useNearDuplicateFilter"));
+        }
+        if (conf.containsKey("maxSimHashDistance")) {
+            maxSimHashDistance = Integer.parseInt(conf.get("maxSimHashDistance"));
+        }
+
+        // parameters for incremental keyword graph
+        if (conf.containsKey("useIncrementalKeywordGraph")) {
+            useIncrementalKeywordGraph = Boolean.parseBoolean(conf.get("useIncrementalKeywordGraph"));
+        }
+
+        // parameters for counting keyword pairs
+        if (conf.containsKey("cooccurrenceMode")) {
+            cooccurrenceMode = conf.get("cooccurrenceMode");
+        }
+        if (conf.containsKey("cooccurrenceSketchMB")) {
+            cooccurrenceSketchMB = Integer.parseInt(conf.get("cooccurrenceSketchMB"));
+        }
+        if (conf.containsKey("cooccurrenceSketchDepth")) {
+            cooccurrenceSketchDepth = Integer.parseInt(conf.get("cooccurrenceSketchDepth"));
+        }
+
+        // parameters for betweenness community detection
+        if (conf.containsKey("useIncrementalBetweenness")) {
+            useIncrementalBetweenness = Boolean.parseBoolean(conf.get("useIncrementalBetweenness"));
+        }
+        if (conf.containsKey("betweennessBatchSize")) {
+            betweennessBatchSize = Integer.parseInt(conf.get("betweennessBatchSize"));
+        }
+        if (conf.containsKey("betweennessSampleThreshold")) {
+            betweennessSampleThreshold = Integer.parseInt(conf.get("betweennessSampleThreshold"));
+        }
+        if (conf.containsKey("betweennessSampleSize")) {
+            betweennessSampleSize = Integer.parseInt(conf.get("betweennessSampleSize"));
+        }
+        if (conf.containsKey("betweennessSampleError")) {
+            betweennessSampleError = Double.parseDouble(conf.get("betweennessSampleError"));
+        }
+        if (conf.containsKey("betweennessWorkBudget")) {
+            betweennessWorkBudget = Integer.parseInt(conf.get("betweennessWorkBudget"));
+        }
+        if (conf.containsKey("denseBetweennessMaxNodes")) {
+            denseBetweennessMaxNodes = Integer.parseInt(conf.get("denseBetweennessMaxNodes"));
+        }
+        if (conf.containsKey("communityCacheSize")) {
+            communityCacheSize = Integer.parseInt(conf.get("communityCacheSize"));
+        }
+
+        // parameters for Louvain community detection
+        if (conf.containsKey("louvainEdgeWeight")) {
+            louvainEdgeWeight = conf.get("louvainEdgeWeight");
+        }
+        if (conf.containsKey("louvainResolution")) {
+            louvainResolution = Double.parseDouble(conf.get("louvainResolution"));
+        }
+
+        // parameters for label propagation community detection
+        if (conf.containsKey("labelPropagationMaxIterations")) {
+            labelPropagationMaxIterations = Integer.parseInt(conf.get("labelPropagationMaxIterations"));
+        }
+
+    }
+
+}
@@ -12,8 +12,8 @@ public class StoryForest implements Serializable {
     //! Story tree list.
     public ArrayList<StoryTree> storyTrees;
 
-    //! Corpus.
-    public Corpus corpus = new Corpus();
+    //! Corpus of the history window.
+    public Corpus corpus = new WindowedCorpus();
 
     //! Cumulative DF. It records all DF from all the documents that generates this story forest.
     public HashMap<String, Double> cumulativeDF = new HashMap<String, Double>();
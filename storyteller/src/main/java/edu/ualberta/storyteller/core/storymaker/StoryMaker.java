@@ -52,6 +52,7 @@ public class StoryMaker {
                                        String printStoryFormat) throws Exception {
         // initialization
         StoryForest sf = new StoryForest();
+        sf.corpus = new WindowedCorpus(parameters.corpusBucketHours);
         EventDetector eventDetector = new EventDetector(parameters);
         DataLoader loader = new DataLoader(parameters);
 
@@ -1,6 +1,6 @@
-package edu.ualberta.storyteller.core.storymaker;
-
-public enum TreeTraversalOrderEnum {
-    PRE_ORDER,
-    POST_ORDER
-}
+package edu.ualberta.storyteller.core.storymaker;
+
+public enum TreeTraversalOrderEnum {
+    PRE_ORDER,
+    POST_ORDER
+}
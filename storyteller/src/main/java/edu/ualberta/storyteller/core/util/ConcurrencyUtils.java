@@ -0,0 +1,92 @@
+package edu.ualberta.storyteller.core.util;
+
+import java.util.ArrayList;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * This class contains methods that manage worker thread pools.
+ * <p>
+ * @author Bang Liu <bang3@ualberta.ca>
+ * @version 2017.1219
+ */
+public class ConcurrencyUtils {
+
+    /**
+     * Shared pools, one per parallelism level.
+     */
+    private static final ConcurrentHashMap<Integer, ForkJoinPool> POOLS = new ConcurrentHashMap<>();
+
+    /**
+     * Get a shared work-stealing pool with the given parallelism.
+     * Pools are created lazily and reused by all stages of the pipeline.
+     * Their worker threads are daemon threads, so they never need to be shut down.
+     * <p>
+     * @param parallelism Number of worker threads. Values smaller than 1 are treated as 1.
+     * @return A fork-join pool.
+     */
+    public static ForkJoinPool getPool(int parallelism) {
+        return POOLS.computeIfAbsent(Math.max(1, parallelism), ForkJoinPool::new);
+    }
+
+    /**
+     * A task on a range of indexes with the state of its worker.
+     */
+    public interface RangeTask<T> {
+
+        /**
+         * Run the task on a range.
+         * <p>
+         * @param state State of the worker.
+         * @param from First index.
+         * @param to Last index, exclusive.
+         */
+        void apply(T state, int from, int to);
+
+    }
+
+    /**
+     * Run a task on ranges of the indexes from 0 to size with a shared pool.
+     * Indexes are split into up to four ranges per worker thread, of at least minRangeSize indexes,
+     * and each worker takes the next range left as soon as it is done with its current one.
+     * With one range, the task runs on the calling thread.
+     * <p>
+     * @param parallelism Number of worker threads.
+     * @param size Number of indexes.
+     * @param minRangeSize Minimum number of indexes of a range.
+     * @param newState Create the state of a worker.
+     * @param task The task on a range.
+     * @return The state of each worker, in the order the workers were started.
+     */
+    public static <T> ArrayList<T> forEachRange(int parallelism, int size, int minRangeSize,
+                                                Supplier<T> newState, RangeTask<T> task) {
+        int numRanges = parallelism > 1 ? Math.max(1, Math.min(size / Math.max(1, minRangeSize), parallelism * 4)) : 1;
+        ArrayList<T> states = new ArrayList<>();
+        if (numRanges == 1) {
+            T state = newState.get();
+            task.apply(state, 0, size);
+            states.add(state);
+            return states;
+        }
+        ForkJoinPool pool = getPool(parallelism);
+        AtomicInteger nextRange = new AtomicInteger();
+        ArrayList<ForkJoinTask<T>> workers = new ArrayList<>();
+        for (int w = 0; w < Math.min(parallelism, numRanges); ++w) {
+            workers.add(pool.submit(() -> {
+                T state = newState.get();
+                for (int r = nextRange.getAndIncrement(); r < numRanges; r = nextRange.getAndIncrement()) {
+                    task.apply(state, (int) ((long) size * r / numRanges), (int) ((long) size * (r + 1) / numRanges));
+                }
+                return state;
+            }));
+        }
+        for (ForkJoinTask<T> worker : workers) {
+            states.add(worker.join());
+        }
+        return states;
+    }
+
+}
@@ -44,7 +44,7 @@ public class KeywordLayer {
             }
         }
         for (String key: toRemove) {
-            corpus.docs.remove(key);
+            corpus.removeDocument(key);
         }
         System.out.println("Corpus size is " + corpus.docs.size() + " after filter by topics.");
     }
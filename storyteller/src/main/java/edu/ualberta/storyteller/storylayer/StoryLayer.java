@@ -105,7 +105,8 @@ public class StoryLayer {
         fNewsNames.add("../test_data/2017-07-21.txt");
         fNewsNames.add("../test_data/2017-07-22.txt");
         String fParameters = "conf/ChineseNewsParameters.txt";
-        String fHistoryCorpus = "../test_data/history_corpus.ser";
+        String fHistoryCorpus = "../test_data/history_corpus.bin";
+        String fLegacyHistoryCorpus = "../test_data/history_corpus.ser";
         String fHistoryStoryForest = "../test_data/history_sf.ser";
         String fOutputEvents = "../test_data/events_sf.txt";
         String fOutputStories = "../test_data/stories.txt";
@@ -115,6 +116,11 @@ public class StoryLayer {
         Parameters parameters = new Parameters(fParameters);
         DataLoader loader = new DataLoader(parameters);
 
+        // the history corpus and the event detector are kept from day to day, so that the keyword graph
+        // aggregates of the event detector follow the documents of the history window
+        Corpus historicalCorpus = null;
+        EventDetector eventDetector = new EventDetector(parameters);
+
         // run day by day
         for (String fNews: fNewsNames) {
             // load corpus
@@ -135,15 +141,25 @@ public class StoryLayer {
                 }
             }
             for (String key : toRemove) {
-                corpus.docs.remove(key);
+                corpus.removeDocument(key);
             }
             System.out.println("Corpus size is " + corpus.docs.size() + " after filter by topics.");
 
-            // load historical corpus
-            Corpus historicalCorpus = new Corpus();
-            File f = new File(fHistoryCorpus);
-            if (f.exists() && !f.isDirectory()) {
-                historicalCorpus = SerializationUtils.deserialize(new FileInputStream(fHistoryCorpus));
+            // load historical corpus on the first day
+            if (historicalCorpus == null) {
+                historicalCorpus = new WindowedCorpus(parameters.corpusBucketHours);
+                File f = new File(fHistoryCorpus);
+                File legacyFile = new File(fLegacyHistoryCorpus);
+                if (f.exists() && !f.isDirectory()) {
+                    historicalCorpus = CorpusReader.read(f);
+                } else if (legacyFile.exists() && !legacyFile.isDirectory()) {
+                    historicalCorpus = SerializationUtils.deserialize(new FileInputStream(legacyFile));
+                }
+                // re-bucket legacy corpora and snapshots written with another bucket span
+                if (!(historicalCorpus instanceof WindowedCorpus)
+                        || ((WindowedCorpus) historicalCorpus).getBucketHours() != Math.max(1, parameters.corpusBucketHours)) {
+                    historicalCorpus = new WindowedCorpus(historicalCorpus, parameters.corpusBucketHours);
+                }
             }
 
             // merge new and historical corpus
@@ -154,7 +170,6 @@ public class StoryLayer {
                     historicalCorpus.endTime());
 
             // extract events
-            EventDetector eventDetector = new EventDetector(parameters);
             ArrayList<Event> events = eventDetector.extractEventsFromCorpus(historicalCorpus);
 
             // output new events
@@ -214,9 +229,7 @@ public class StoryLayer {
             printStoryForestToCSV(historicalStoryForest, fOutputStoriesCSV, 2, 0);
 
             // save historical corpus
-            FileOutputStream outCorpus = new FileOutputStream(fHistoryCorpus);
-            SerializationUtils.serialize(historicalCorpus, outCorpus);
-            outCorpus.close();
+            CorpusWriter.write(historicalCorpus, new File(fHistoryCorpus));
 
             // save historical story forest
             FileOutputStream outStory = new FileOutputStream(fHistoryStoryForest);
@@ -0,0 +1,139 @@
+package edu.ualberta.storyteller.core.dataloader;
+
+import junit.framework.TestCase;
+import java.sql.Timestamp;
+
+/**
+ * Check that the DF maintained incrementally by Corpus and WindowedCorpus matches a full recount.
+ * <p>
+ * @author Bang Liu <bang3@ualberta.ca>
+ * @version 2017.1219
+ */
+public class CorpusDFTest extends TestCase {
+
+    /**
+     * One hour in milliseconds.
+     */
+    private static final long HOUR = 3600L * 1000L;
+
+    /**
+     * Create a document.
+     * <p>
+     * @param id Document id.
+     * @param hour Publish time in hours.
+     * @param words Base forms of its keywords.
+     * @return The document.
+     */
+    private static Document doc(String id, long hour, String... words) {
+        Document d = new Document(id);
+        d.publishTime = new Timestamp(hour * HOUR);
+        for (String w : words) {
+            d.keywords.put(w, new Keyword(w, w, 1, 1));
+        }
+        return d;
+    }
+
+    /**
+     * Fill a corpus with documents spread over three days.
+     * <p>
+     * @param corpus The corpus.
+     */
+    private static void fill(Corpus corpus) {
+        corpus.addDocument(doc("1", 1, "apple", "banana", "cherry"));
+        corpus.addDocument(doc("2", 5, "apple", "banana"));
+        corpus.addDocument(doc("3", 23, "banana"));
+        corpus.addDocument(doc("4", 25, "apple", "durian", "cherry"));
+        corpus.addDocument(doc("5", 30, "durian"));
+        corpus.addDocument(doc("6", 49, "apple", "elderberry"));
+        corpus.addDocument(doc("7", 70, "elderberry", "banana", "fig"));
+    }
+
+    public void testAddAndRemove() {
+        Corpus corpus = new Corpus();
+        fill(corpus);
+        assertTrue(corpus.verifyDF());
+        assertEquals(4.0, corpus.DF.get("apple"));
+
+        // replace a document by one with the same id
+        corpus.addDocument(doc("2", 6, "fig", "grape"));
+        assertTrue(corpus.verifyDF());
+        assertEquals(3.0, corpus.DF.get("apple"));
+
+        // remove documents, including one that is not in the corpus
+        assertNotNull(corpus.removeDocument("5"));
+        assertNull(corpus.removeDocument("5"));
+        assertNull(corpus.removeDocument("missing"));
+        assertTrue(corpus.verifyDF());
+        assertEquals(1.0, corpus.DF.get("durian"));
+
+        corpus.removeDocument("4");
+        assertTrue(corpus.verifyDF());
+        assertFalse(corpus.DF.containsKey("durian"));
+    }
+
+    public void testFilterDocsByNumKeywords() {
+        Corpus corpus = new Corpus();
+        fill(corpus);
+        corpus.filterDocsByNumKeywords(3);
+        assertEquals(3, corpus.docs.size());
+        assertTrue(corpus.verifyDF());
+    }
+
+    public void testFilterDocsByTime() {
+        Corpus corpus = new Corpus();
+        fill(corpus);
+        corpus.filterDocsByTime(new Timestamp(4 * HOUR), new Timestamp(50 * HOUR));
+        assertEquals(5, corpus.docs.size());
+        assertTrue(corpus.verifyDF());
+    }
+
+    public void testMerge() {
+        Corpus corpus = new Corpus();
+        fill(corpus);
+        Corpus other = new Corpus();
+        other.addDocument(doc("1", 2, "grape"));
+        other.addDocument(doc("8", 80, "apple", "grape"));
+        corpus.merge(other);
+        assertEquals(8, corpus.docs.size());
+        assertTrue(corpus.verifyDF());
+    }
+
+    public void testWindowedCorpus() {
+        WindowedCorpus corpus = new WindowedCorpus(24);
+        fill(corpus);
+        assertTrue(corpus.verifyDF());
+        assertEquals(3, corpus.getBucketDocs().size());
+
+        // move a document to another bucket
+        corpus.addDocument(doc("3", 26, "banana", "grape"));
+        assertTrue(corpus.verifyDF());
+
+        corpus.removeDocument("6");
+        assertTrue(corpus.verifyDF());
+
+        corpus.filterDocsByNumKeywords(2);
+        assertTrue(corpus.verifyDF());
+    }
+
+    public void testWindowedFilterDocsByTime() {
+        // the window drops the first bucket at once and scans the boundary buckets
+        WindowedCorpus corpus = new WindowedCorpus(24);
+        fill(corpus);
+        corpus.addDocument(doc("8", 100, "apple", "fig"));
+        corpus.filterDocsByTime(new Timestamp(26 * HOUR), new Timestamp(60 * HOUR));
+        assertEquals(2, corpus.docs.size());
+        assertTrue(corpus.verifyDF());
+        assertEquals(new Timestamp(30 * HOUR), corpus.startTime());
+        assertEquals(new Timestamp(49 * HOUR), corpus.endTime());
+
+        // converting a plain corpus keeps its DF
+        Corpus plain = new Corpus();
+        fill(plain);
+        WindowedCorpus converted = new WindowedCorpus(plain, 12);
+        assertEquals(plain.DF, converted.DF);
+        converted.filterDocsByTime(new Timestamp(0), new Timestamp(24 * HOUR));
+        assertEquals(3, converted.docs.size());
+        assertTrue(converted.verifyDF());
+    }
+
+}
@@ -0,0 +1,173 @@
+package edu.ualberta.storyteller.core.keywordorganizer;
+
+import edu.ualberta.storyteller.core.dataloader.Keyword;
+import edu.ualberta.storyteller.core.parameter.Parameters;
+import junit.framework.TestCase;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Random;
+
+/**
+ * Check that cutting and duplicating edges between communities leaves every edge of a community
+ * inside that community.
+ * <p>
+ * @author Bang Liu <bang3@ualberta.ca>
+ * @version 2017.1219
+ */
+public class CommunityDetectorTest extends TestCase {
+
+    /**
+     * Create the default configuration with a low threshold to duplicate edges.
+     * <p>
+     * @param alg Community detection algorithm.
+     * @return The configuration.
+     */
+    private static Parameters parameters(String alg) {
+        Parameters parameters = new Parameters();
+        parameters.communityDetectAlg = alg;
+        parameters.minCpToDuplicateEdge = 0.5;
+        parameters.numThreads = 1;
+        return parameters;
+    }
+
+    /**
+     * Add a node to a graph.
+     * <p>
+     * @param graph The graph.
+     * @param name Base form of the keyword.
+     * @param df Document frequency of the keyword.
+     * @return The node.
+     */
+    private static KeywordNode node(HashMap<String, KeywordNode> graph, String name, int df) {
+        KeywordNode n = new KeywordNode(new Keyword(name, name, df, df));
+        graph.put(name, n);
+        return n;
+    }
+
+    /**
+     * Connect two nodes.
+     * <p>
+     * @param n1 The first node.
+     * @param n2 The second node.
+     * @param df Document frequency of the pair.
+     */
+    private static void edge(KeywordNode n1, KeywordNode n2, int df) {
+        KeywordEdge e = new KeywordEdge(n1, n2);
+        e.df = df;
+        e.computeCPs();
+        n1.edges.put(e.id, e);
+        n2.edges.put(e.id, e);
+    }
+
+    /**
+     * Generate a graph of dense groups of keywords with strong edges between the groups.
+     * <p>
+     * @param seed Seed of the generator.
+     * @param numNodes Number of nodes.
+     * @return The graph.
+     */
+    private static HashMap<String, KeywordNode> generate(long seed, int numNodes) {
+        Random random = new Random(seed);
+        HashMap<String, KeywordNode> graph = new HashMap<>();
+        KeywordNode[] nodes = new KeywordNode[numNodes];
+        for (int i = 0; i < numNodes; ++i) {
+            nodes[i] = node(graph, "k" + i, 10 + random.nextInt(40));
+        }
+        for (int i = 0; i < numNodes; ++i) {
+            for (int j = i + 1; j < numNodes; ++j) {
+                boolean sameGroup = i / 10 == j / 10;
+                if (random.nextDouble() < (sameGroup ? 0.6 : 8.0 / numNodes)) {
+                    int df = (int) Math.min(nodes[i].keyword.df, nodes[j].keyword.df);
+                    edge(nodes[i], nodes[j], sameGroup ? df : 1 + random.nextInt(df));
+                }
+            }
+        }
+        return graph;
+    }
+
+    /**
+     * Assert that both ends of every edge of each community are nodes of that community.
+     * <p>
+     * @param communities The communities.
+     */
+    private static void assertClosed(ArrayList<HashMap<String, KeywordNode>> communities) {
+        for (HashMap<String, KeywordNode> community : communities) {
+            for (KeywordNode n : community.values()) {
+                for (KeywordEdge e : n.edges.values()) {
+                    assertSame(e.id, community.get(e.n1.keyword.baseForm), e.n1);
+                    assertSame(e.id, community.get(e.n2.keyword.baseForm), e.n2);
+                }
+            }
+        }
+    }
+
+    public void testCutCommunitiesSharesDuplicates() {
+        HashMap<String, KeywordNode> graph = new HashMap<>();
+        KeywordNode a1 = node(graph, "a1", 10);
+        KeywordNode a2 = node(graph, "a2", 10);
+        KeywordNode a3 = node(graph, "a3", 10);
+        KeywordNode b1 = node(graph, "b1", 40);
+        KeywordNode b2 = node(graph, "b2", 10);
+        KeywordNode b3 = node(graph, "b3", 10);
+        edge(a1, a2, 10);
+        edge(a2, a3, 10);
+        edge(a1, a3, 10);
+        edge(b1, b2, 10);
+        edge(b2, b3, 10);
+        edge(b1, b3, 10);
+        // two nodes of the first community pull copies of b1, which is too frequent to pull copies of them
+        edge(a1, b1, 8);
+        edge(a2, b1, 8);
+
+        CsrGraph g = CsrGraph.of(graph);
+        int[] membership = new int[g.size()];
+        for (int i = 0; i < g.size(); ++i) {
+            membership[i] = g.nodes[i].keyword.baseForm.startsWith("a") ? 0 : 1;
+        }
+        ArrayList<HashMap<String, KeywordNode>> communities =
+                CommunityDetector.cutCommunities(g, membership, parameters("louvain"));
+        assertClosed(communities);
+
+        HashMap<String, KeywordNode> first = communities.get(0);
+        assertEquals(4, first.size());
+        KeywordNode copy = first.get("b1");
+        assertNotSame(b1, copy);
+        assertEquals(2, copy.edges.size());
+        assertEquals(3, communities.get(1).size());
+        assertEquals(2, b1.edges.size());
+    }
+
+    public void testLouvainCommunitiesAreClosed() {
+        for (int numNodes : new int[] {400, 1500}) {
+            assertClosed(new CommunityDetector(parameters("louvain")).detectCommunities(generate(numNodes, numNodes)));
+        }
+    }
+
+    public void testLabelPropagationCommunitiesAreClosed() {
+        for (int numNodes : new int[] {400, 1500}) {
+            assertClosed(new CommunityDetector(parameters("labelpropagation"))
+                    .detectCommunities(generate(numNodes, numNodes)));
+        }
+    }
+
+    public void testLabelPropagationKeepsLabelsOfLastGraph() {
+        CommunityDetector detector = new CommunityDetector(parameters("labelpropagation"));
+        detector.detectCommunities(generate(400, 400));
+        HashMap<String, KeywordNode> graph = generate(40, 40);
+        HashSet<String> keywords = new HashSet<>(graph.keySet());
+        detector.detectCommunities(graph);
+        assertEquals(keywords, detector.labelPropagation.labels.keySet());
+    }
+
+    public void testCacheStoresDuplicatedCommunities() {
+        Parameters parameters = parameters("louvain");
+        parameters.communityCacheSize = 100;
+        CommunityDetector detector = new CommunityDetector(parameters);
+        detector.detectCommunities(generate(400, 400));
+        ArrayList<HashMap<String, KeywordNode>> communities = detector.detectCommunities(generate(400, 400));
+        assertClosed(communities);
+        assertTrue(detector.communityCache.getNumHits() > 0);
+    }
+
+}